@@ -1,51 +1,129 @@
 package com.stackroute.newz.aspect;
 
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.After;
-import org.aspectj.lang.annotation.AfterReturning;
-import org.aspectj.lang.annotation.AfterThrowing;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 /* Annotate this class with @Aspect and @Component */
 @Aspect
 @Component
 public class LoggerAspect {
 
 	/*
-	 * Write loggers for each of the methods of NewsController, any particular method
-	 * will have all the four aspectJ annotation
-	 * (@Before, @After, @AfterReturning, @AfterThrowing).
+	 * Logs one summary line per call of a controller method: the method, its simple
+	 * arguments, the response status, the number of items in the response body and the
+	 * duration. Request and response bodies are never converted to strings, so the cost
+	 * does not grow with the payload.
+	 *
+	 * Only a newz.logging.sample-rate share of the successful calls is logged; failed
+	 * calls are always logged. The lines go through an asynchronous appender, see
+	 * logback.xml, so the request thread does not wait for the file.
+	 *
+	 * The handlers of ReactiveNewsController return before the response exists, so for
+	 * a Mono or Flux the line is logged when the publisher completes or fails: with the
+	 * status of the ResponseEntity a Mono emits, or the number of items a Flux emits.
 	 */
+	private static final int MAX_ARG_LENGTH = 64;
+
 	private final Logger logger = LoggerFactory.getLogger(this.getClass());
-	
-	@Before(value="execution(* com.stackroute.newz.controller..*(..)))")
-	  public void beforeAllMethods(JoinPoint joinPoint) throws Throwable 
-	  {
-	    joinPoint.getSignature().getName();
-	    logger.info("{} returned with value {}", joinPoint);
-	  }
-	
-	@After("execution(* com.stackroute.newz.controller..*(..)))")
-	  public void afterAllMethods(JoinPoint joinPoint) throws Throwable 
-	  {
-	    joinPoint.getSignature().getName();
-	    logger.info("after execution of {}", joinPoint);
-	  }
-	
-	@AfterReturning(value="execution(* com.stackroute.newz.controller..*(..)))", returning = "result")
-	  public void afterReturningAllMethods(JoinPoint joinPoint, Object result) throws Throwable 
-	  {
-	    joinPoint.getSignature().getName();
-	    logger.info("{} returned with value {}", joinPoint, result);
-	  }
-	
-	@AfterThrowing("execution(* com.stackroute.newz.controller..*(..)))")
-	  public void afterThrowingAllMethods(JoinPoint joinPoint) throws Throwable 
-	  {
-	    joinPoint.getSignature().getName();
-	  }
+
+	@Value("${newz.logging.sample-rate:1.0}")
+	private double sampleRate = 1.0;
+
+	@Around("execution(* com.stackroute.newz.controller..*(..))")
+	public Object logRequest(ProceedingJoinPoint joinPoint) throws Throwable {
+		boolean sampled = logger.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate;
+		long start = System.nanoTime();
+		try {
+			Object result = joinPoint.proceed();
+			if(result instanceof Mono) {
+				return ((Mono<?>) result)
+						.doOnSuccess(value -> logSuccess(sampled, joinPoint, statusOf(value), itemsOf(value), start))
+						.doOnError(ex -> logFailure(joinPoint, ex, start));
+			}
+			if(result instanceof Flux) {
+				AtomicInteger items = new AtomicInteger();
+				return ((Flux<?>) result)
+						.doOnNext(item -> items.incrementAndGet())
+						.doOnComplete(() -> logSuccess(sampled, joinPoint, "-", items.get(), start))
+						.doOnError(ex -> logFailure(joinPoint, ex, start));
+			}
+			logSuccess(sampled, joinPoint, statusOf(result), itemsOf(result), start);
+			return result;
+		}
+		catch(Throwable ex) {
+			logFailure(joinPoint, ex, start);
+			throw ex;
+		}
+	}
+
+	private void logSuccess(boolean sampled, ProceedingJoinPoint joinPoint, Object status, int items, long start) {
+		if(sampled) {
+			logger.info("method={} args=[{}] status={} items={} durationMicros={}",
+					joinPoint.getSignature().getName(), argsOf(joinPoint), status, items,
+					TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+		}
+	}
+
+	private void logFailure(ProceedingJoinPoint joinPoint, Throwable ex, long start) {
+		logger.warn("method={} args=[{}] failed={} durationMicros={}",
+				joinPoint.getSignature().getName(), argsOf(joinPoint), ex.getClass().getSimpleName(),
+				TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+	}
+
+	/* Ids and other simple arguments by value, capped; anything else by type only. */
+
+	private static String argsOf(ProceedingJoinPoint joinPoint) {
+		StringBuilder args = new StringBuilder();
+		for(Object arg : joinPoint.getArgs()) {
+			if(args.length() > 0) {
+				args.append(',');
+			}
+			if(arg == null || arg instanceof Number || arg instanceof Boolean) {
+				args.append(arg);
+			}
+			else if(arg instanceof CharSequence) {
+				CharSequence value = (CharSequence) arg;
+				args.append(value, 0, Math.min(value.length(), MAX_ARG_LENGTH));
+			}
+			else if(arg instanceof Collection) {
+				args.append(arg.getClass().getSimpleName()).append('[').append(((Collection<?>) arg).size()).append(']');
+			}
+			else {
+				args.append(arg.getClass().getSimpleName());
+			}
+		}
+		return args.toString();
+	}
+
+	private static Object statusOf(Object result) {
+		if(result instanceof ResponseEntity) {
+			return ((ResponseEntity<?>) result).getStatusCodeValue();
+		}
+		return "-";
+	}
+
+	private static int itemsOf(Object result) {
+		Object body = result instanceof ResponseEntity ? ((ResponseEntity<?>) result).getBody() : result;
+		if(body == null) {
+			return 0;
+		}
+		if(body instanceof Collection) {
+			return ((Collection<?>) body).size();
+		}
+		return 1;
+	}
 }
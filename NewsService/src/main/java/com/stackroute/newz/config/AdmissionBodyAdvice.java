@@ -0,0 +1,65 @@
+package com.stackroute.newz.config;
+
+import java.lang.reflect.Type;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.util.exception.TooManyRequestsException;
+
+/*
+ * Charges a request whose URL names no user to the owner of its body, e.g.
+ * POST /api/v1/news to the author of the news, see AdmissionInterceptor, and answers
+ * 429(TOO MANY REQUESTS) with a Retry-After header once that user is out of tokens.
+ */
+@ControllerAdvice
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "newz.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionBodyAdvice extends RequestBodyAdviceAdapter {
+
+	private AdmissionInterceptor admissionInterceptor;
+
+	@Autowired
+	public AdmissionBodyAdvice(AdmissionInterceptor admissionInterceptor) {
+		this.admissionInterceptor = admissionInterceptor;
+	}
+
+	@Override
+	public boolean supports(MethodParameter methodParameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		return targetType == News.class;
+	}
+
+	@Override
+	public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+		if(attributes != null) {
+			long waitNanos = admissionInterceptor.tryAcquireOwner(attributes.getRequest(), ((News) body).getAuthor());
+			if(waitNanos > 0) {
+				throw new TooManyRequestsException(AdmissionInterceptor.retryAfterSeconds(waitNanos));
+			}
+		}
+		return body;
+	}
+
+	@ExceptionHandler(TooManyRequestsException.class)
+	public ResponseEntity<Void> tooManyRequests(TooManyRequestsException e) {
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+				.build();
+	}
+}
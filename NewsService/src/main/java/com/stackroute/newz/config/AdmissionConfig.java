@@ -0,0 +1,75 @@
+package com.stackroute.newz.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.stackroute.newz.util.AdaptiveConcurrencyLimit;
+import com.stackroute.newz.util.TokenBuckets;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Admission control of the /api handlers, see AdmissionInterceptor: a token bucket
+ * per user, so one client cannot take the service for itself, and a concurrency limit
+ * that shrinks as latency grows, so a MongoDB slowdown sheds the excess requests at
+ * once instead of letting them pile up in the thread pool. Rejections are counted in
+ * newz.admission.rejected. Turn it off with newz.admission.enabled=false.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "newz.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig implements WebMvcConfigurer {
+
+	@Value("${newz.admission.user.rate-per-second:20}")
+	private double userRatePerSecond = 20;
+
+	@Value("${newz.admission.user.burst:40}")
+	private int userBurst = 40;
+
+	@Value("${newz.admission.user.max-tracked:100000}")
+	private int maxTrackedUsers = 100000;
+
+	@Value("${newz.admission.concurrency.initial-limit:50}")
+	private int initialLimit = 50;
+
+	@Value("${newz.admission.concurrency.min-limit:10}")
+	private int minLimit = 10;
+
+	@Value("${newz.admission.concurrency.max-limit:200}")
+	private int maxLimit = 200;
+
+	@Value("${newz.admission.concurrency.tolerance:2.0}")
+	private double tolerance = 2.0;
+
+	@Value("${newz.admission.concurrency.backoff-ratio:0.9}")
+	private double backoffRatio = 0.9;
+
+	@Value("${newz.admission.concurrency.window:500}")
+	private int window = 500;
+
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	public AdmissionConfig(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Bean
+	public AdmissionInterceptor admissionInterceptor() {
+		TokenBuckets userRequests = new TokenBuckets(userRatePerSecond, userBurst, maxTrackedUsers);
+		AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit,
+				tolerance, backoffRatio, window);
+		return new AdmissionInterceptor(userRequests, concurrencyLimit, meterRegistry);
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(admissionInterceptor()).addPathPatterns("/api/**");
+	}
+}
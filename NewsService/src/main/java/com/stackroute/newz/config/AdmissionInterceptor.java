@@ -0,0 +1,146 @@
+package com.stackroute.newz.config;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.stackroute.newz.util.AdaptiveConcurrencyLimit;
+import com.stackroute.newz.util.TokenBuckets;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Admits a request to the handlers only within the adaptive concurrency limit, else
+ * answers 503(SERVICE UNAVAILABLE), and only if its user still has a token, else
+ * answers 429(TOO MANY REQUESTS). Both carry a Retry-After header. The concurrency
+ * limit is asked first, so a request it sheds does not use up a token of its user.
+ *
+ * The user is the {userId} of the URL, else the userId request parameter, e.g. of the
+ * lookups of the NewsSourceClient of NewsService, else the authenticated user. URLs
+ * without any, e.g. POST /api/v1/news, are charged to the owner in the request body
+ * by AdmissionBodyAdvice; the client address would put every user behind one proxy
+ * or gateway into one bucket. Requests without an owner, like the bulk handlers,
+ * are only bound by the concurrency limit.
+ *
+ * A request stays admitted across the dispatches of an asynchronous request, and
+ * only its first dispatch is timed, as a streamed response takes as long as the
+ * client reads it.
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+	static final String ADMITTED_AT = AdmissionInterceptor.class.getName() + ".admittedAt";
+	static final String REFUSED = AdmissionInterceptor.class.getName() + ".refused";
+
+	private final TokenBuckets userRequests;
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
+	private final Counter rateLimited;
+	private final Counter shed;
+
+	public AdmissionInterceptor(TokenBuckets userRequests, AdaptiveConcurrencyLimit concurrencyLimit,
+			MeterRegistry meterRegistry) {
+		this.userRequests = userRequests;
+		this.concurrencyLimit = concurrencyLimit;
+		this.rateLimited = rejected("rate", meterRegistry);
+		this.shed = rejected("concurrency", meterRegistry);
+		Gauge.builder("newz.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+				.description("Requests that may be processed at once")
+				.register(meterRegistry);
+		Gauge.builder("newz.admission.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+				.description("Requests being processed")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if(request.getAttribute(ADMITTED_AT) != null) {
+			return true;
+		}
+		if(!concurrencyLimit.tryAcquire()) {
+			shed.increment();
+			response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			return false;
+		}
+		String user = userOf(request);
+		long waitNanos = user != null ? userRequests.tryAcquire(user) : 0;
+		if(waitNanos > 0) {
+			concurrencyLimit.release(routeOf(request), -1);
+			rateLimited.increment();
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(waitNanos)));
+			response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+			return false;
+		}
+		request.setAttribute(ADMITTED_AT, System.nanoTime());
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		Object admittedAt = request.getAttribute(ADMITTED_AT);
+		if(admittedAt == null) {
+			return;
+		}
+		request.removeAttribute(ADMITTED_AT);
+		boolean unsampled = request.getDispatcherType() == DispatcherType.ASYNC || request.getAttribute(REFUSED) != null;
+		concurrencyLimit.release(routeOf(request), unsampled ? -1 : System.nanoTime() - (Long) admittedAt);
+	}
+
+	/*
+	 * Takes a token of the owner of the body of a request that was admitted without a
+	 * user, see AdmissionBodyAdvice. Returns 0 when taken, else the nanoseconds until
+	 * one is; the refused request is then not sampled by the concurrency limit, as its
+	 * latency says nothing about MongoDB.
+	 */
+
+	public long tryAcquireOwner(HttpServletRequest request, String owner) {
+		if(userOf(request) != null || owner == null) {
+			return 0;
+		}
+		long waitNanos = userRequests.tryAcquire(owner);
+		if(waitNanos > 0) {
+			rateLimited.increment();
+			request.setAttribute(REFUSED, Boolean.TRUE);
+		}
+		return waitNanos;
+	}
+
+	public static long retryAfterSeconds(long waitNanos) {
+		return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999999999L));
+	}
+
+	private static String routeOf(HttpServletRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return request.getMethod() + " " + (pattern != null ? pattern : "");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String userOf(HttpServletRequest request) {
+		Map<String, String> uriVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		if(uriVariables != null && uriVariables.get("userId") != null) {
+			return uriVariables.get("userId");
+		}
+		if(request.getParameter("userId") != null) {
+			return request.getParameter("userId");
+		}
+		Principal principal = request.getUserPrincipal();
+		return principal != null ? principal.getName() : null;
+	}
+
+	private static Counter rejected(String reason, MeterRegistry meterRegistry) {
+		return Counter.builder("newz.admission.rejected")
+				.description("Requests refused before reaching a handler")
+				.tag("reason", reason)
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,49 @@
+package com.stackroute.newz.config;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * In-process read-through caches in front of NewsService. The cached methods and their
+ * invalidation are declared on the NewsService interface, so they apply to whichever
+ * storage mode is active.
+ *
+ * Each cache is bounded by a Caffeine spec (size and TTL based eviction). The specs
+ * include recordStats, so hit, miss and eviction counts are kept for every cache.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+	/* Single news, keyed by "userId:newsId". */
+	public static final String NEWS_CACHE = "news";
+
+	/* All news of a user, keyed by userId. */
+	public static final String USER_NEWS_CACHE = "userNews";
+
+	/* News sources of NewsSourceResolver, keyed by newsSourceId. */
+	public static final String NEWS_SOURCE_CACHE = "newsSource";
+
+	@Bean
+	public CacheManager cacheManager(
+			@Value("${newz.cache.news.spec:maximumSize=10000,expireAfterWrite=5m,recordStats}") String newsSpec,
+			@Value("${newz.cache.user-news.spec:maximumSize=1000,expireAfterWrite=1m,recordStats}") String userNewsSpec,
+			@Value("${newz.cache.news-source.spec:maximumSize=10000,expireAfterWrite=5m,recordStats}") String newsSourceSpec) {
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(Arrays.asList(
+				new CaffeineCache(NEWS_CACHE, Caffeine.from(newsSpec).build()),
+				new CaffeineCache(USER_NEWS_CACHE, Caffeine.from(userNewsSpec).build()),
+				new CaffeineCache(NEWS_SOURCE_CACHE, Caffeine.from(newsSourceSpec).build())));
+		return cacheManager;
+	}
+
+}
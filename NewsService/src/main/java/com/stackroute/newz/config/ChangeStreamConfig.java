@@ -0,0 +1,48 @@
+package com.stackroute.newz.config;
+
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+
+import com.mongodb.client.model.changestream.FullDocument;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.service.NewsChangeListener;
+
+/*
+ * Watches the change streams of the collections behind the NewsService caches, one
+ * thread each, and hands their events to the NewsChangeListener. Enabled with
+ * newz.cache.change-stream.enabled=true; change streams need MongoDB to run as a
+ * replica set, a single node one will do. A change stream that fails is registered
+ * again by the NewsChangeListener.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "newz.cache.change-stream", name = "enabled", havingValue = "true")
+public class ChangeStreamConfig {
+
+	@Bean
+	public MessageListenerContainer changeStreamContainer(MongoTemplate mongoTemplate, NewsChangeListener listener) {
+		DefaultMessageListenerContainer container = new DefaultMessageListenerContainer(mongoTemplate,
+				new SimpleAsyncTaskExecutor("newz-change-stream-"));
+		listener.watch(container, ChangeStreamRequest.<Document>builder(message -> listener.onUserNewsChange(message.getRaw()))
+				.collection(mongoTemplate.getCollectionName(UserNews.class))
+				.build());
+		listener.watch(container, ChangeStreamRequest.<Document>builder(message -> listener.onNewsArticleChange(message.getRaw()))
+				.collection(mongoTemplate.getCollectionName(NewsArticle.class))
+				.fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+				.build());
+		listener.watch(container, ChangeStreamRequest.<Document>builder(message -> listener.onNewsSourceChange(message.getRaw()))
+				.collection(mongoTemplate.getCollectionName(NewsSource.class))
+				.fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+				.build());
+		container.start();
+		return container;
+	}
+}
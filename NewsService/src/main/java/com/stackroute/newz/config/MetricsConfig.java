@@ -0,0 +1,42 @@
+package com.stackroute.newz.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.mongodb.MongoClientOptions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+
+/*
+ * Adds the MongoDB driver to the Micrometer metrics that Actuator registers on its own
+ * (Spring MVC handler timers, JVM, Tomcat and cache gauges), see the management
+ * section of application.yml. Scraped by Prometheus from /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+	/*
+	 * Requests that may wait for a pooled connection, as a multiple of the pool size.
+	 * Further requests fail with MongoWaitQueueFullException, see application.yml.
+	 */
+	@Value("${newz.mongo.wait-queue-multiplier:5}")
+	private int waitQueueMultiplier = 5;
+
+	/*
+	 * Times every command sent to MongoDB (mongodb.driver.commands) and publishes the
+	 * size and usage of each connection pool (mongodb.driver.pool.*). Spring Boot
+	 * builds its MongoClient from this bean and the spring.data.mongodb properties.
+	 * The bean also carries the size of the connection wait queue.
+	 */
+	@Bean
+	public MongoClientOptions mongoClientOptions(MeterRegistry meterRegistry) {
+		return MongoClientOptions.builder()
+				.addCommandListener(new MongoMetricsCommandListener(meterRegistry))
+				.addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry))
+				.threadsAllowedToBlockForConnectionMultiplier(waitQueueMultiplier)
+				.build();
+	}
+}
@@ -0,0 +1,59 @@
+package com.stackroute.newz.config;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.stackroute.newz.controller.NewsController;
+
+import java.util.Collections;
+
+/*
+ * WebFlux setup of the "reactive" profile. The Jackson codecs of this Spring version
+ * know JSON but not newline delimited JSON, so they are replaced by codecs that also
+ * read application/x-ndjson and write it one news per line as the news are emitted.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig {
+
+	private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(NewsController.APPLICATION_NDJSON_VALUE);
+
+	/* Ordered after the Jackson codecs that Spring Boot registers with @Order(0). */
+	@Bean
+	@Order(1)
+	public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper) {
+		return configurer -> {
+			Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper,
+					MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), APPLICATION_NDJSON);
+			encoder.setStreamingMediaTypes(Collections.singletonList(APPLICATION_NDJSON));
+			configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+			configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper,
+					MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), APPLICATION_NDJSON));
+		};
+	}
+
+	/*
+	 * CBOR bodies, see BinaryEncodingConfig. WebFlux registers Smile by default but
+	 * CBOR only on request, and its CBOR codecs read and write single values, not
+	 * streams.
+	 */
+	@Bean
+	public CodecCustomizer cborCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+		return configurer -> {
+			ObjectMapper mapper = BinaryEncodingConfig.mapper(builder, new ObjectMapper(new CBORFactory()));
+			configurer.customCodecs().encoder(new Jackson2CborEncoder(mapper));
+			configurer.customCodecs().decoder(new Jackson2CborDecoder(mapper));
+		};
+	}
+}
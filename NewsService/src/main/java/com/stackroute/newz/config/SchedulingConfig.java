@@ -0,0 +1,18 @@
+package com.stackroute.newz.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/*
+ * Runs the @Scheduled methods, which fire the due reminders of ReminderScheduler.
+ * Turn it off with newz.reminders.enabled=false on instances that should only serve
+ * requests; the reminders of their writes are still scheduled, and fired by the
+ * other instances.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "newz.reminders", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+
+}
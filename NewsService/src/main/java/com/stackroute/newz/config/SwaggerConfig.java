@@ -2,6 +2,7 @@ package com.stackroute.newz.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -12,8 +13,10 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 /*As in this class we are implementing Swagger So annotate the class with @Configuration and 
  * @EnableSwagger2
  * 
+ * Springfox needs the servlet stack, so there is no Swagger UI in the "reactive" profile.
  */
 @Configuration
+@Profile("!reactive")
 @EnableSwagger2
 public class SwaggerConfig {
 
@@ -1,11 +1,20 @@
 package com.stackroute.newz.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,12 +22,28 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.NewsSummary;
 import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.ETags;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsVersionConflictException;
 
 /*
  * As in this assignment, we are working with creating RESTful web service, hence annotate
@@ -29,6 +54,7 @@ import com.stackroute.newz.util.exception.NewsNotFoundException;
  * is equivalent to using @Controller and @ResposeBody annotation
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/v1/news")
 public class NewsController {
 
@@ -37,12 +63,26 @@ public class NewsController {
 	 * autowiring) Please note that we should not create any object using the new
 	 * keyword
 	 */
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	/* Number of news read from an NDJSON ingest stream before they are handed to the service. */
+	@Value("${newz.bulk.batch-size:1000}")
+	private int ingestChunkSize = 1000;
+
+	/* Largest JSON array accepted by createAllNews; bigger ingests are sent as NDJSON. */
+	@Value("${newz.bulk.max-news:10000}")
+	private int maxBulkNews = 10000;
+
 	@Autowired
 	private NewsService newsService;
+	private ObjectWriter newsWriter;
+	private ObjectReader newsReader;
 	
 	@Autowired
-	public NewsController(NewsService newsService) {
+	public NewsController(NewsService newsService, ObjectMapper objectMapper) {
 		this.newsService = newsService;
+		this.newsWriter = objectMapper.writerFor(News.class);
+		this.newsReader = objectMapper.readerFor(News.class);
 	}
 	
 	private final Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -54,11 +94,16 @@ public class NewsController {
 	 * basis on different situations: 
 	 * 1. 201(CREATED) - If the news created successfully. 
 	 * 2. 409(CONFLICT) - If the newsId conflicts with any existing user.
+	 * 3. 400(BAD REQUEST) - If the news has no newsId or no author.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news" using HTTP POST method
 	 */
 	@PostMapping
 	public ResponseEntity<News> createNews(@RequestBody News news){
+		if(news.getNewsId() == null || news.getAuthor() == null) {
+			logger.info("In controller - {}", "News without newsId or author: " +news);
+			return new ResponseEntity<News>(HttpStatus.BAD_REQUEST);
+		}
 		Boolean isNewsExists = newsService.addNews(news);
 		if(isNewsExists == true) {
 			logger.info("In controller - {}", "News created: " +news);
@@ -68,6 +113,51 @@ public class NewsController {
 		return new ResponseEntity<News>(HttpStatus.CONFLICT);
 	}
 
+
+	/*
+	 * Handler method which creates many news at once from a JSON array in the request
+	 * body. It returns 200(OK) with one result per news, in request order, telling
+	 * whether that news was CREATED, is a CONFLICT with an existing newsId, is INVALID
+	 * or FAILED. It returns 413(PAYLOAD TOO LARGE) without saving anything for an
+	 * array of more than newz.bulk.max-news news.
+	 *
+	 * This handler method maps to the URL "/api/v1/news/bulk" using HTTP POST method
+	 */
+	@PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<NewsIngestResult>> createAllNews(@RequestBody List<News> newsList) {
+		if(newsList.size() > maxBulkNews) {
+			logger.info("In controller - {}", newsList.size() + " news sent for bulk ingest, at most " + maxBulkNews + " allowed.");
+			return new ResponseEntity<List<NewsIngestResult>>(HttpStatus.PAYLOAD_TOO_LARGE);
+		}
+		List<NewsIngestResult> results = newsService.addAllNews(newsList);
+		logger.info("In controller - {}", "Bulk ingest of " +results.size()+ " news");
+		return new ResponseEntity<List<NewsIngestResult>>(results, HttpStatus.OK);
+	}
+
+	/*
+	 * Same as createAllNews for a newline delimited JSON request body. The body is
+	 * read incrementally and saved in chunks of newz.bulk.batch-size news, so the request
+	 * is never held in memory as a whole.
+	 */
+	@PostMapping(value = "/bulk", consumes = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<List<NewsIngestResult>> createAllNewsFromStream(InputStream body) throws IOException {
+		List<NewsIngestResult> results = new ArrayList<NewsIngestResult>();
+		List<News> chunk = new ArrayList<News>(ingestChunkSize);
+		try (MappingIterator<News> newsIterator = newsReader.readValues(body)) {
+			while (newsIterator.hasNextValue()) {
+				chunk.add(newsIterator.nextValue());
+				if (chunk.size() == ingestChunkSize) {
+					results.addAll(newsService.addAllNews(chunk));
+					chunk.clear();
+				}
+			}
+		}
+		if (!chunk.isEmpty()) {
+			results.addAll(newsService.addAllNews(chunk));
+		}
+		logger.info("In controller - {}", "Bulk ingest of " +results.size()+ " news");
+		return new ResponseEntity<List<NewsIngestResult>>(results, HttpStatus.OK);
+	}
 	
 	/*
 	 * Define a handler method which will delete a news from a database.
@@ -75,6 +165,7 @@ public class NewsController {
 	 * on different situations: 
 	 * 1. 200(OK) - If the news deleted successfully from database. 
 	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 3. 412(PRECONDITION FAILED) - If the news no longer matches the If-Match ETag.
 	 *
 	 * This handler method should map to the URL "/api/v1/news/{userId}/{newsId}" 
 	 * using HTTP Delete method where "userId" should be replaced by a valid userId 
@@ -83,8 +174,17 @@ public class NewsController {
 	 * 
 	 */
 	@DeleteMapping("/{userId}/{newsId}")
-	public ResponseEntity<News> deleteNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId){
-		Boolean isNewsDeleted = newsService.deleteNews(userId, newsId);
+	public ResponseEntity<News> deleteNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		Boolean isNewsDeleted;
+		try {
+			Long expectedVersion = ETags.expectedVersion(ifMatch, newsId);
+			isNewsDeleted = expectedVersion == null ? newsService.deleteNews(userId, newsId)
+					: newsService.deleteNews(userId, newsId, expectedVersion);
+		} catch (IllegalArgumentException | NewsVersionConflictException e) {
+			logger.info("In controller - {}", "News changed for user ID: "+userId+ " and news ID: " +newsId);
+			return new ResponseEntity<News>(HttpStatus.PRECONDITION_FAILED);
+		}
 		if(isNewsDeleted == true) {
 			logger.info("In controller - {}", "News deleted for user ID: "+userId+ " and news ID: " +newsId);
 			return new ResponseEntity<News>(HttpStatus.OK);
@@ -129,8 +229,9 @@ public class NewsController {
 	 * database. 
 	 * This handler method should return any one of the status messages
 	 * basis on different situations: 
-	 * 1. 200(OK) - If the news updated successfully.
+	 * 1. 200(OK) - If the news updated successfully, with the ETag of the new version.
 	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 3. 412(PRECONDITION FAILED) - If the news no longer matches the If-Match ETag.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news/{userId}/{newsId}" using 
 	 * HTTP PUT method where "userId" should be replaced by a valid userId 
@@ -138,17 +239,23 @@ public class NewsController {
 	 * 
 	 */
 	@PutMapping("/{userId}/{newsId}")
-	public ResponseEntity<News> updateNews(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId, @RequestBody News news) 
+	public ResponseEntity<News> updateNews(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId, @RequestBody News news,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) 
 		{
 		try {
-			News newsUpdated = newsService.updateNews(news, newsId, userId);
+			Long expectedVersion = ETags.expectedVersion(ifMatch, newsId);
+			News newsUpdated = expectedVersion == null ? newsService.updateNews(news, newsId, userId)
+					: newsService.updateNews(news, newsId, userId, expectedVersion);
 			if(newsUpdated != null) {
 				logger.info("In controller - {}", "News updated for User ID: "+userId+ " and news ID: " +newsId + " is: " +news);
-				return new ResponseEntity<News>(newsUpdated, HttpStatus.OK);
+				return ResponseEntity.ok().eTag(ETags.of(newsUpdated)).body(newsUpdated);
 			}
 		} catch (NewsNotFoundException e) {
 			logger.info("In controller - {}", "News not found for User ID: "+userId+ " and news ID: " +newsId);
 			return new ResponseEntity<News>(HttpStatus.NOT_FOUND);
+		} catch (IllegalArgumentException | NewsVersionConflictException e) {
+			logger.info("In controller - {}", "News changed for User ID: "+userId+ " and news ID: " +newsId);
+			return new ResponseEntity<News>(HttpStatus.PRECONDITION_FAILED);
 		}
 		logger.info("In controller - {}", "News not found for User ID: "+userId+ " and news ID: " +newsId);
 		return new ResponseEntity<News>(HttpStatus.NOT_FOUND);
@@ -159,7 +266,8 @@ public class NewsController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 
 	 * 1. 200(OK) - If the news found successfully. 
-	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 2. 304(NOT MODIFIED) - If the ETag or Last-Modified sent by the client still match.
+	 * 3. 404(NOT FOUND) - If the news with specified newsId is not found.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news/{userId}/{newsId}" 
 	 * using HTTP GET method where "userId" should be replaced by a valid userId 
@@ -173,7 +281,7 @@ public class NewsController {
 			newsById = newsService.getNewsByNewsId(userId, newsId);
 			if(newsById != null) {
 				logger.info("In controller - {}", "The news for User ID: "+userId+ " and news ID: " +newsId+ " is: "+newsById);
-				return new ResponseEntity<News>(newsById, HttpStatus.OK);
+				return ETags.okWithValidators(ETags.of(newsById), newsById.getLastModifiedAt()).body(newsById);
 			}
 		} catch (NewsNotFoundException e) {
 			logger.info("In controller - {}", "News ID "+newsId+ " not Found.");
@@ -188,7 +296,8 @@ public class NewsController {
 	 * user. This handler method should return any one of the status messages basis on
 	 * different situations: 
 	 * 1. 200(OK) - If the news found successfully. 
-	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 2. 304(NOT MODIFIED) - If the ETag sent by the client still matches.
+	 * 3. 404(NOT FOUND) - If the news with specified newsId is not found.
 	 * This handler method should map to the URL "/api/v1/news/{userId}" using HTTP GET method
 	 * where "userId" should be replaced by a valid userId without {}.
 	 * 
@@ -198,8 +307,8 @@ public class NewsController {
 	public ResponseEntity<List<News>> getAllNewsByUserId(@PathVariable("userId") String userId){
 		List<News> allNews = newsService.getAllNewsByUserId(userId);
 		if(allNews != null) {
-			logger.info("In controller - {}", "List of all news: "+allNews);
-			return new ResponseEntity<List<News>>(allNews, HttpStatus.OK);
+			logger.info("In controller - {}", "Found " +allNews.size()+ " news for User ID: "+userId);
+			return ETags.okWithValidators(ETags.ofAll(allNews), null).body(allNews);
 		}
 		else {
 			logger.info("In controller - {}", "User ID "+userId+ " not Found.");
@@ -207,4 +316,129 @@ public class NewsController {
 		}
 	}
 
+	/*
+	 * Handler method which returns the summaries of all news of a specific user for list
+	 * screens, see NewsSummary, when the request has "view=summary". This handler method
+	 * should return any one of the status messages basis on different situations:
+	 * 1. 200(OK) - If the news found successfully.
+	 * 2. 304(NOT MODIFIED) - If the ETag sent by the client still matches.
+	 * 3. 404(NOT FOUND) - If the user has no news.
+	 */
+
+	@GetMapping(value = "/{userId}", params = "view=summary")
+	public ResponseEntity<List<NewsSummary>> getNewsSummariesByUserId(@PathVariable("userId") String userId) {
+		List<NewsSummary> summaries = newsService.getNewsSummariesByUserId(userId);
+		if(summaries != null) {
+			logger.info("In controller - {}", "Found " +summaries.size()+ " news summaries for User ID: "+userId);
+			return ETags.okWithValidators(ETags.ofSummaries(summaries), null).body(summaries);
+		}
+		logger.info("In controller - {}", "User ID "+userId+ " not Found.");
+		return new ResponseEntity<List<NewsSummary>>(HttpStatus.NOT_FOUND);
+	}
+
+	/*
+	 * Handler method which returns one page of the news of a specific user, newest
+	 * first. "limit" is capped at NewsPage.MAX_PAGE_SIZE and "after" is the nextCursor
+	 * of the previous page. This handler method should return any one of the status
+	 * messages basis on different situations:
+	 * 1. 200(OK) - With the page, which is empty past the last news.
+	 * 2. 400(BAD REQUEST) - If the cursor is not valid.
+	 *
+	 * This handler method maps to the URL "/api/v1/news/{userId}?limit=&after=" using
+	 * HTTP GET method.
+	 */
+	@GetMapping(value = "/{userId}", params = "limit")
+	public ResponseEntity<NewsPage> getNewsPageByUserId(@PathVariable("userId") String userId,
+			@RequestParam("limit") int limit, @RequestParam(value = "after", required = false) String after) {
+		NewsCursor cursor;
+		try {
+			cursor = after == null ? null : NewsCursor.decode(after);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", "Invalid cursor for User ID: "+userId);
+			return new ResponseEntity<NewsPage>(HttpStatus.BAD_REQUEST);
+		}
+		NewsPage page = newsService.getNewsPageByUserId(userId, cursor, NewsPage.clampPageSize(limit));
+		logger.info("In controller - {}", "Page of " +page.getNews().size()+ " news for User ID: "+userId);
+		return new ResponseEntity<NewsPage>(page, HttpStatus.OK);
+	}
+
+	/*
+	 * Handler method which streams all news of a specific user as newline delimited
+	 * JSON, one news per line, writing each news as it is read from the database so
+	 * that neither the database result nor the response is held in memory.
+	 *
+	 * This handler method maps to the URL "/api/v1/news/{userId}" using HTTP GET
+	 * method with "Accept: application/x-ndjson".
+	 */
+	@GetMapping(value = "/{userId}", produces = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamAllNewsByUserId(@PathVariable("userId") String userId) {
+		StreamingResponseBody body = outputStream -> {
+			try (Stream<News> allNews = newsService.streamAllNewsByUserId(userId)) {
+				Iterator<News> iterator = allNews.iterator();
+				boolean first = true;
+				while (iterator.hasNext()) {
+					outputStream.write(newsWriter.writeValueAsBytes(iterator.next()));
+					outputStream.write('\n');
+					if (first) {
+						outputStream.flush();
+						first = false;
+					}
+				}
+			}
+		};
+		logger.info("In controller - {}", "Streaming news for User ID: "+userId);
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+	}
+
+	/*
+	 * Handler method which searches the title, description and content of the news of
+	 * a specific user and returns one page of matches, best match first. "size" is
+	 * capped at NewsPage.MAX_PAGE_SIZE and "page" starts at 0. This handler method
+	 * should return any one of the status messages basis on different situations:
+	 * 1. 200(OK) - With the page, which is empty when nothing matches.
+	 * 2. 400(BAD REQUEST) - If "q" is blank or "page" is negative.
+	 *
+	 * This handler method maps to the URL "/api/v1/news/{userId}/search?q=&page=&size="
+	 * using HTTP GET method.
+	 */
+	@GetMapping("/{userId}/search")
+	public ResponseEntity<NewsSearchPage> searchNews(@PathVariable("userId") String userId, @RequestParam("q") String text,
+			@RequestParam(value = "page", defaultValue = "0") int page, @RequestParam(value = "size", defaultValue = "20") int size) {
+		if(text.trim().isEmpty() || page < 0) {
+			logger.info("In controller - {}", "Invalid search for User ID: "+userId);
+			return new ResponseEntity<NewsSearchPage>(HttpStatus.BAD_REQUEST);
+		}
+		NewsSearchPage result = newsService.searchNews(userId, text, page, NewsPage.clampPageSize(size));
+		logger.info("In controller - {}", "Found " +result.getNews().size()+ " news for search of User ID: "+userId);
+		return new ResponseEntity<NewsSearchPage>(result, HttpStatus.OK);
+	}
+
+	/*
+	 * Handler method for the delta sync of a client's copy of the news of a specific
+	 * user. It returns the news added or updated and the newsIds deleted since the
+	 * checkpoint "since", which is the checkpoint of the previous sync; without it, or
+	 * when it is too old, all news are returned with resync true, see NewsChanges.
+	 * This handler method should return any one of the status messages basis on
+	 * different situations:
+	 * 1. 200(OK) - With the changes, which are empty when nothing changed.
+	 * 2. 400(BAD REQUEST) - If "since" is not a checkpoint.
+	 *
+	 * This handler method maps to the URL "/api/v1/news/{userId}/changes?since="
+	 * using HTTP GET method.
+	 */
+	@GetMapping("/{userId}/changes")
+	public ResponseEntity<NewsChanges> getNewsChangesByUserId(@PathVariable("userId") String userId,
+			@RequestParam(value = "since", required = false) String since) {
+		NewsCheckpoint checkpoint;
+		try {
+			checkpoint = since == null ? null : NewsCheckpoint.decode(since);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", "Invalid checkpoint for User ID: "+userId);
+			return new ResponseEntity<NewsChanges>(HttpStatus.BAD_REQUEST);
+		}
+		NewsChanges changes = newsService.getNewsChangesByUserId(userId, checkpoint);
+		logger.info("In controller - {}", changes.getChanged().size()+ " changed and " +changes.getDeleted().size()+ " deleted news for User ID: "+userId);
+		return new ResponseEntity<NewsChanges>(changes, HttpStatus.OK);
+	}
+
 }
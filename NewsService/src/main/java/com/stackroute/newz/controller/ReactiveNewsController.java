@@ -0,0 +1,214 @@
+package com.stackroute.newz.controller;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.NewsSummary;
+import com.stackroute.newz.service.ReactiveNewsService;
+import com.stackroute.newz.util.ETags;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsVersionConflictException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * WebFlux version of NewsController for the "reactive" profile. It serves the same
+ * URLs with the same status codes; see NewsController for the contract of each
+ * handler method.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/v1/news")
+public class ReactiveNewsController {
+
+	private ReactiveNewsService newsService;
+
+	@Autowired
+	public ReactiveNewsController(ReactiveNewsService newsService) {
+		this.newsService = newsService;
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@PostMapping
+	public Mono<ResponseEntity<News>> createNews(@RequestBody News news) {
+		if(news.getNewsId() == null || news.getAuthor() == null) {
+			logger.info("In controller - {}", "News without newsId or author: " +news.getNewsId());
+			return Mono.just(new ResponseEntity<News>(HttpStatus.BAD_REQUEST));
+		}
+		return newsService.addNews(news).map(isNewsAdded -> {
+			if(isNewsAdded) {
+				logger.info("In controller - {}", "News created: " +news.getNewsId());
+				return new ResponseEntity<News>(news, HttpStatus.CREATED);
+			}
+			logger.info("In controller - {}", "News ID "+ news.getNewsId() + " already exists.");
+			return new ResponseEntity<News>(HttpStatus.CONFLICT);
+		});
+	}
+
+	/*
+	 * Accepts a JSON array or newline delimited JSON. The news are decoded as they
+	 * arrive and saved in chunks, so the request is never held in memory as a whole.
+	 */
+	@PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, NewsController.APPLICATION_NDJSON_VALUE })
+	public Flux<NewsIngestResult> createAllNews(@RequestBody Flux<News> newsList) {
+		return newsService.addAllNews(newsList);
+	}
+
+	@DeleteMapping("/{userId}/{newsId}")
+	public Mono<ResponseEntity<News>> deleteNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return Mono.fromCallable(() -> ETags.expectedVersion(ifMatch, newsId))
+				.flatMap(expectedVersion -> newsService.deleteNews(userId, newsId, expectedVersion))
+				.switchIfEmpty(Mono.defer(() -> newsService.deleteNews(userId, newsId)))
+				.map(isNewsDeleted -> {
+			if(isNewsDeleted) {
+				logger.info("In controller - {}", "News deleted for user ID: "+userId+ " and news ID: " +newsId);
+				return new ResponseEntity<News>(HttpStatus.OK);
+			}
+			logger.info("In controller - {}", "News not found for user ID: "+userId+ " and news ID: " +newsId);
+			return new ResponseEntity<News>(HttpStatus.NOT_FOUND);
+		}).onErrorResume(e -> e instanceof IllegalArgumentException || e instanceof NewsVersionConflictException,
+				e -> preconditionFailed(userId, newsId));
+	}
+
+	@DeleteMapping("/{userId}")
+	public Mono<ResponseEntity<News>> deleteNews(@PathVariable("userId") String userId) {
+		return newsService.deleteAllNews(userId)
+				.map(isNewsDeleted -> new ResponseEntity<News>(HttpStatus.OK))
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "News not found for User ID - " +userId);
+					return Mono.just(new ResponseEntity<News>(HttpStatus.NOT_FOUND));
+				});
+	}
+
+	@PutMapping("/{userId}/{newsId}")
+	public Mono<ResponseEntity<News>> updateNews(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId, @RequestBody News news,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return Mono.fromCallable(() -> ETags.expectedVersion(ifMatch, newsId))
+				.flatMap(expectedVersion -> newsService.updateNews(news, newsId, userId, expectedVersion))
+				.switchIfEmpty(Mono.defer(() -> newsService.updateNews(news, newsId, userId)))
+				.map(newsUpdated -> ResponseEntity.ok().eTag(ETags.of(newsUpdated)).body(newsUpdated))
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "News not found for User ID: "+userId+ " and news ID: " +newsId);
+					return Mono.just(new ResponseEntity<News>(HttpStatus.NOT_FOUND));
+				})
+				.onErrorResume(e -> e instanceof IllegalArgumentException || e instanceof NewsVersionConflictException,
+						e -> preconditionFailed(userId, newsId));
+	}
+
+	private Mono<ResponseEntity<News>> preconditionFailed(String userId, Integer newsId) {
+		logger.info("In controller - {}", "News changed for User ID: "+userId+ " and news ID: " +newsId);
+		return Mono.just(new ResponseEntity<News>(HttpStatus.PRECONDITION_FAILED));
+	}
+
+	@GetMapping("/{userId}/{newsId}")
+	public Mono<ResponseEntity<News>> getNewsById(@PathVariable("userId") String userId, @PathVariable("newsId") Integer newsId) {
+		return newsService.getNewsByNewsId(userId, newsId)
+				.map(newsById -> ETags.okWithValidators(ETags.of(newsById), newsById.getLastModifiedAt()).body(newsById))
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "News ID "+newsId+ " not Found.");
+					return Mono.just(new ResponseEntity<News>(HttpStatus.NOT_FOUND));
+				});
+	}
+
+	/*
+	 * The status of a JSON array response depends on whether the user exists, so the
+	 * list is collected before it is written. Clients that want the news as they are
+	 * read ask for application/x-ndjson instead.
+	 */
+	@GetMapping("/{userId}")
+	public Mono<ResponseEntity<List<News>>> getAllNewsByUserId(@PathVariable("userId") String userId) {
+		return newsService.getAllNewsByUserId(userId).collectList()
+				.map(allNews -> ETags.okWithValidators(ETags.ofAll(allNews), null).body(allNews))
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "User ID "+userId+ " not Found.");
+					return Mono.just(new ResponseEntity<List<News>>(HttpStatus.NOT_FOUND));
+				});
+	}
+
+	@GetMapping(value = "/{userId}", params = "view=summary")
+	public Mono<ResponseEntity<List<NewsSummary>>> getNewsSummariesByUserId(@PathVariable("userId") String userId) {
+		return newsService.getNewsSummariesByUserId(userId).collectList()
+				.map(summaries -> ETags.okWithValidators(ETags.ofSummaries(summaries), null).body(summaries))
+				.onErrorResume(NewsNotFoundException.class, e -> {
+					logger.info("In controller - {}", "User ID "+userId+ " not Found.");
+					return Mono.just(new ResponseEntity<List<NewsSummary>>(HttpStatus.NOT_FOUND));
+				});
+	}
+
+	@GetMapping(value = "/{userId}", params = "limit")
+	public Mono<ResponseEntity<NewsPage>> getNewsPageByUserId(@PathVariable("userId") String userId,
+			@RequestParam("limit") int limit, @RequestParam(value = "after", required = false) String after) {
+		NewsCursor cursor;
+		try {
+			cursor = after == null ? null : NewsCursor.decode(after);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", "Invalid cursor for User ID: "+userId);
+			return Mono.just(new ResponseEntity<NewsPage>(HttpStatus.BAD_REQUEST));
+		}
+		return newsService.getNewsPageByUserId(userId, cursor, NewsPage.clampPageSize(limit))
+				.map(page -> new ResponseEntity<NewsPage>(page, HttpStatus.OK));
+	}
+
+	@GetMapping("/{userId}/changes")
+	public Mono<ResponseEntity<NewsChanges>> getNewsChangesByUserId(@PathVariable("userId") String userId,
+			@RequestParam(value = "since", required = false) String since) {
+		NewsCheckpoint checkpoint;
+		try {
+			checkpoint = since == null ? null : NewsCheckpoint.decode(since);
+		} catch (IllegalArgumentException e) {
+			logger.info("In controller - {}", "Invalid checkpoint for User ID: "+userId);
+			return Mono.just(new ResponseEntity<NewsChanges>(HttpStatus.BAD_REQUEST));
+		}
+		return newsService.getNewsChangesByUserId(userId, checkpoint)
+				.map(changes -> new ResponseEntity<NewsChanges>(changes, HttpStatus.OK));
+	}
+
+	/*
+	 * News are written one per line as the database cursor delivers them, and the
+	 * cursor is only read as fast as the client consumes the response.
+	 */
+	@GetMapping(value = "/{userId}", produces = NewsController.APPLICATION_NDJSON_VALUE)
+	public Flux<News> streamAllNewsByUserId(@PathVariable("userId") String userId) {
+		return newsService.streamAllNewsByUserId(userId);
+	}
+
+	@GetMapping("/{userId}/search")
+	public Mono<ResponseEntity<NewsSearchPage>> searchNews(@PathVariable("userId") String userId, @RequestParam("q") String text,
+			@RequestParam(value = "page", defaultValue = "0") int page, @RequestParam(value = "size", defaultValue = "20") int size) {
+		if(text.trim().isEmpty() || page < 0) {
+			logger.info("In controller - {}", "Invalid search for User ID: "+userId);
+			return Mono.just(new ResponseEntity<NewsSearchPage>(HttpStatus.BAD_REQUEST));
+		}
+		return newsService.searchNews(userId, text, page, NewsPage.clampPageSize(size))
+				.map(result -> new ResponseEntity<NewsSearchPage>(result, HttpStatus.OK));
+	}
+
+}
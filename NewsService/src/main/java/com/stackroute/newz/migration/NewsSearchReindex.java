@@ -0,0 +1,92 @@
+package com.stackroute.newz.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.service.NewsSearchIndex;
+
+/*
+ * Adds every stored news to the NewsSearchIndex, for news saved before the index
+ * existed. Runs once at startup when newz.search.reindex=true, over the collection
+ * of the active newz.storage.mode. Entries are upserted, so running it again only
+ * refreshes them.
+ */
+@Component
+@ConditionalOnProperty(prefix = "newz.search", name = "reindex", havingValue = "true")
+public class NewsSearchReindex implements ApplicationRunner {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Value("${newz.storage.mode:embedded}")
+	private String storageMode = "embedded";
+
+	@Value("${newz.bulk.batch-size:1000}")
+	private int bulkBatchSize = 1000;
+
+	private MongoTemplate mongoTemplate;
+	private NewsSearchIndex searchIndex;
+
+	@Autowired
+	public NewsSearchReindex(MongoTemplate mongoTemplate, NewsSearchIndex searchIndex) {
+		this.mongoTemplate = mongoTemplate;
+		this.searchIndex = searchIndex;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		long indexed = 0;
+		if("article".equals(storageMode)) {
+			indexed = reindexArticles();
+		}
+		else {
+			try (CloseableIterator<UserNews> userNewsCursor = mongoTemplate.stream(new Query(), UserNews.class)) {
+				while (userNewsCursor.hasNext()) {
+					UserNews userNews = userNewsCursor.next();
+					if(userNews.getNewslist() != null) {
+						searchIndex.indexAll(userNews.getUserId(), userNews.getNewslist());
+						indexed += userNews.getNewslist().size();
+					}
+				}
+			}
+		}
+		logger.warn("News search reindex finished - {} news indexed", indexed);
+	}
+
+	/* Articles are read in userId order, on the userId_newsId index, and indexed user by user. */
+
+	private long reindexArticles() {
+		long indexed = 0;
+		String userId = null;
+		List<News> userNews = new ArrayList<News>();
+		try (CloseableIterator<NewsArticle> articleCursor = mongoTemplate.stream(new Query().with(Sort.by("userId")), NewsArticle.class)) {
+			while (articleCursor.hasNext()) {
+				NewsArticle article = articleCursor.next();
+				if(!article.getUserId().equals(userId) || userNews.size() == bulkBatchSize) {
+					searchIndex.indexAll(userId, userNews);
+					indexed += userNews.size();
+					userNews.clear();
+					userId = article.getUserId();
+				}
+				userNews.add(article.getNews());
+			}
+		}
+		searchIndex.indexAll(userId, userNews);
+		return indexed + userNews.size();
+	}
+}
@@ -0,0 +1,75 @@
+package com.stackroute.newz.migration;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.UserNews;
+
+/*
+ * Copies every News embedded in the UserNews collection into its own NewsArticle
+ * document. Runs once at startup when newz.storage.migrate=true.
+ *
+ * UserNews documents are streamed with a cursor, so only one user is held in memory
+ * at a time, and each user's articles are written with one unordered bulk upsert.
+ * $setOnInsert makes the migration idempotent: running it again never overwrites an
+ * article that was already migrated (or edited since). The UserNews collection is
+ * left untouched and can be dropped once the article mode is live.
+ */
+@Component
+@ConditionalOnProperty(prefix = "newz.storage", name = "migrate", havingValue = "true")
+public class UserNewsMigration implements ApplicationRunner {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	public UserNewsMigration(MongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		long users = 0;
+		long articles = 0;
+		try (CloseableIterator<UserNews> userNewsCursor = mongoTemplate.stream(new Query(), UserNews.class)) {
+			while (userNewsCursor.hasNext()) {
+				articles += migrate(userNewsCursor.next());
+				users++;
+			}
+		}
+		logger.warn("UserNews migration finished - {} users, {} articles upserted", users, articles);
+	}
+
+	/* Upserts the news of one user and returns how many articles were newly created. */
+
+	public int migrate(UserNews userNews) {
+		List<News> newsList = userNews.getNewslist();
+		if(newsList == null || newsList.isEmpty()) {
+			return 0;
+		}
+		BulkOperations bulkOps = mongoTemplate.bulkOps(BulkMode.UNORDERED, NewsArticle.class);
+		for(News news : newsList) {
+			Query byUserAndNewsId = new Query(Criteria.where("userId").is(userNews.getUserId())
+					.and("newsId").is(news.getNewsId()));
+			bulkOps.upsert(byUserAndNewsId, new Update().setOnInsert("news", news));
+		}
+		return bulkOps.execute().getUpserts().size();
+	}
+}
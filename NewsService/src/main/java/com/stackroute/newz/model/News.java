@@ -31,6 +31,19 @@ public class News {
 	private String urlToImage;
 	private Reminder reminder;
 	private NewsSource newsSource;
+	/*
+	 * version and lastModifiedAt are not accepted from the user either. The services
+	 * set version 1 when the news is saved and increment it on every update; they are
+	 * the ETag and Last-Modified of the news.
+	 */
+	private Long version;
+	@JsonSerialize(using = ToStringSerializer.class)
+	private LocalDateTime lastModifiedAt;
+	/*
+	 * Per-user sequence number of the last add or update of the news, see
+	 * NewsChangeLog. Also set by the services only.
+	 */
+	private Long changeStamp;
 	
 	public News() {
 		this.publishedAt = LocalDateTime.now();
@@ -130,11 +143,50 @@ public class News {
 		this.newsSource = newsSource;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public LocalDateTime getLastModifiedAt() {
+		return lastModifiedAt;
+	}
+
+	public void setLastModifiedAt(LocalDateTime lastModifiedAt) {
+		this.lastModifiedAt = lastModifiedAt;
+	}
+
+	public Long getChangeStamp() {
+		return changeStamp;
+	}
+
+	public void setChangeStamp(Long changeStamp) {
+		this.changeStamp = changeStamp;
+	}
+
+	/* Marks the news as saved for the first time, at version 1. */
+
+	public void initVersion() {
+		this.version = 1L;
+		this.lastModifiedAt = LocalDateTime.now();
+	}
+
+	/* Marks the news as updated; news saved before versioning start from version 0. */
+
+	public void nextVersion() {
+		this.version = version == null ? 1L : version + 1;
+		this.lastModifiedAt = LocalDateTime.now();
+	}
+
 	@Override
 	public String toString() {
 		return "News [newsId=" + newsId + ", title=" + title + ", author=" + author + ", description=" + description
 				+ ", publishedAt=" + publishedAt + ", content=" + content + ", url=" + url + ", urlToImage="
-				+ urlToImage + ", reminder=" + reminder + ", newsSource=" + newsSource + "]";
+				+ urlToImage + ", reminder=" + reminder + ", newsSource=" + newsSource + ", version=" + version
+				+ ", lastModifiedAt=" + lastModifiedAt + ", changeStamp=" + changeStamp + "]";
 	}
 	
 }
@@ -0,0 +1,86 @@
+package com.stackroute.newz.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Please note that this class is annotated with @Document annotation
+ * @Document identifies a domain object to be persisted to MongoDB.
+ *
+ * A NewsArticle holds exactly one News of one user, so that single article reads and
+ * writes are index lookups on (userId, newsId) instead of a scan of the whole
+ * UserNews.newslist array. It is only used when newz.storage.mode is "article".
+ *
+ * The articleId of a new NewsArticle is "userId:newsId", so that the change stream
+ * event of a deleted article still tells whose news it was, see NewsChangeListener.
+ * Articles saved before, and those of a news without newsId, get an ObjectId.
+ */
+@Document(collection = "newsarticle")
+@CompoundIndexes({
+	@CompoundIndex(name = "userId_newsId", def = "{'userId': 1, 'newsId': 1}", unique = true),
+	@CompoundIndex(name = "userId_publishedAt_newsId", def = "{'userId': 1, 'news.publishedAt': -1, 'newsId': -1}")
+})
+public class NewsArticle {
+
+	@Id
+	private String articleId;
+	private String userId;
+	private Integer newsId;
+	private News news;
+
+	public NewsArticle() {
+		super();
+	}
+
+	public NewsArticle(String userId, News news) {
+		super();
+		this.articleId = news.getNewsId() == null ? null : idOf(userId, news.getNewsId());
+		this.userId = userId;
+		this.newsId = news.getNewsId();
+		this.news = news;
+	}
+
+	public static String idOf(String userId, int newsId) {
+		return userId + ":" + newsId;
+	}
+
+	public String getArticleId() {
+		return articleId;
+	}
+
+	public void setArticleId(String articleId) {
+		this.articleId = articleId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public News getNews() {
+		return news;
+	}
+
+	public void setNews(News news) {
+		this.news = news;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsArticle [articleId=" + articleId + ", userId=" + userId + ", newsId=" + newsId + ", news=" + news
+				+ "]";
+	}
+}
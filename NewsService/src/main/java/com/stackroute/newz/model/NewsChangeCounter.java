@@ -0,0 +1,46 @@
+package com.stackroute.newz.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * The change sequence of one user, see NewsChangeLog. stamp is the last change stamp
+ * handed out for the user's news, and clearedStamp the one of the last deleteAllNews,
+ * before which a client has to sync from scratch.
+ */
+@Document(collection = "newschangecounter")
+public class NewsChangeCounter {
+
+	@Id
+	private String userId;
+	private long stamp;
+	private long clearedStamp;
+
+	public NewsChangeCounter() {
+		super();
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public long getStamp() {
+		return stamp;
+	}
+
+	public void setStamp(long stamp) {
+		this.stamp = stamp;
+	}
+
+	public long getClearedStamp() {
+		return clearedStamp;
+	}
+
+	public void setClearedStamp(long clearedStamp) {
+		this.clearedStamp = clearedStamp;
+	}
+}
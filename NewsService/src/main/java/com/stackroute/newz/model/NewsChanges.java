@@ -0,0 +1,65 @@
+package com.stackroute.newz.model;
+
+import java.util.List;
+
+/*
+ * The changes to a user's news since a client's checkpoint: the news added or updated
+ * since, and the newsIds deleted since. When resync is true the client's copy cannot
+ * be brought up to date from its checkpoint, so it has to drop all of its news and
+ * keep only the "changed" ones, which are then all news of the user.
+ *
+ * checkpoint is passed back as the "since" parameter of the next sync. A news changed
+ * around a checkpoint may be sent again by the next sync; applying a change twice is
+ * harmless.
+ */
+public class NewsChanges {
+
+	private List<News> changed;
+	private List<Integer> deleted;
+	private boolean resync;
+	private String checkpoint;
+
+	public NewsChanges() {
+		super();
+	}
+
+	public NewsChanges(List<News> changed, List<Integer> deleted, boolean resync, String checkpoint) {
+		super();
+		this.changed = changed;
+		this.deleted = deleted;
+		this.resync = resync;
+		this.checkpoint = checkpoint;
+	}
+
+	public List<News> getChanged() {
+		return changed;
+	}
+
+	public void setChanged(List<News> changed) {
+		this.changed = changed;
+	}
+
+	public List<Integer> getDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(List<Integer> deleted) {
+		this.deleted = deleted;
+	}
+
+	public boolean isResync() {
+		return resync;
+	}
+
+	public void setResync(boolean resync) {
+		this.resync = resync;
+	}
+
+	public String getCheckpoint() {
+		return checkpoint;
+	}
+
+	public void setCheckpoint(String checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+}
@@ -0,0 +1,51 @@
+package com.stackroute.newz.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/*
+ * Position of a client in the change sequence of a user: the last change stamp it has
+ * seen and when it was handed out. The next sync returns the changes after it. The
+ * checkpoint travels to the client as an opaque url-safe token, like NewsCursor.
+ */
+public class NewsCheckpoint {
+
+	private static final String SEPARATOR = ",";
+
+	private final long stamp;
+	private final LocalDateTime issuedAt;
+
+	public NewsCheckpoint(long stamp, LocalDateTime issuedAt) {
+		this.stamp = stamp;
+		this.issuedAt = issuedAt;
+	}
+
+	/* Throws IllegalArgumentException if the token was not produced by encode(). */
+
+	public static NewsCheckpoint decode(String token) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = raw.indexOf(SEPARATOR);
+			return new NewsCheckpoint(Long.parseLong(raw.substring(0, separator)),
+					LocalDateTime.parse(raw.substring(separator + 1)));
+		}
+		catch(IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+			throw new IllegalArgumentException("Invalid news checkpoint: " + token, ex);
+		}
+	}
+
+	public String encode() {
+		String raw = stamp + SEPARATOR + issuedAt;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public long getStamp() {
+		return stamp;
+	}
+
+	public LocalDateTime getIssuedAt() {
+		return issuedAt;
+	}
+}
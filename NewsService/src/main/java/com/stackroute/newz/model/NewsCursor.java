@@ -0,0 +1,73 @@
+package com.stackroute.newz.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Date;
+
+/*
+ * Keyset position in a user's news, ordered newest first by (publishedAt, newsId).
+ * A page continues with the news strictly after this position. The cursor travels to
+ * the client as an opaque url-safe token.
+ *
+ * New news always have a newsId, but news saved before that was enforced may not. Such
+ * a news sorts after every news of its publishedAt that has one, so a cursor on it has
+ * no newsId and continues with the news published before.
+ */
+public class NewsCursor {
+
+	private static final String SEPARATOR = ",";
+
+	private final LocalDateTime publishedAt;
+	private final Integer newsId;
+
+	public NewsCursor(LocalDateTime publishedAt, Integer newsId) {
+		this.publishedAt = publishedAt;
+		this.newsId = newsId;
+	}
+
+	public static NewsCursor after(News news) {
+		return new NewsCursor(news.getPublishedAt(), news.getNewsId());
+	}
+
+	/* Throws IllegalArgumentException if the token was not produced by encode(). */
+
+	public static NewsCursor decode(String token) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = raw.lastIndexOf(SEPARATOR);
+			String newsId = raw.substring(separator + 1);
+			return new NewsCursor(LocalDateTime.parse(raw.substring(0, separator)),
+					newsId.isEmpty() ? null : Integer.valueOf(newsId));
+		}
+		catch(IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+			throw new IllegalArgumentException("Invalid news cursor: " + token, ex);
+		}
+	}
+
+	public String encode() {
+		String raw = publishedAt + SEPARATOR + (newsId == null ? "" : newsId);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public LocalDateTime getPublishedAt() {
+		return publishedAt;
+	}
+
+	/* publishedAt as stored by MongoDB, for queries that bypass the mapping converter. */
+
+	public Date getPublishedAtDate() {
+		return Date.from(publishedAt.atZone(ZoneId.systemDefault()).toInstant());
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsCursor [publishedAt=" + publishedAt + ", newsId=" + newsId + "]";
+	}
+}
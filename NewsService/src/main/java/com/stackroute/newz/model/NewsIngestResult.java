@@ -0,0 +1,66 @@
+package com.stackroute.newz.model;
+
+/*
+ * Outcome of one news of a bulk ingest request, reported in request order.
+ */
+public class NewsIngestResult {
+
+	public enum Status {
+		/* The news was saved. */
+		CREATED,
+		/* The user already has a news with this newsId. */
+		CONFLICT,
+		/* The news has no author or no newsId. */
+		INVALID,
+		/* The database rejected the write for another reason. */
+		FAILED
+	}
+
+	private String userId;
+	private Integer newsId;
+	private Status status;
+
+	public NewsIngestResult() {
+		super();
+	}
+
+	public NewsIngestResult(String userId, Integer newsId, Status status) {
+		super();
+		this.userId = userId;
+		this.newsId = newsId;
+		this.status = status;
+	}
+
+	public static NewsIngestResult of(News news, Status status) {
+		return new NewsIngestResult(news.getAuthor(), news.getNewsId(), status);
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsIngestResult [userId=" + userId + ", newsId=" + newsId + ", status=" + status + "]";
+	}
+}
@@ -0,0 +1,64 @@
+package com.stackroute.newz.model;
+
+import java.util.List;
+
+/*
+ * One page of a user's news, newest first. nextCursor is passed back as the "after"
+ * parameter to fetch the following page and is null on the last page.
+ */
+public class NewsPage {
+
+	/* Upper bound for the page size a client may request. */
+	public static final int MAX_PAGE_SIZE = 100;
+
+	private List<News> news;
+	private String nextCursor;
+
+	public NewsPage() {
+		super();
+	}
+
+	public NewsPage(List<News> news, String nextCursor) {
+		super();
+		this.news = news;
+		this.nextCursor = nextCursor;
+	}
+
+	/*
+	 * Builds a page from a fetch of up to pageSize + 1 news; the extra element only
+	 * tells whether another page follows and is not returned.
+	 */
+
+	public static NewsPage of(List<News> fetched, int pageSize) {
+		if(fetched.size() <= pageSize) {
+			return new NewsPage(fetched, null);
+		}
+		List<News> page = fetched.subList(0, pageSize);
+		return new NewsPage(page, NewsCursor.after(page.get(pageSize - 1)).encode());
+	}
+
+	public static int clampPageSize(int pageSize) {
+		return Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+	}
+
+	public List<News> getNews() {
+		return news;
+	}
+
+	public void setNews(List<News> news) {
+		this.news = news;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsPage [news=" + news + ", nextCursor=" + nextCursor + "]";
+	}
+}
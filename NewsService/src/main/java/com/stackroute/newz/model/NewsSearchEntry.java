@@ -0,0 +1,95 @@
+package com.stackroute.newz.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
+
+/*
+ * The searchable text of one News in the full-text search collection, in both storage
+ * modes: its title, description and content. The id is userId:newsId, and searches
+ * return the newsIds of the matches, whose news are then read from the collection of
+ * the storage mode. The text index on (userId, title, description, content) is
+ * created by NewsSearchIndex.
+ */
+@Document(collection = "newssearch")
+public class NewsSearchEntry {
+
+	@Id
+	private String id;
+	private String userId;
+	private Integer newsId;
+	private String title;
+	private String description;
+	private String content;
+	@TextScore
+	private Float score;
+
+	public NewsSearchEntry() {
+		super();
+	}
+
+	public static String idOf(String userId, int newsId) {
+		return userId + ":" + newsId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	public void setContent(String content) {
+		this.content = content;
+	}
+
+	public Float getScore() {
+		return score;
+	}
+
+	public void setScore(Float score) {
+		this.score = score;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsSearchEntry [id=" + id + ", userId=" + userId + ", newsId=" + newsId + ", score=" + score + "]";
+	}
+}
@@ -0,0 +1,69 @@
+package com.stackroute.newz.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * One page of full-text search results, best match first. nextPage is passed back as
+ * the "page" parameter to fetch the following page and is null on the last page.
+ */
+public class NewsSearchPage {
+
+	private List<News> news;
+	private Integer nextPage;
+
+	public NewsSearchPage() {
+		super();
+	}
+
+	public NewsSearchPage(List<News> news, Integer nextPage) {
+		super();
+		this.news = news;
+		this.nextPage = nextPage;
+	}
+
+	/*
+	 * Builds page number "page" from the newsIds of up to pageSize + 1 matches, best
+	 * match first, and the news read for them. The extra match only tells whether
+	 * another page follows and is not returned, nor are matches whose news was
+	 * deleted in between.
+	 */
+
+	public static NewsSearchPage of(List<Integer> matchedNewsIds, Collection<News> found, int page, int pageSize) {
+		Map<Integer, News> foundById = new HashMap<Integer, News>();
+		for(News news : found) {
+			foundById.put(news.getNewsId(), news);
+		}
+		List<News> news = new ArrayList<News>(Math.min(pageSize, matchedNewsIds.size()));
+		for(Integer newsId : matchedNewsIds.subList(0, Math.min(pageSize, matchedNewsIds.size()))) {
+			if(foundById.containsKey(newsId)) {
+				news.add(foundById.get(newsId));
+			}
+		}
+		return new NewsSearchPage(news, matchedNewsIds.size() > pageSize ? page + 1 : null);
+	}
+
+	public List<News> getNews() {
+		return news;
+	}
+
+	public void setNews(List<News> news) {
+		this.news = news;
+	}
+
+	public Integer getNextPage() {
+		return nextPage;
+	}
+
+	public void setNextPage(Integer nextPage) {
+		this.nextPage = nextPage;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsSearchPage [news=" + news + ", nextPage=" + nextPage + "]";
+	}
+}
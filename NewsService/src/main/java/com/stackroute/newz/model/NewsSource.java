@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 
@@ -32,6 +33,13 @@ public class NewsSource {
 	private String newsSourceCreatedBy;
 	@JsonSerialize(using = ToStringSerializer.class)
 	private LocalDateTime newsSourceCreationDate;
+
+	/*
+	 * The version NewsSourceService keeps of the news source, part of the ETags of the
+	 * news it is resolved into. reference marks a reference, see reference(Integer).
+	 */
+	private Long version;
+	private Boolean reference;
 	
 	public NewsSource() {
 		super();
@@ -47,6 +55,24 @@ public class NewsSource {
 		this.newsSourceCreatedBy = newsSourceCreatedBy;
 	}
 
+	/*
+	 * A reference to a news source, holding only its newsSourceId and the reference
+	 * marker. News keep these instead of the full news source in newz.news-source.mode
+	 * "reference", see NewsSourceResolver.
+	 */
+	public static NewsSource reference(Integer newsSourceId) {
+		NewsSource reference = new NewsSource();
+		reference.newsSourceId = newsSourceId;
+		reference.newsSourceCreationDate = null;
+		reference.reference = Boolean.TRUE;
+		return reference;
+	}
+
+	@JsonIgnore
+	public boolean isReference() {
+		return Boolean.TRUE.equals(reference);
+	}
+
 	public Integer getNewsSourceId() {
 		return newsSourceId;
 	}
@@ -87,11 +113,19 @@ public class NewsSource {
 		this.newsSourceCreationDate = LocalDateTime.now();
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	@Override
 	public String toString() {
 		return "NewsSource [newsSourceId=" + newsSourceId + ", newsSourceName=" + newsSourceName + ", newsSourceDesc="
 				+ newsSourceDesc + ", newsSourceCreatedBy=" + newsSourceCreatedBy + ", newsSourceCreationDate="
-				+ newsSourceCreationDate + "]";
+				+ newsSourceCreationDate + ", version=" + version + "]";
 	}
 	
 }
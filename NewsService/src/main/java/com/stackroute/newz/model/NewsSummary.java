@@ -0,0 +1,121 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+/*
+ * The fields of a news shown by list screens, returned by the "view=summary" listing
+ * instead of the full News. The news is read with a field projection of just these
+ * fields, see SUMMARY_FIELDS, so description, content, urls and reminder are neither
+ * sent by MongoDB nor to the client.
+ */
+public class NewsSummary {
+
+	/* Paths of the projected News fields, relative to the News document. */
+	public static final String[] SUMMARY_FIELDS = { "_id", "title", "author", "publishedAt",
+			"newsSource._id", "newsSource.newsSourceName", "version" };
+
+	private Integer newsId;
+	private String title;
+	private String author;
+	@JsonSerialize(using = ToStringSerializer.class)
+	private LocalDateTime publishedAt;
+	private Integer newsSourceId;
+	private String newsSourceName;
+	private Long version;
+
+	public NewsSummary() {
+		super();
+	}
+
+	/* Summary of a news read with the SUMMARY_FIELDS projection, or in full. */
+
+	public static NewsSummary of(News news) {
+		NewsSummary summary = new NewsSummary();
+		summary.newsId = news.getNewsId();
+		summary.title = news.getTitle();
+		summary.author = news.getAuthor();
+		summary.publishedAt = news.getPublishedAt();
+		if(news.getNewsSource() != null) {
+			summary.newsSourceId = news.getNewsSource().getNewsSourceId();
+			summary.newsSourceName = news.getNewsSource().getNewsSourceName();
+		}
+		summary.version = news.getVersion();
+		return summary;
+	}
+
+	public static List<NewsSummary> ofAll(List<News> newsList) {
+		List<NewsSummary> summaries = new ArrayList<NewsSummary>(newsList.size());
+		for(News news : newsList) {
+			summaries.add(of(news));
+		}
+		return summaries;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public void setAuthor(String author) {
+		this.author = author;
+	}
+
+	public LocalDateTime getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(LocalDateTime publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	public Integer getNewsSourceId() {
+		return newsSourceId;
+	}
+
+	public void setNewsSourceId(Integer newsSourceId) {
+		this.newsSourceId = newsSourceId;
+	}
+
+	public String getNewsSourceName() {
+		return newsSourceName;
+	}
+
+	public void setNewsSourceName(String newsSourceName) {
+		this.newsSourceName = newsSourceName;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsSummary [newsId=" + newsId + ", title=" + title + ", author=" + author + ", publishedAt="
+				+ publishedAt + ", newsSourceId=" + newsSourceId + ", newsSourceName=" + newsSourceName
+				+ ", version=" + version + "]";
+	}
+}
@@ -0,0 +1,71 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Marker of a deleted News, so that GET /api/v1/news/{userId}/changes can tell a client
+ * which of its news are gone. The id is userId:newsId; deleting a news again after it
+ * was re-added replaces the marker. Tombstones expire newz.sync.tombstone-ttl-seconds
+ * after deletedAt, see NewsChangeLog.
+ */
+@Document(collection = "newstombstone")
+public class NewsTombstone {
+
+	@Id
+	private String id;
+	private String userId;
+	private Integer newsId;
+	private Long changeStamp;
+	private LocalDateTime deletedAt;
+
+	public NewsTombstone() {
+		super();
+	}
+
+	public static String idOf(String userId, int newsId) {
+		return userId + ":" + newsId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public Long getChangeStamp() {
+		return changeStamp;
+	}
+
+	public void setChangeStamp(Long changeStamp) {
+		this.changeStamp = changeStamp;
+	}
+
+	public LocalDateTime getDeletedAt() {
+		return deletedAt;
+	}
+
+	public void setDeletedAt(LocalDateTime deletedAt) {
+		this.deletedAt = deletedAt;
+	}
+}
@@ -31,6 +31,7 @@ public class Reminder {
 	public Reminder(String reminderId, LocalDateTime schedule) {
 		super();
 		this.reminderId = reminderId;
+		this.schedule = schedule;
 	}
 
 	public String getReminderId() {
@@ -0,0 +1,111 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * A pending Reminder of one News, kept apart from the UserNews and NewsArticle documents
+ * so that due reminders are found with a range scan of the availableAt index instead
+ * of a scan of every news. The id is userId:newsId, so a news has at most one pending
+ * reminder.
+ *
+ * availableAt is the due time while the reminder waits, and the end of the lease while
+ * a scheduler instance (claimedBy) is delivering it.
+ */
+@Document(collection = "scheduledreminder")
+public class ScheduledReminder {
+
+	@Id
+	private String id;
+	@Indexed
+	private String userId;
+	private Integer newsId;
+	private String title;
+	private LocalDateTime dueAt;
+	@Indexed
+	private LocalDateTime availableAt;
+	private String claimedBy;
+	private int attempts;
+
+	public ScheduledReminder() {
+		super();
+	}
+
+	public static String idOf(String userId, int newsId) {
+		return userId + ":" + newsId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Integer getNewsId() {
+		return newsId;
+	}
+
+	public void setNewsId(Integer newsId) {
+		this.newsId = newsId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public LocalDateTime getDueAt() {
+		return dueAt;
+	}
+
+	public void setDueAt(LocalDateTime dueAt) {
+		this.dueAt = dueAt;
+	}
+
+	public LocalDateTime getAvailableAt() {
+		return availableAt;
+	}
+
+	public void setAvailableAt(LocalDateTime availableAt) {
+		this.availableAt = availableAt;
+	}
+
+	public String getClaimedBy() {
+		return claimedBy;
+	}
+
+	public void setClaimedBy(String claimedBy) {
+		this.claimedBy = claimedBy;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	@Override
+	public String toString() {
+		return "ScheduledReminder [id=" + id + ", userId=" + userId + ", newsId=" + newsId + ", title=" + title
+				+ ", dueAt=" + dueAt + ", availableAt=" + availableAt + ", claimedBy=" + claimedBy + ", attempts="
+				+ attempts + "]";
+	}
+}
@@ -0,0 +1,25 @@
+package com.stackroute.newz.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.newz.model.NewsArticle;
+
+/*
+* This class is implementing the MongoRepository interface for NewsArticle.
+* All the finders below are served by the (userId, newsId) compound index.
+* */
+@Repository
+public interface NewsArticleRepository extends MongoRepository<NewsArticle, String> {
+
+	Optional<NewsArticle> findByUserIdAndNewsId(String userId, Integer newsId);
+
+	List<NewsArticle> findAllByUserId(String userId);
+
+	long deleteByUserIdAndNewsId(String userId, Integer newsId);
+
+	long deleteAllByUserId(String userId);
+}
@@ -0,0 +1,15 @@
+package com.stackroute.newz.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.newz.model.NewsSource;
+
+/*
+ * Read access to the news sources saved by NewsSourceService in the same database,
+ * used to resolve the news source references of news, see NewsSourceResolver.
+ */
+@Repository
+public interface NewsSourceRepository extends MongoRepository<NewsSource, Integer> {
+
+}
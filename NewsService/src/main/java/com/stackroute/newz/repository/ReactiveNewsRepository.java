@@ -0,0 +1,14 @@
+package com.stackroute.newz.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.newz.model.UserNews;
+
+/*
+* Non-blocking counterpart of NewsRepository, used by the "reactive" profile.
+*/
+@Repository
+public interface ReactiveNewsRepository extends ReactiveMongoRepository<UserNews, String> {
+
+}
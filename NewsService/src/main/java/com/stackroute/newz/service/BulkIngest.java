@@ -0,0 +1,129 @@
+package com.stackroute.newz.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+
+import com.mongodb.BulkWriteError;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsIngestResult.Status;
+
+/*
+ * Helpers shared by the addAllNews implementations of both storage modes.
+ */
+final class BulkIngest {
+
+	static final int DUPLICATE_KEY = 11000;
+
+	private BulkIngest() {
+	}
+
+	/*
+	 * Versions and stamps the news of one bulk write right before it is sent. Stamping
+	 * the whole request up front would let a sync running during a long ingest hand
+	 * out a checkpoint past the stamps of batches written more than the grace period
+	 * later, which that client would then never receive, see NewsChangeLog.
+	 */
+
+	static void stamp(List<News> batch, NewsChangeLog changeLog) {
+		batch.forEach(News::initVersion);
+		changeLog.stampAll(batch);
+	}
+
+	/*
+	 * Groups the positions of the news in newsList by author, in order of first
+	 * appearance. News without author or newsId are marked INVALID and repeated
+	 * (author, newsId) pairs within the request are marked CONFLICT in results; they
+	 * are left out of the groups.
+	 */
+
+	static Map<String, List<Integer>> groupByUser(List<News> newsList, NewsIngestResult[] results) {
+		Map<String, List<Integer>> positionsByUser = new LinkedHashMap<String, List<Integer>>();
+		Map<String, Set<Integer>> newsIdsByUser = new HashMap<String, Set<Integer>>();
+		for(int position = 0; position < newsList.size(); position++) {
+			News news = newsList.get(position);
+			if(news.getAuthor() == null || news.getNewsId() == null) {
+				results[position] = NewsIngestResult.of(news, Status.INVALID);
+			}
+			else if(!newsIdsByUser.computeIfAbsent(news.getAuthor(), userId -> new HashSet<Integer>()).add(news.getNewsId())) {
+				results[position] = NewsIngestResult.of(news, Status.CONFLICT);
+			}
+			else {
+				positionsByUser.computeIfAbsent(news.getAuthor(), userId -> new ArrayList<Integer>()).add(position);
+			}
+		}
+		return positionsByUser;
+	}
+
+	/*
+	 * Splits the groups of groupByUser into bulks of at most batchSize news, keyed by
+	 * author. The news of an author with more than batchSize news are cut into pieces
+	 * of batchSize news; such a piece fills its bulk, so a bulk never holds two pieces
+	 * of the same author.
+	 */
+
+	static List<Map<String, List<Integer>>> bulksOf(Map<String, List<Integer>> positionsByUser, int batchSize) {
+		List<Map<String, List<Integer>>> bulks = new ArrayList<Map<String, List<Integer>>>();
+		Map<String, List<Integer>> bulk = new LinkedHashMap<String, List<Integer>>();
+		int bulkSize = 0;
+		for(Map.Entry<String, List<Integer>> user : positionsByUser.entrySet()) {
+			List<Integer> positions = user.getValue();
+			for(int from = 0; from < positions.size(); from += batchSize) {
+				List<Integer> piece = positions.subList(from, Math.min(from + batchSize, positions.size()));
+				if(bulkSize + piece.size() > batchSize) {
+					bulks.add(bulk);
+					bulk = new LinkedHashMap<String, List<Integer>>();
+					bulkSize = 0;
+				}
+				bulk.put(user.getKey(), piece);
+				bulkSize += piece.size();
+			}
+		}
+		if(!bulk.isEmpty()) {
+			bulks.add(bulk);
+		}
+		return bulks;
+	}
+
+	/* Executes the bulk and returns the error code of every failed operation, by operation index. */
+
+	static Map<Integer, Integer> execute(BulkOperations bulkOps) {
+		Map<Integer, Integer> errorCodes = new HashMap<Integer, Integer>();
+		try {
+			bulkOps.execute();
+		}
+		catch(BulkOperationException ex) {
+			for(BulkWriteError error : ex.getErrors()) {
+				errorCodes.put(error.getIndex(), error.getCode());
+			}
+		}
+		return errorCodes;
+	}
+
+	/* The news of newsList whose result is CREATED. */
+
+	static List<News> created(List<News> newsList, NewsIngestResult[] results) {
+		List<News> created = new ArrayList<News>();
+		for(int position = 0; position < results.length; position++) {
+			if(results[position].getStatus() == Status.CREATED) {
+				created.add(newsList.get(position));
+			}
+		}
+		return created;
+	}
+
+	static Status statusOf(Integer errorCode) {
+		if(errorCode == null) {
+			return Status.CREATED;
+		}
+		return errorCode == DUPLICATE_KEY ? Status.CONFLICT : Status.FAILED;
+	}
+}
@@ -0,0 +1,28 @@
+package com.stackroute.newz.service;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.ScheduledReminder;
+
+/* ReminderNotifier that writes each reminder to the application log. */
+@Component
+@ConditionalOnProperty(prefix = "newz.reminders", name = "notifier", havingValue = "log", matchIfMissing = true)
+public class LogReminderNotifier implements ReminderNotifier {
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Override
+	public List<ScheduledReminder> notify(List<ScheduledReminder> reminders) {
+		for(ScheduledReminder reminder : reminders) {
+			logger.info("Reminder for user ID: {} news ID: {} \"{}\" due at {}", reminder.getUserId(),
+					reminder.getNewsId(), reminder.getTitle(), reminder.getDueAt());
+		}
+		return Collections.emptyList();
+	}
+}
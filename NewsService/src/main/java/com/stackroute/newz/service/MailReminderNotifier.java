@@ -0,0 +1,82 @@
+package com.stackroute.newz.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.model.ScheduledReminder;
+
+/*
+ * ReminderNotifier that mails each reminder through the SMTP server of spring.mail.*.
+ * A batch is sent over one SMTP connection. The recipient is newz.reminders.mail.to
+ * with %s replaced by the userId.
+ */
+@Component
+@ConditionalOnProperty(prefix = "newz.reminders", name = "notifier", havingValue = "mail")
+public class MailReminderNotifier implements ReminderNotifier {
+
+	@Value("${newz.reminders.mail.from:reminders@newz.local}")
+	private String from = "reminders@newz.local";
+
+	@Value("${newz.reminders.mail.to:%s@newz.local}")
+	private String to = "%s@newz.local";
+
+	private JavaMailSender mailSender;
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	public MailReminderNotifier(JavaMailSender mailSender) {
+		this.mailSender = mailSender;
+	}
+
+	@Override
+	public List<ScheduledReminder> notify(List<ScheduledReminder> reminders) {
+		SimpleMailMessage[] messages = new SimpleMailMessage[reminders.size()];
+		for(int index = 0; index < messages.length; index++) {
+			messages[index] = messageOf(reminders.get(index));
+		}
+		try {
+			mailSender.send(messages);
+			return new ArrayList<ScheduledReminder>();
+		} catch (MailSendException e) {
+			Map<Object, Exception> failedMessages = e.getFailedMessages();
+			if(failedMessages.isEmpty()) {
+				logger.warn("Reminder mails not sent: {}", e.getMessage());
+				return reminders;
+			}
+			List<ScheduledReminder> failed = new ArrayList<ScheduledReminder>();
+			for(int index = 0; index < messages.length; index++) {
+				if(failedMessages.containsKey(messages[index])) {
+					failed.add(reminders.get(index));
+				}
+			}
+			logger.warn("{} of {} reminder mails not sent: {}", failed.size(), messages.length, e.getMessage());
+			return failed;
+		} catch (MailException e) {
+			logger.warn("Reminder mails not sent: {}", e.getMessage());
+			return reminders;
+		}
+	}
+
+	private SimpleMailMessage messageOf(ScheduledReminder reminder) {
+		SimpleMailMessage message = new SimpleMailMessage();
+		message.setFrom(from);
+		message.setTo(String.format(to, reminder.getUserId()));
+		message.setSubject("Reminder: " + reminder.getTitle());
+		message.setText("This is your reminder for \"" + reminder.getTitle() + "\" (news ID " + reminder.getNewsId()
+				+ "), scheduled for " + reminder.getDueAt() + ".");
+		return message;
+	}
+}
@@ -0,0 +1,380 @@
+package com.stackroute.newz.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.StreamUtils;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.NewsSummary;
+import com.stackroute.newz.repository.NewsArticleRepository;
+import com.stackroute.newz.util.SingleFlight;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsVersionConflictException;
+
+/*
+* NewsService implementation for the "article" storage mode, where every News is kept
+* in its own NewsArticle document indexed on (userId, newsId). Enable it with
+* newz.storage.mode=article; NewsServiceImpl stays the default.
+* */
+
+@Service
+@ConditionalOnProperty(prefix = "newz.storage", name = "mode", havingValue = "article")
+public class NewsArticleServiceImpl implements NewsService {
+
+	/* Served by the (userId, news.publishedAt, newsId) index of NewsArticle. */
+	private static final Sort NEWEST_FIRST = Sort.by(Direction.DESC, "news.publishedAt", "newsId");
+	private static final int STREAM_BATCH_SIZE = 100;
+
+	@Value("${newz.bulk.batch-size:1000}")
+	private int bulkBatchSize = 1000;
+
+	@Value("${newz.write.max-attempts:3}")
+	private int maxWriteAttempts = 3;
+
+	private NewsArticleRepository articleRepo;
+	private MongoOperations mongoOperations;
+	private NewsCacheInvalidator cacheInvalidator;
+	private ReminderScheduler reminderScheduler;
+	private NewsSearchIndex searchIndex;
+	private NewsSourceResolver newsSources;
+	private NewsChangeLog changeLog;
+
+	/* Longest wait of a read for the same read of another request, see SingleFlight. */
+	@Value("${newz.singleflight.max-wait-ms:2000}")
+	private long readMaxWaitMillis = 2000;
+
+	private final SingleFlight<String, List<News>> userNewsReads = new SingleFlight<String, List<News>>("userNews");
+
+	@Autowired
+	public NewsArticleServiceImpl(NewsArticleRepository articleRepository, MongoOperations mongoOperations,
+			NewsCacheInvalidator cacheInvalidator, ReminderScheduler reminderScheduler, NewsSearchIndex searchIndex,
+			NewsSourceResolver newsSources, NewsChangeLog changeLog) {
+		this.articleRepo = articleRepository;
+		this.mongoOperations = mongoOperations;
+		this.cacheInvalidator = cacheInvalidator;
+		this.reminderScheduler = reminderScheduler;
+		this.searchIndex = searchIndex;
+		this.newsSources = newsSources;
+		this.changeLog = changeLog;
+	}
+
+	/*
+	 * This method should be used to save a new news. The unique (userId, newsId)
+	 * index rejects duplicates, so no existence check is needed up front.
+	 */
+
+	@Override
+	public boolean addNews(News news) {
+		news.initVersion();
+		changeLog.stamp(news.getAuthor(), news);
+		newsSources.reference(news);
+		try {
+			NewsArticle articleAdded = articleRepo.insert(new NewsArticle(news.getAuthor(), news));
+			reminderScheduler.scheduleAdded(news);
+			searchIndex.index(news.getAuthor(), news);
+			newsSources.resolve(news);
+			return articleAdded != null;
+		}
+		catch(DuplicateKeyException ex) {
+			return false;
+		}
+	}
+
+	/*
+	 * This method should be used to delete an existing news, only while it is at the
+	 * expected version when one is given.
+	 */
+
+	@Override
+	public boolean deleteNews(String userId, int newsId, Long expectedVersion) {
+		changeLog.deleting(userId, newsId);
+		boolean isNewsDeleted = expectedVersion == null ? articleRepo.deleteByUserIdAndNewsId(userId, newsId) > 0
+				: mongoOperations.remove(articleAtVersion(Criteria.where("userId").is(userId).and("newsId").is(newsId), expectedVersion),
+						NewsArticle.class).getDeletedCount() > 0;
+		if(!isNewsDeleted && expectedVersion != null && articleRepo.findByUserIdAndNewsId(userId, newsId).isPresent()) {
+			throw conflict(userId, newsId, expectedVersion);
+		}
+		if(isNewsDeleted) {
+			reminderScheduler.cancel(userId, newsId);
+			searchIndex.remove(userId, newsId);
+			return true;
+		}
+		return false;
+	}
+
+	/* This method should be used to delete all news for a  specific userId. */
+
+	@Override
+	public boolean deleteAllNews(String userId) throws NewsNotFoundException {
+		if(articleRepo.deleteAllByUserId(userId) > 0) {
+			cacheInvalidator.evictAllNewsOf(userId);
+			reminderScheduler.cancelAll(userId);
+			searchIndex.removeAll(userId);
+			changeLog.deletedAll(userId);
+			return true;
+		}
+		throw new NewsNotFoundException("Can not Delete the News. The news with user ID: "+userId+ " does not exists in the database.");
+	}
+
+	/*
+	 * This method should be used to update a existing news. The article is read,
+	 * changed and replaced only while its news is still at the version read, so
+	 * concurrent updates cannot overwrite each other. Without an expected version a
+	 * lost race is retried on a fresh read, up to newz.write.max-attempts times; with
+	 * one it is a conflict.
+	 */
+
+	@Override
+	public News updateNews(News news, int newsId, String userId, Long expectedVersion) throws NewsNotFoundException {
+		for(int attempt = 1; ; attempt++) {
+			NewsArticle article = articleRepo.findByUserIdAndNewsId(userId, newsId)
+					.orElseThrow(() -> new NewsNotFoundException("Can not Update the News. The news with user ID: "+userId+ " and news ID: "+newsId+" does not exists in the database."));
+			News newsWithId = article.getNews();
+			long readVersion = newsWithId.getVersion() == null ? 0 : newsWithId.getVersion();
+			if(expectedVersion != null && expectedVersion != readVersion) {
+				throw conflict(userId, newsId, expectedVersion);
+			}
+			newsWithId.setAuthor(news.getAuthor());
+			newsWithId.setContent(news.getContent());
+			newsWithId.setDescription(news.getDescription());
+			newsWithId.setTitle(news.getTitle());
+			newsWithId.setUrl(news.getUrl());
+			newsWithId.setUrlToImage(news.getUrlToImage());
+			newsWithId.setReminder(news.getReminder());
+			newsWithId.nextVersion();
+			changeLog.stamp(userId, newsWithId);
+			if(mongoOperations.findAndReplace(articleAtVersion(Criteria.where("_id").is(article.getArticleId()), readVersion), article) != null) {
+				reminderScheduler.schedule(userId, newsWithId);
+				searchIndex.index(userId, newsWithId);
+				newsSources.resolve(newsWithId);
+				return newsWithId;
+			}
+			if(expectedVersion != null || attempt >= maxWriteAttempts) {
+				throw conflict(userId, newsId, readVersion);
+			}
+		}
+	}
+
+	/*
+	 * This method should be used to get a news by newsId created by specific user
+	 */
+
+	@Override
+	public News getNewsByNewsId(String userId, int newsId) throws NewsNotFoundException {
+		News news = articleRepo.findByUserIdAndNewsId(userId, newsId)
+				.map(NewsArticle::getNews)
+				.orElseThrow(() -> new NewsNotFoundException("Can not Retrieve the News. The news with user ID: "+userId+ " and news  ID: "+newsId +" does not exists in the database."));
+		newsSources.resolve(news);
+		return news;
+	}
+
+	/*
+	 * This method should be used to get all news for a specific userId. Concurrent
+	 * calls for the same user, e.g. after its cache entry expired, share one read.
+	 */
+
+	@Override
+	public List<News> getAllNewsByUserId(String userId) {
+		return userNewsReads.load(userId, readMaxWaitMillis, () -> {
+			List<NewsArticle> articles = articleRepo.findAllByUserId(userId);
+			if(articles.isEmpty()) {
+				return null;
+			}
+			List<News> newsList = new ArrayList<News>(articles.size());
+			for(NewsArticle article : articles) {
+				newsList.add(article.getNews());
+			}
+			newsSources.resolveAll(newsList);
+			return newsList;
+		});
+	}
+
+	/*
+	 * This method should be used to get the summaries of all news for a specific
+	 * userId, projected to the summary fields of the embedded news.
+	 */
+
+	@Override
+	public List<NewsSummary> getNewsSummariesByUserId(String userId) {
+		Query query = new Query(Criteria.where("userId").is(userId));
+		for(String field : NewsSummary.SUMMARY_FIELDS) {
+			query.fields().include("news." + field);
+		}
+		List<NewsArticle> articles = mongoOperations.find(query, NewsArticle.class);
+		if(articles.isEmpty()) {
+			return null;
+		}
+		List<News> newsList = new ArrayList<News>(articles.size());
+		for(NewsArticle article : articles) {
+			newsList.add(article.getNews());
+		}
+		newsSources.resolveAll(newsList);
+		return NewsSummary.ofAll(newsList);
+	}
+
+	/*
+	 * This method should be used to get the news of a specific userId changed since a
+	 * checkpoint, see NewsChangeLog.
+	 */
+
+	@Override
+	public NewsChanges getNewsChangesByUserId(String userId, NewsCheckpoint since) {
+		NewsChangeLog.Sync sync = changeLog.begin(userId, since);
+		Criteria criteria = Criteria.where("userId").is(userId);
+		if(!sync.isResync()) {
+			criteria.andOperator(sync.changedNews("news."));
+		}
+		List<News> changed = new ArrayList<News>();
+		for(NewsArticle article : mongoOperations.find(new Query(criteria), NewsArticle.class)) {
+			changed.add(article.getNews());
+		}
+		newsSources.resolveAll(changed);
+		return changeLog.changes(sync, changed, newsIds -> storedNewsIds(userId, newsIds));
+	}
+
+	/*
+	 * This method should be used to get one page of news for a specific userId,
+	 * as a keyset query on the (userId, news.publishedAt, newsId) index.
+	 */
+
+	@Override
+	public NewsPage getNewsPageByUserId(String userId, NewsCursor after, int pageSize) {
+		Criteria criteria = Criteria.where("userId").is(userId);
+		if(after != null && after.getNewsId() == null) {
+			criteria.and("news.publishedAt").lt(after.getPublishedAt());
+		}
+		else if(after != null) {
+			criteria.orOperator(
+					Criteria.where("news.publishedAt").lt(after.getPublishedAt()),
+					Criteria.where("news.publishedAt").is(after.getPublishedAt()).and("newsId").lt(after.getNewsId()));
+		}
+		Query query = new Query(criteria).with(NEWEST_FIRST).limit(pageSize + 1);
+		List<News> fetched = new ArrayList<News>(pageSize + 1);
+		for(NewsArticle article : mongoOperations.find(query, NewsArticle.class)) {
+			fetched.add(article.getNews());
+		}
+		newsSources.resolveAll(fetched);
+		return NewsPage.of(fetched, pageSize);
+	}
+
+	/*
+	 * This method should be used to stream all news for a specific userId, read
+	 * from a database cursor in batches of STREAM_BATCH_SIZE, and their news source
+	 * references resolved one by one from the newsSource cache.
+	 */
+
+	@Override
+	public Stream<News> streamAllNewsByUserId(String userId) {
+		Query query = new Query(Criteria.where("userId").is(userId)).with(NEWEST_FIRST)
+				.cursorBatchSize(STREAM_BATCH_SIZE);
+		return StreamUtils.createStreamFromIterator(mongoOperations.stream(query, NewsArticle.class))
+				.map(NewsArticle::getNews)
+				.peek(newsSources::resolve);
+	}
+
+	/*
+	 * This method should be used to save many news at once. The news are inserted
+	 * user by user with unordered bulk inserts; the unique (userId, newsId) index
+	 * reports existing news as duplicate keys, which become CONFLICT results.
+	 */
+
+	@Override
+	public List<NewsIngestResult> addAllNews(List<News> newsList) {
+		newsSources.referenceAll(newsList);
+		NewsIngestResult[] results = new NewsIngestResult[newsList.size()];
+		Map<String, List<Integer>> positionsByUser = BulkIngest.groupByUser(newsList, results);
+		List<Integer> positions = new ArrayList<Integer>(newsList.size());
+		for(List<Integer> userPositions : positionsByUser.values()) {
+			positions.addAll(userPositions);
+		}
+		for(int from = 0; from < positions.size(); from += bulkBatchSize) {
+			List<Integer> batch = positions.subList(from, Math.min(from + bulkBatchSize, positions.size()));
+			List<News> batchNews = new ArrayList<News>(batch.size());
+			for(Integer position : batch) {
+				batchNews.add(newsList.get(position));
+			}
+			BulkIngest.stamp(batchNews, changeLog);
+			BulkOperations bulkOps = mongoOperations.bulkOps(BulkMode.UNORDERED, NewsArticle.class);
+			for(News news : batchNews) {
+				bulkOps.insert(new NewsArticle(news.getAuthor(), news));
+			}
+			Map<Integer, Integer> errorCodes = BulkIngest.execute(bulkOps);
+			for(int index = 0; index < batch.size(); index++) {
+				Integer position = batch.get(index);
+				results[position] = NewsIngestResult.of(newsList.get(position), BulkIngest.statusOf(errorCodes.get(index)));
+			}
+		}
+		for(String userId : positionsByUser.keySet()) {
+			cacheInvalidator.evictUser(userId);
+		}
+		List<News> created = BulkIngest.created(newsList, results);
+		reminderScheduler.scheduleAll(created);
+		searchIndex.indexAll(created);
+		return Arrays.asList(results);
+	}
+
+	/*
+	 * This method should be used to search the news of a specific userId, see
+	 * NewsSearchIndex. The matching articles are read on the (userId, newsId) index.
+	 */
+
+	@Override
+	public NewsSearchPage searchNews(String userId, String text, int page, int pageSize) {
+		List<Integer> matchedNewsIds = searchIndex.search(userId, text, page, pageSize);
+		List<News> found = new ArrayList<News>(matchedNewsIds.size());
+		if(!matchedNewsIds.isEmpty()) {
+			for(NewsArticle article : mongoOperations.find(new Query(Criteria.where("userId").is(userId).and("newsId").in(matchedNewsIds)),
+					NewsArticle.class)) {
+				found.add(article.getNews());
+			}
+		}
+		NewsSearchPage result = NewsSearchPage.of(matchedNewsIds, found, page, pageSize);
+		newsSources.resolveAll(result.getNews());
+		return result;
+	}
+
+	/* The newsIds among the given ones that the user still has articles of, on the (userId, newsId) index. */
+
+	private List<Integer> storedNewsIds(String userId, List<Integer> newsIds) {
+		Query articles = new Query(Criteria.where("userId").is(userId).and("newsId").in(newsIds));
+		articles.fields().include("newsId");
+		List<Integer> stored = new ArrayList<Integer>(newsIds.size());
+		for(NewsArticle article : mongoOperations.find(articles, NewsArticle.class)) {
+			stored.add(article.getNewsId());
+		}
+		return stored;
+	}
+
+	/* Adds the condition that the news of the article is at the version; news saved before versioning count as 0. */
+
+	private static Query articleAtVersion(Criteria criteria, long version) {
+		return new Query(criteria.and("news.version").is(version == 0 ? null : version));
+	}
+
+	private static NewsVersionConflictException conflict(String userId, int newsId, long version) {
+		return new NewsVersionConflictException("The news with user ID: "+userId+ " and news ID: "+newsId+" is no longer at version "+version+".");
+	}
+}
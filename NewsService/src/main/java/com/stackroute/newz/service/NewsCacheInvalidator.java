@@ -0,0 +1,86 @@
+package com.stackroute.newz.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.CacheConfig;
+
+/*
+ * Programmatic eviction from the NewsService caches, for writes whose affected keys are
+ * only known at runtime (such as bulk ingest touching many users, or writes of other
+ * instances seen by the NewsChangeListener). Single writes are covered by the
+ * annotations on NewsService.
+ */
+@Component
+public class NewsCacheInvalidator {
+
+	private CacheManager cacheManager;
+
+	@Autowired
+	public NewsCacheInvalidator(CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	/* Evicts the cached news list of the user. */
+
+	public void evictUser(String userId) {
+		evict(CacheConfig.USER_NEWS_CACHE, userId);
+	}
+
+	/* Evicts one cached news and the cached news list of its user. */
+
+	public void evictNews(String userId, int newsId) {
+		evict(CacheConfig.NEWS_CACHE, userId + ":" + newsId);
+		evictUser(userId);
+	}
+
+	/* Evicts the cached news list of the user and every cached news of the user. */
+
+	public void evictAllNewsOf(String userId) {
+		Cache cache = cacheManager.getCache(CacheConfig.NEWS_CACHE);
+		if(cache != null) {
+			String keyPrefix = userId + ":";
+			if(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
+				((com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache()).asMap().keySet()
+						.removeIf(key -> key.toString().startsWith(keyPrefix));
+			} else {
+				cache.clear();
+			}
+		}
+		evictUser(userId);
+	}
+
+	/* Evicts every cached news and news list, keeping the cached news sources. */
+
+	public void evictAllNews() {
+		for(String cacheName : new String[] { CacheConfig.NEWS_CACHE, CacheConfig.USER_NEWS_CACHE }) {
+			Cache cache = cacheManager.getCache(cacheName);
+			if(cache != null) {
+				cache.clear();
+			}
+		}
+	}
+
+	/* Evicts one cached news source. */
+
+	public void evictNewsSource(int newsSourceId) {
+		evict(CacheConfig.NEWS_SOURCE_CACHE, newsSourceId);
+	}
+
+	/* Empties every cache, when the writes since they were filled are not known. */
+
+	public void evictAll() {
+		for(String cacheName : cacheManager.getCacheNames()) {
+			cacheManager.getCache(cacheName).clear();
+		}
+	}
+
+	private void evict(String cacheName, Object key) {
+		Cache cache = cacheManager.getCache(cacheName);
+		if(cache != null) {
+			cache.evict(key);
+		}
+	}
+}
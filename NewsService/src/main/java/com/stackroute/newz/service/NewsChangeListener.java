@@ -0,0 +1,184 @@
+package com.stackroute.newz.service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+/*
+ * Evicts the cache entries that a write of any NewsService instance made stale, from
+ * the change streams of the userNews, newsarticle and newsSource collections, see
+ * ChangeStreamConfig. Every instance watches the change streams itself, so a write
+ * handled by one instance evicts the entries of all of them, including its own.
+ *
+ * A change event of a UserNews document evicts all entries of its user, as the event
+ * does not tell which news of the newslist changed. An event of a NewsArticle evicts
+ * that news, or every cache if the article has an ObjectId as id and was deleted.
+ *
+ * The container gives up a change stream once its cursor failed, e.g. on a replica set
+ * election, so a failed change stream is registered again, after restart-min-ms and
+ * twice as long after every further failure in a row, up to restart-max-ms. The
+ * caches are emptied when it fails and again once it is read again, as the writes in
+ * between are not known.
+ */
+@Component
+@ConditionalOnProperty(prefix = "newz.cache.change-stream", name = "enabled", havingValue = "true")
+public class NewsChangeListener {
+
+	@Value("${newz.cache.change-stream.restart-min-ms:1000}")
+	private long restartMinMillis = 1000;
+
+	@Value("${newz.cache.change-stream.restart-max-ms:60000}")
+	private long restartMaxMillis = 60000;
+
+	private NewsCacheInvalidator cacheInvalidator;
+
+	private final ScheduledExecutorService restarts = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "newz-change-stream-restart");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	public NewsChangeListener(NewsCacheInvalidator cacheInvalidator) {
+		this.cacheInvalidator = cacheInvalidator;
+	}
+
+	/* Registers the change stream in the container, and again whenever it fails. */
+
+	public void watch(MessageListenerContainer container, ChangeStreamRequest<Document> request) {
+		new Watch(container, request).register();
+	}
+
+	@PreDestroy
+	public void stop() {
+		restarts.shutdownNow();
+	}
+
+	public void onUserNewsChange(ChangeStreamDocument<Document> event) {
+		if(isCollectionEvent(event.getOperationType())) {
+			cacheInvalidator.evictAll();
+			return;
+		}
+		cacheInvalidator.evictAllNewsOf(idOf(event.getDocumentKey()).asString().getValue());
+	}
+
+	public void onNewsArticleChange(ChangeStreamDocument<Document> event) {
+		if(isCollectionEvent(event.getOperationType())) {
+			cacheInvalidator.evictAll();
+			return;
+		}
+		BsonValue articleId = idOf(event.getDocumentKey());
+		if(articleId != null && articleId.isString() && articleId.asString().getValue().contains(":")) {
+			String id = articleId.asString().getValue();
+			int separator = id.lastIndexOf(':');
+			cacheInvalidator.evictNews(id.substring(0, separator), Integer.parseInt(id.substring(separator + 1)));
+		} else if(event.getFullDocument() != null) {
+			cacheInvalidator.evictNews(event.getFullDocument().getString("userId"), event.getFullDocument().getInteger("newsId"));
+		} else {
+			cacheInvalidator.evictAll();
+		}
+	}
+
+	/*
+	 * Evicts the news source, and the news of its owner, which carry copies of it. When
+	 * the owner is not known, as for a deleted news source, all news are evicted.
+	 */
+
+	public void onNewsSourceChange(ChangeStreamDocument<Document> event) {
+		if(isCollectionEvent(event.getOperationType())) {
+			cacheInvalidator.evictAll();
+			return;
+		}
+		cacheInvalidator.evictNewsSource(idOf(event.getDocumentKey()).asNumber().intValue());
+		String owner = event.getFullDocument() == null ? null : event.getFullDocument().getString("newsSourceCreatedBy");
+		if(owner != null) {
+			cacheInvalidator.evictAllNewsOf(owner);
+		} else {
+			cacheInvalidator.evictAllNews();
+		}
+	}
+
+	/*
+	 * Called when a change stream fails. The events missed until it is read again are
+	 * not known, so every cache is emptied.
+	 */
+
+	public void onError(Throwable error) {
+		logger.warn("Change stream failed, evicting all cached news: {}", error.toString());
+		cacheInvalidator.evictAll();
+	}
+
+	/* One change stream, registered again after it failed. */
+
+	private final class Watch {
+
+		private final MessageListenerContainer container;
+		private final ChangeStreamRequest<Document> request;
+		private final AtomicBoolean restarting = new AtomicBoolean();
+		private volatile Subscription subscription;
+		private volatile int failures;
+
+		Watch(MessageListenerContainer container, ChangeStreamRequest<Document> request) {
+			this.container = container;
+			this.request = request;
+		}
+
+		void register() {
+			subscription = container.register(request, Document.class, this::failed);
+		}
+
+		private void failed(Throwable error) {
+			onError(error);
+			if(restarting.compareAndSet(false, true)) {
+				long delay = Math.min(restartMaxMillis, restartMinMillis << Math.min(failures++, 20));
+				logger.warn("Reading change stream of {} again in {} ms", request.getRequestOptions().getCollectionName(), delay);
+				restarts.schedule(this::restart, delay, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		private void restart() {
+			container.remove(subscription);
+			restarting.set(false);
+			register();
+			try {
+				if(subscription.await(Duration.ofMillis(restartMaxMillis))) {
+					failures = 0;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			cacheInvalidator.evictAll();
+		}
+	}
+
+	private static boolean isCollectionEvent(OperationType operationType) {
+		return operationType == OperationType.DROP || operationType == OperationType.RENAME
+				|| operationType == OperationType.DROP_DATABASE || operationType == OperationType.INVALIDATE;
+	}
+
+	private static BsonValue idOf(BsonDocument documentKey) {
+		return documentKey == null ? null : documentKey.get("_id");
+	}
+}
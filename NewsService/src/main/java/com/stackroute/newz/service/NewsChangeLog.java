@@ -0,0 +1,225 @@
+package com.stackroute.newz.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.model.IndexOptions;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsChangeCounter;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsTombstone;
+
+/*
+ * Change sequence of each user's news, for the delta sync of
+ * GET /api/v1/news/{userId}/changes. The NewsService implementations stamp every added
+ * or updated news with the next number of its user's NewsChangeCounter, and leave a
+ * NewsTombstone for every deleted news, so a sync only reads what changed after the
+ * client's NewsCheckpoint instead of all of the user's news.
+ *
+ * Like a stamp, a tombstone is written before its delete, so a delete is never lost
+ * when the instance dies in between. A tombstone left by a delete that then did not
+ * happen, because it failed, conflicted or never ran, would tell a client to drop a
+ * news that still exists; a sync therefore only lists the tombstones of news the
+ * NewsService no longer holds.
+ *
+ * A stamp is taken just before its write, so a sync running between the two could
+ * hand out a checkpoint past a change it did not see yet. The next sync therefore also
+ * returns the news and tombstones written less than newz.sync.grace-ms before the
+ * previous checkpoint was handed out. A client whose checkpoint is older than the
+ * tombstones, newz.sync.tombstone-ttl-seconds, or than the user's last deleteAllNews
+ * has to resync, see NewsChanges.
+ */
+@Service
+public class NewsChangeLog {
+
+	static final String TOMBSTONE_TTL_INDEX = "deletedAt_ttl";
+
+	@Value("${newz.sync.tombstone-ttl-seconds:2592000}")
+	private long tombstoneTtlSeconds = 2592000;
+
+	@Value("${newz.sync.grace-ms:5000}")
+	private long graceMillis = 5000;
+
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	public NewsChangeLog(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	/* Creates the indexes of the tombstone collection if they do not exist yet. */
+
+	@PostConstruct
+	public void createIndexes() {
+		String collection = mongoOperations.getCollectionName(NewsTombstone.class);
+		mongoOperations.getCollection(collection)
+				.createIndex(new Document("userId", 1).append("changeStamp", 1), new IndexOptions().name("userId_changeStamp"));
+		mongoOperations.getCollection(collection)
+				.createIndex(new Document("deletedAt", 1),
+						new IndexOptions().name(TOMBSTONE_TTL_INDEX).expireAfter(tombstoneTtlSeconds, TimeUnit.SECONDS));
+	}
+
+	/* Stamps a news about to be added by its author, or updated by the user. */
+
+	public void stamp(String userId, News news) {
+		news.setChangeStamp(claim(userId, 1));
+	}
+
+	/* Stamps many news about to be added, claiming one range of stamps per author. */
+
+	public void stampAll(List<News> newsList) {
+		Map<String, List<News>> newsByAuthor = new LinkedHashMap<String, List<News>>();
+		for(News news : newsList) {
+			if(news.getAuthor() != null) {
+				newsByAuthor.computeIfAbsent(news.getAuthor(), author -> new ArrayList<News>()).add(news);
+			}
+		}
+		for(Map.Entry<String, List<News>> authorNews : newsByAuthor.entrySet()) {
+			long stamp = claim(authorNews.getKey(), authorNews.getValue().size()) - authorNews.getValue().size();
+			for(News news : authorNews.getValue()) {
+				news.setChangeStamp(++stamp);
+			}
+		}
+	}
+
+	/* Leaves the tombstone of a news about to be deleted. */
+
+	public void deleting(String userId, int newsId) {
+		Update tombstone = new Update()
+				.set("userId", userId)
+				.set("newsId", newsId)
+				.set("changeStamp", claim(userId, 1))
+				.set("deletedAt", LocalDateTime.now());
+		mongoOperations.upsert(new Query(Criteria.where("_id").is(NewsTombstone.idOf(userId, newsId))), tombstone, NewsTombstone.class);
+	}
+
+	/*
+	 * Makes every client of the user resync after all of its news were deleted. The
+	 * tombstones of the user are dropped, as a resync does not need them.
+	 */
+
+	public void deletedAll(String userId) {
+		long stamp = claim(userId, 1);
+		mongoOperations.updateFirst(byUser(userId), new Update().max("clearedStamp", stamp), NewsChangeCounter.class);
+		mongoOperations.remove(new Query(Criteria.where("userId").is(userId)), NewsTombstone.class);
+	}
+
+	/*
+	 * Starts a sync of the user's news from the client's checkpoint, or from scratch
+	 * when the checkpoint is null. The checkpoint of the result is taken here, before
+	 * any news is read.
+	 */
+
+	public Sync begin(String userId, NewsCheckpoint since) {
+		NewsChangeCounter counter = mongoOperations.findOne(byUser(userId), NewsChangeCounter.class);
+		long stamp = counter == null ? 0 : counter.getStamp();
+		long clearedStamp = counter == null ? 0 : counter.getClearedStamp();
+		LocalDateTime now = LocalDateTime.now();
+		boolean resync = since == null
+				|| since.getStamp() < clearedStamp
+				|| since.getStamp() > stamp
+				|| since.getIssuedAt().isBefore(now.minusSeconds(tombstoneTtlSeconds));
+		return new Sync(userId, resync ? null : since, new NewsCheckpoint(stamp, now));
+	}
+
+	/*
+	 * Completes a sync with the news read by the NewsService, adding the newsIds deleted
+	 * since the checkpoint. A news that was deleted and added again is only changed, and
+	 * the tombstones of news the user still has, as told by storedNewsIds, are left out.
+	 */
+
+	public NewsChanges changes(Sync sync, List<News> changed, Function<List<Integer>, Collection<Integer>> storedNewsIds) {
+		List<Integer> deleted = new ArrayList<Integer>();
+		if(!sync.isResync()) {
+			Set<Integer> changedIds = new HashSet<Integer>();
+			for(News news : changed) {
+				changedIds.add(news.getNewsId());
+			}
+			Query tombstones = new Query(Criteria.where("userId").is(sync.userId).andOperator(sync.changedSince("", "deletedAt")));
+			tombstones.fields().include("newsId");
+			for(NewsTombstone tombstone : mongoOperations.find(tombstones, NewsTombstone.class)) {
+				if(!changedIds.contains(tombstone.getNewsId())) {
+					deleted.add(tombstone.getNewsId());
+				}
+			}
+			if(!deleted.isEmpty()) {
+				deleted.removeAll(storedNewsIds.apply(deleted));
+			}
+		}
+		return new NewsChanges(changed, deleted, sync.isResync(), sync.checkpoint.encode());
+	}
+
+	/* Claims count stamps of the user and returns the last one. */
+
+	private long claim(String userId, int count) {
+		NewsChangeCounter counter = mongoOperations.findAndModify(byUser(userId), new Update().inc("stamp", count),
+				FindAndModifyOptions.options().returnNew(true).upsert(true), NewsChangeCounter.class);
+		return counter.getStamp();
+	}
+
+	private static Query byUser(String userId) {
+		return new Query(Criteria.where("_id").is(userId));
+	}
+
+	/* A sync in progress, see begin. */
+
+	public class Sync {
+
+		private final String userId;
+		private final NewsCheckpoint since;
+		private final NewsCheckpoint checkpoint;
+
+		Sync(String userId, NewsCheckpoint since, NewsCheckpoint checkpoint) {
+			this.userId = userId;
+			this.since = since;
+			this.checkpoint = checkpoint;
+		}
+
+		/* Whether the client has to drop its news and receive all of them. */
+
+		public boolean isResync() {
+			return since == null;
+		}
+
+		/*
+		 * Matches the news changed since the checkpoint, on the field names of a News
+		 * under the given path prefix, e.g. "news." for a NewsArticle. The date is
+		 * passed as a Date, as stored, for pipelines that bypass the mapping converter.
+		 */
+
+		public Criteria changedNews(String prefix) {
+			return changedSince(prefix, "lastModifiedAt");
+		}
+
+		Criteria changedSince(String prefix, String timeField) {
+			LocalDateTime graceStart = since.getIssuedAt().minus(Duration.ofMillis(graceMillis));
+			return new Criteria().orOperator(
+					Criteria.where(prefix + "changeStamp").gt(since.getStamp()),
+					Criteria.where(prefix + timeField).gte(Date.from(graceStart.atZone(ZoneId.systemDefault()).toInstant())));
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package com.stackroute.newz.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSearchEntry;
+
+/*
+ * Full-text search over the title, description and content of a user's news, on a
+ * MongoDB text index of the NewsSearchEntry collection. The NewsService
+ * implementations update the entries on every write, like the ReminderScheduler.
+ * An entry holds only the indexed fields, and a search returns the newsIds of the
+ * matches, so the NewsService reads their news from where they are stored.
+ *
+ * The index is prefixed with userId, so a search only reads the index keys of one
+ * user instead of those of every news. Matches in the title weigh the most, then the
+ * description, then the content. Entries written with a copy of the whole news, on
+ * the previous index, are found again once NewsSearchReindex has run.
+ */
+@Service
+public class NewsSearchIndex {
+
+	static final String INDEX_NAME = "userId_text";
+	static final String PREVIOUS_INDEX_NAME = "userId_news_text";
+
+	@Value("${newz.bulk.batch-size:1000}")
+	private int bulkBatchSize = 1000;
+
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	public NewsSearchIndex(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	/*
+	 * Creates the text index if it does not exist yet. A collection has at most one
+	 * text index, so the previous one, on the fields of the whole news, is dropped.
+	 */
+
+	@PostConstruct
+	public void createIndex() {
+		MongoCollection<Document> collection = mongoOperations.getCollection(mongoOperations.getCollectionName(NewsSearchEntry.class));
+		for(Document index : collection.listIndexes()) {
+			if(PREVIOUS_INDEX_NAME.equals(index.getString("name"))) {
+				collection.dropIndex(PREVIOUS_INDEX_NAME);
+			}
+		}
+		Document keys = new Document("userId", 1)
+				.append("title", "text")
+				.append("description", "text")
+				.append("content", "text");
+		Document weights = new Document("title", 10)
+				.append("description", 5)
+				.append("content", 1);
+		collection.createIndex(keys, new IndexOptions().name(INDEX_NAME).weights(weights));
+	}
+
+	/* Adds or replaces the entry of a news that was added or updated. */
+
+	public void index(String userId, News news) {
+		mongoOperations.upsert(byId(userId, news.getNewsId()), entryUpdate(userId, news), NewsSearchEntry.class);
+	}
+
+	/* Adds the entries of many added news, each of its author, with unordered bulk upserts. */
+
+	public void indexAll(List<News> newsList) {
+		indexAll(newsList, News::getAuthor);
+	}
+
+	/* Adds or replaces the entries of news of one user, see NewsSearchReindex. */
+
+	public void indexAll(String userId, List<News> newsList) {
+		indexAll(newsList, news -> userId);
+	}
+
+	private void indexAll(List<News> newsList, Function<News, String> userIdOf) {
+		for(int from = 0; from < newsList.size(); from += bulkBatchSize) {
+			BulkOperations bulkOps = mongoOperations.bulkOps(BulkMode.UNORDERED, NewsSearchEntry.class);
+			for(News news : newsList.subList(from, Math.min(from + bulkBatchSize, newsList.size()))) {
+				String userId = userIdOf.apply(news);
+				bulkOps.upsert(byId(userId, news.getNewsId()), entryUpdate(userId, news));
+			}
+			bulkOps.execute();
+		}
+	}
+
+	public void remove(String userId, int newsId) {
+		mongoOperations.remove(byId(userId, newsId), NewsSearchEntry.class);
+	}
+
+	public void removeAll(String userId) {
+		mongoOperations.remove(new Query(Criteria.where("userId").is(userId)), NewsSearchEntry.class);
+	}
+
+	/*
+	 * Returns the newsIds of page number "page" of the user's news matching the text,
+	 * best match first, and of one more match when another page follows, see
+	 * NewsSearchPage.of. The text is split into words, "quoted phrases" must match as
+	 * a whole and -words exclude news.
+	 */
+
+	public List<Integer> search(String userId, String text, int page, int pageSize) {
+		List<Integer> matchedNewsIds = new ArrayList<Integer>(pageSize + 1);
+		for(NewsSearchEntry entry : mongoOperations.find(searchQuery(userId, text, page, pageSize), NewsSearchEntry.class)) {
+			matchedNewsIds.add(entry.getNewsId());
+		}
+		return matchedNewsIds;
+	}
+
+	/* The query of search, fetching the newsIds of pageSize + 1 entries. */
+
+	static Query searchQuery(String userId, String text, int page, int pageSize) {
+		Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+				.sortByScore()
+				.addCriteria(Criteria.where("userId").is(userId))
+				.skip((long) page * pageSize)
+				.limit(pageSize + 1);
+		query.fields().include("newsId");
+		return query;
+	}
+
+	private static Query byId(String userId, int newsId) {
+		return new Query(Criteria.where("_id").is(NewsSearchEntry.idOf(userId, newsId)));
+	}
+
+	private static Update entryUpdate(String userId, News news) {
+		return new Update()
+				.set("userId", userId)
+				.set("newsId", news.getNewsId())
+				.set("title", news.getTitle())
+				.set("description", news.getDescription())
+				.set("content", news.getContent())
+				.unset("news");
+	}
+}
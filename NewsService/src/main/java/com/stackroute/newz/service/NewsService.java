@@ -1,8 +1,21 @@
 package com.stackroute.newz.service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+
+import com.stackroute.newz.config.CacheConfig;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.NewsSummary;
 import com.stackroute.newz.util.exception.NewsAlreadyExistsException;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
 
@@ -13,16 +26,102 @@ public interface NewsService {
 	 * corresponding Impl classes
 	 */
 
+	/*
+	 * The caching annotations below apply to every implementation (see CacheConfig).
+	 * Writes evict the cached news and the cached list of the affected user;
+	 * deleteAllNews cannot address all of a user's single news keys and clears the
+	 * whole news cache instead.
+	 */
+
+	@Caching(evict = {
+			@CacheEvict(cacheNames = CacheConfig.USER_NEWS_CACHE, key = "#news.author"),
+			@CacheEvict(cacheNames = CacheConfig.NEWS_CACHE, key = "#news.author + ':' + #news.newsId") })
 	boolean addNews(News news);
 
-	boolean deleteNews(String userId, int newsId);
+	@Caching(evict = {
+			@CacheEvict(cacheNames = CacheConfig.USER_NEWS_CACHE, key = "#userId"),
+			@CacheEvict(cacheNames = CacheConfig.NEWS_CACHE, key = "#userId + ':' + #newsId") })
+	default boolean deleteNews(String userId, int newsId) {
+		return deleteNews(userId, newsId, null);
+	}
 
+	/*
+	 * Deletes the news only while it is still at expectedVersion, or at any version
+	 * when that is null. Throws NewsVersionConflictException when the news exists at
+	 * another version.
+	 */
+	@Caching(evict = {
+			@CacheEvict(cacheNames = CacheConfig.USER_NEWS_CACHE, key = "#userId"),
+			@CacheEvict(cacheNames = CacheConfig.NEWS_CACHE, key = "#userId + ':' + #newsId") })
+	boolean deleteNews(String userId, int newsId, Long expectedVersion);
+
+	/*
+	 * The cached news of the user are evicted by the implementation, through
+	 * NewsCacheInvalidator.evictAllNewsOf, as their keys are not known here.
+	 */
 	boolean deleteAllNews(String userId) throws NewsNotFoundException;
 
-	News updateNews(News news, int newsId, String userId) throws NewsNotFoundException;
+	@Caching(evict = {
+			@CacheEvict(cacheNames = CacheConfig.USER_NEWS_CACHE, key = "#userId"),
+			@CacheEvict(cacheNames = CacheConfig.NEWS_CACHE, key = "#userId + ':' + #newsId") })
+	default News updateNews(News news, int newsId, String userId) throws NewsNotFoundException {
+		return updateNews(news, newsId, userId, null);
+	}
+
+	/*
+	 * Updates the news only while it is still at expectedVersion, or at any version
+	 * when that is null. Throws NewsVersionConflictException when the news exists at
+	 * another version. Versions of news saved before versioning count as 0.
+	 */
+	@Caching(evict = {
+			@CacheEvict(cacheNames = CacheConfig.USER_NEWS_CACHE, key = "#userId"),
+			@CacheEvict(cacheNames = CacheConfig.NEWS_CACHE, key = "#userId + ':' + #newsId") })
+	News updateNews(News news, int newsId, String userId, Long expectedVersion) throws NewsNotFoundException;
 
+	@Cacheable(cacheNames = CacheConfig.NEWS_CACHE, key = "#userId + ':' + #newsId", unless = "#result == null")
 	News getNewsByNewsId(String userId, int newsId) throws NewsNotFoundException;
 
+	@Cacheable(cacheNames = CacheConfig.USER_NEWS_CACHE, key = "#userId", unless = "#result == null")
 	List<News> getAllNewsByUserId(String userId);
 
+	/*
+	 * Returns the summaries of all news of the user, in the order of getAllNewsByUserId,
+	 * or null if the user has no news. Only the summary fields are read from the
+	 * database, so this is not served from the cached full list.
+	 */
+	List<NewsSummary> getNewsSummariesByUserId(String userId);
+
+	/*
+	 * Returns up to pageSize news of the user, newest first, starting after the given
+	 * cursor (or from the newest news when the cursor is null).
+	 */
+	NewsPage getNewsPageByUserId(String userId, NewsCursor after, int pageSize);
+
+	/*
+	 * Streams all news of the user, newest first, straight off the database cursor.
+	 * The returned stream holds the cursor open and must be closed by the caller.
+	 */
+	Stream<News> streamAllNewsByUserId(String userId);
+
+	/*
+	 * Saves many news at once through unordered bulk writes of at most
+	 * newz.bulk.batch-size operations each, and returns one result per news in the
+	 * order given. Implementations evict the cached lists of the users they touch.
+	 */
+	List<NewsIngestResult> addAllNews(List<News> newsList);
+
+	/*
+	 * Returns the user's news added or updated since the checkpoint and the newsIds
+	 * deleted since, or all news when the checkpoint is null or too old, see
+	 * NewsChanges. Writes are stamped and deletes leave tombstones for this, see
+	 * NewsChangeLog.
+	 */
+	NewsChanges getNewsChangesByUserId(String userId, NewsCheckpoint since);
+
+	/*
+	 * Returns page number "page" of the user's news whose title, description or
+	 * content match the text, best match first, see NewsSearchIndex.
+	 */
+	NewsSearchPage searchNews(String userId, String text, int page, int pageSize);
+
 }
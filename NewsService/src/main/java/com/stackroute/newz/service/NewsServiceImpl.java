@@ -1,16 +1,47 @@
 package com.stackroute.newz.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.data.util.StreamUtils;
 import org.springframework.stereotype.Service;
 
+import com.mongodb.client.result.UpdateResult;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsIngestResult.Status;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.NewsSummary;
 import com.stackroute.newz.model.UserNews;
 import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.util.SingleFlight;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsVersionConflictException;
 
 /*
 * Service classes are used here to implement additional business logic/validation 
@@ -20,9 +51,13 @@ import com.stackroute.newz.util.exception.NewsNotFoundException;
 * to use @Service over @Component in service-layer classes because it specifies intent 
 * better. Additionally, tool support and additional behavior might rely on it in the 
 * future.
+* 
+* This is the default "embedded" storage mode, where all news of a user live in the
+* newslist of a single UserNews document.
 * */
 
 @Service
+@ConditionalOnProperty(prefix = "newz.storage", name = "mode", havingValue = "embedded", matchIfMissing = true)
 public class NewsServiceImpl implements NewsService {
 
 	/*
@@ -31,46 +66,100 @@ public class NewsServiceImpl implements NewsService {
 	 * object using the new keyword.
 	 */
 	
+	private static final int STREAM_BATCH_SIZE = 100;
+
+	@Value("${newz.bulk.batch-size:1000}")
+	private int bulkBatchSize = 1000;
+
 	private NewsRepository newsRepo;
+	private MongoOperations mongoOperations;
+	private NewsCacheInvalidator cacheInvalidator;
+	private ReminderScheduler reminderScheduler;
+	private NewsSearchIndex searchIndex;
+	private NewsSourceResolver newsSources;
+	private NewsChangeLog changeLog;
+
+	/* Longest wait of a read for the same read of another request, see SingleFlight. */
+	@Value("${newz.singleflight.max-wait-ms:2000}")
+	private long readMaxWaitMillis = 2000;
+
+	private final SingleFlight<String, List<News>> userNewsReads = new SingleFlight<String, List<News>>("userNews");
 	
 	@Autowired
-	public NewsServiceImpl(NewsRepository newsRepository) {
+	public NewsServiceImpl(NewsRepository newsRepository, MongoOperations mongoOperations,
+			NewsCacheInvalidator cacheInvalidator, ReminderScheduler reminderScheduler, NewsSearchIndex searchIndex,
+			NewsSourceResolver newsSources, NewsChangeLog changeLog) {
 		this.newsRepo = newsRepository;
+		this.mongoOperations = mongoOperations;
+		this.cacheInvalidator = cacheInvalidator;
+		this.reminderScheduler = reminderScheduler;
+		this.searchIndex = searchIndex;
+		this.newsSources = newsSources;
+		this.changeLog = changeLog;
 	}
 
 	/*
 	 * This method should be used to save a new news.
+	 * The news is $push-ed onto the user's newslist in a single upsert, guarded by
+	 * "newslist.newsId $ne newsId". If the user has no document yet, the upsert creates
+	 * it; if the news already exists the guard does not match, the upsert tries to
+	 * insert a second document with the same userId and fails on the duplicate key.
+	 * That also happens when a concurrent first add of the user created the document
+	 * in between, so the upsert is tried once more against the document now there, and
+	 * only a second duplicate key is reported as a conflict. An added news is handed to the ReminderScheduler and the
+	 * NewsSearchIndex. Its news source is stored as the NewsSourceResolver says, and it
+	 * is stamped by the NewsChangeLog.
 	 */
 	
 	@Override
 	public boolean addNews(News news){
-		Boolean isExistsUserNews = newsRepo.existsById(news.getAuthor());
-		if(isExistsUserNews == false) {
-			List<News> newsList = new ArrayList<News>();
-			UserNews userNews = new UserNews();
-				newsList.add(news);
-				userNews.setUserId(news.getAuthor());
-				userNews.setNewslist(newsList);
-				UserNews userAdded = newsRepo.insert(userNews);
-				if(userAdded != null) {
-					return true;
-				}
+		news.initVersion();
+		changeLog.stamp(news.getAuthor(), news);
+		newsSources.reference(news);
+		UpdateResult result;
+		try {
+			result = pushNews(news);
+		}
+		catch(DuplicateKeyException ex) {
+			try {
+				result = pushNews(news);
 			}
-		return false;
+			catch(DuplicateKeyException conflict) {
+				return false;
+			}
+		}
+		boolean isNewsAdded = result.getModifiedCount() > 0 || result.getUpsertedId() != null;
+		if(isNewsAdded) {
+			reminderScheduler.scheduleAdded(news);
+			searchIndex.index(news.getAuthor(), news);
+			newsSources.resolve(news);
+		}
+		return isNewsAdded;
 	}
 
-	/* This method should be used to delete an existing news. */
+	private UpdateResult pushNews(News news) {
+		return mongoOperations.upsert(UserNewsQueries.userWithoutNews(news), new Update().push("newslist", news), UserNews.class);
+	}
+
+	/*
+	 * This method should be used to delete an existing news. It is $pull-ed from the
+	 * newslist, only while it is at the expected version when one is given. The
+	 * NewsChangeLog tombstone is written first, see NewsChangeLog.
+	 */
 	
-	public boolean deleteNews(String userId, int newsId) {
-		UserNews userNews = newsRepo.findById(userId).get();
-		List<News> newsList = userNews.getNewslist();
-		for(News newsWithId:newsList) {
-			if(newsWithId.getNewsId().equals(newsId)) {
-			newsRepo.deleteById(userNews.getUserId());
-			return true;
-			}
+	@Override
+	public boolean deleteNews(String userId, int newsId, Long expectedVersion) {
+		changeLog.deleting(userId, newsId);
+		boolean isNewsDeleted = mongoOperations.updateFirst(UserNewsQueries.userWithNews(userId, newsId, expectedVersion),
+				UserNewsQueries.pullNews(newsId), UserNews.class).getModifiedCount() > 0;
+		if(!isNewsDeleted && expectedVersion != null) {
+			checkNoConflict(userId, newsId, expectedVersion);
 		}
-		return false;
+		if(isNewsDeleted) {
+			reminderScheduler.cancel(userId, newsId);
+			searchIndex.remove(userId, newsId);
+		}
+		return isNewsDeleted;
 	}
 
 	/* This method should be used to delete all news for a  specific userId. */
@@ -81,6 +170,10 @@ public class NewsServiceImpl implements NewsService {
 		List<News> newsList = userNews.getNewslist();
 		if(newsList != null) {
 			newsRepo.delete(userNews);
+			cacheInvalidator.evictAllNewsOf(userId);
+			reminderScheduler.cancelAll(userId);
+			searchIndex.removeAll(userId);
+			changeLog.deletedAll(userId);
 			return true;
 		}}
 		catch(NoSuchElementException ex) {
@@ -91,31 +184,29 @@ public class NewsServiceImpl implements NewsService {
 
 	/*
 	 * This method should be used to update a existing news.
+	 * Only the editable fields of the matching newslist element are $set through the
+	 * positional operator, and the $elemMatch projection makes the server send back
+	 * just that one element instead of the whole newslist. The update is a single
+	 * atomic operation, so concurrent updates of other news or fields are not lost;
+	 * with an expected version it only applies while the news is still at it.
 	 */
 
-	public News updateNews(News news, int newsId, String userId) throws NewsNotFoundException {
-		try {
-		UserNews userNews = newsRepo.findById(userId).get();
-		List<News> newsList = userNews.getNewslist();
-		for(News newsWithId:newsList) {
-			if(newsWithId.getNewsId().equals(newsId)) {
-				newsWithId.setAuthor(news.getAuthor());
-				newsWithId.setContent(news.getContent());
-				newsWithId.setDescription(news.getDescription());
-				newsWithId.setTitle(news.getTitle());
-				newsWithId.setUrl(news.getUrl());
-				newsWithId.setUrlToImage(news.getUrlToImage());
-				newsWithId.setReminder(news.getReminder());
-				newsList.add(newsWithId);
-				userNews.setNewslist(newsList);
-				newsRepo.save(userNews);
-				return newsWithId;
+	@Override
+	public News updateNews(News news, int newsId, String userId, Long expectedVersion) throws NewsNotFoundException {
+		changeLog.stamp(userId, news);
+		UserNews userNews = mongoOperations.findAndModify(UserNewsQueries.newsOfUser(userId, newsId, expectedVersion),
+				UserNewsQueries.setEditableFields(news), FindAndModifyOptions.options().returnNew(true), UserNews.class);
+		if(userNews == null || userNews.getNewslist() == null || userNews.getNewslist().isEmpty()) {
+			if(expectedVersion != null) {
+				checkNoConflict(userId, newsId, expectedVersion);
 			}
-		}}
-		catch(NoSuchElementException ex) {
 			throw new NewsNotFoundException("Can not Update the News. The news with user ID: "+userId+ " and news ID: "+newsId+" does not exists in the database.");
 		}
-		return null;
+		News updatedNews = userNews.getNewslist().get(0);
+		reminderScheduler.schedule(userId, updatedNews);
+		searchIndex.index(userId, updatedNews);
+		newsSources.resolve(updatedNews);
+		return updatedNews;
 	}
 
 	/*
@@ -128,6 +219,7 @@ public class NewsServiceImpl implements NewsService {
 		List<News> newsList = userNews.getNewslist();
 		for(News newsWithId:newsList) {
 			if(newsWithId.getNewsId().equals(newsId)){
+			newsSources.resolve(newsWithId);
 			return newsWithId;
 			}}
 		}catch(NoSuchElementException e) {
@@ -137,11 +229,190 @@ public class NewsServiceImpl implements NewsService {
 	}
 
 	/*
-	 * This method should be used to get all news for a specific userId.
+	 * This method should be used to get all news for a specific userId. Concurrent
+	 * calls for the same user, e.g. after its cache entry expired, share one read.
 	 */
 
 	public List<News> getAllNewsByUserId(String userId) {
-		return newsRepo.findById(userId).get().getNewslist();
+		return userNewsReads.load(userId, readMaxWaitMillis, () -> {
+			List<News> newsList = newsRepo.findById(userId).get().getNewslist();
+			newsSources.resolveAll(newsList);
+			return newsList;
+		});
+	}
+
+	/*
+	 * This method should be used to get the summaries of all news for a specific
+	 * userId. The field projection leaves the other fields of each news on the server.
+	 */
+
+	@Override
+	public List<NewsSummary> getNewsSummariesByUserId(String userId) {
+		UserNews userNews = mongoOperations.findOne(UserNewsQueries.newsSummariesOfUser(userId), UserNews.class);
+		if(userNews == null || userNews.getNewslist() == null) {
+			return null;
+		}
+		newsSources.resolveAll(userNews.getNewslist());
+		return NewsSummary.ofAll(userNews.getNewslist());
+	}
+
+	/*
+	 * This method should be used to get one page of news for a specific userId.
+	 * The newslist is unwound, filtered past the cursor, sorted and limited on the
+	 * server, so only the requested page is sent to the application.
+	 */
+
+	public NewsPage getNewsPageByUserId(String userId, NewsCursor after, int pageSize) {
+		List<News> fetched = mongoOperations.aggregate(UserNewsQueries.newsPage(userId, after, pageSize),
+				mongoOperations.getCollectionName(UserNews.class), News.class).getMappedResults();
+		newsSources.resolveAll(fetched);
+		return NewsPage.of(fetched, pageSize);
+	}
+
+	/*
+	 * This method should be used to stream all news for a specific userId. News are
+	 * read from an aggregation cursor in batches of STREAM_BATCH_SIZE, and their news
+	 * source references resolved one by one from the newsSource cache.
+	 */
+
+	public Stream<News> streamAllNewsByUserId(String userId) {
+		List<AggregationOperation> pipeline = UserNewsQueries.unwindNewslist(userId);
+		pipeline.add(Aggregation.sort(UserNewsQueries.NEWEST_FIRST));
+		AggregationOptions options = AggregationOptions.builder()
+				.allowDiskUse(true)
+				.cursorBatchSize(STREAM_BATCH_SIZE)
+				.build();
+		CloseableIterator<News> cursor = mongoOperations.aggregateStream(
+				Aggregation.newAggregation(pipeline).withOptions(options),
+				mongoOperations.getCollectionName(UserNews.class), News.class);
+		return StreamUtils.createStreamFromIterator(cursor).peek(newsSources::resolve);
+	}
+
+	/*
+	 * This method should be used to save many news at once. Each user's news are
+	 * $push-ed with one upsert guarded by "newslist.newsId $nin newsIds", so a batch of
+	 * new news costs one write per user. A bulk carries at most newz.bulk.batch-size
+	 * news, a user with more news is pushed in pieces of that size, see BulkIngest.
+	 * Only the pieces that contained an existing newsId are retried one news at a
+	 * time, as in addNews, to tell each news CREATED from CONFLICT.
+	 */
+
+	@Override
+	public List<NewsIngestResult> addAllNews(List<News> newsList) {
+		newsSources.referenceAll(newsList);
+		NewsIngestResult[] results = new NewsIngestResult[newsList.size()];
+		Map<String, List<Integer>> positionsByUser = BulkIngest.groupByUser(newsList, results);
+		List<Integer> retryPositions = new ArrayList<Integer>();
+		for(Map<String, List<Integer>> bulk : BulkIngest.bulksOf(positionsByUser, bulkBatchSize)) {
+			List<String> batch = new ArrayList<String>(bulk.keySet());
+			Map<String, List<News>> newsByUser = new LinkedHashMap<String, List<News>>();
+			List<News> batchNews = new ArrayList<News>();
+			for(String userId : batch) {
+				List<News> userNews = new ArrayList<News>();
+				for(Integer position : bulk.get(userId)) {
+					userNews.add(newsList.get(position));
+				}
+				newsByUser.put(userId, userNews);
+				batchNews.addAll(userNews);
+			}
+			BulkIngest.stamp(batchNews, changeLog);
+			BulkOperations bulkOps = mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class);
+			for(String userId : batch) {
+				List<News> userNews = newsByUser.get(userId);
+				List<Integer> newsIds = new ArrayList<Integer>();
+				for(News news : userNews) {
+					newsIds.add(news.getNewsId());
+				}
+				Query userWithoutAnyNews = new Query(Criteria.where("userId").is(userId).and("newslist.newsId").nin(newsIds));
+				bulkOps.upsert(userWithoutAnyNews, new Update().push("newslist").each(userNews.toArray()));
+			}
+			Map<Integer, Integer> errorCodes = BulkIngest.execute(bulkOps);
+			for(int index = 0; index < batch.size(); index++) {
+				List<Integer> positions = bulk.get(batch.get(index));
+				Integer errorCode = errorCodes.get(index);
+				if(errorCode != null && errorCode == BulkIngest.DUPLICATE_KEY) {
+					retryPositions.addAll(positions);
+					continue;
+				}
+				for(Integer position : positions) {
+					results[position] = NewsIngestResult.of(newsList.get(position), BulkIngest.statusOf(errorCode));
+				}
+			}
+		}
+		for(int from = 0; from < retryPositions.size(); from += bulkBatchSize) {
+			List<Integer> batch = retryPositions.subList(from, Math.min(from + bulkBatchSize, retryPositions.size()));
+			List<News> batchNews = new ArrayList<News>(batch.size());
+			for(Integer position : batch) {
+				batchNews.add(newsList.get(position));
+			}
+			BulkIngest.stamp(batchNews, changeLog);
+			BulkOperations bulkOps = mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class);
+			for(News news : batchNews) {
+				bulkOps.upsert(UserNewsQueries.userWithoutNews(news), new Update().push("newslist", news));
+			}
+			Map<Integer, Integer> errorCodes = BulkIngest.execute(bulkOps);
+			for(int index = 0; index < batch.size(); index++) {
+				Integer position = batch.get(index);
+				results[position] = NewsIngestResult.of(newsList.get(position), BulkIngest.statusOf(errorCodes.get(index)));
+			}
+		}
+		for(String userId : positionsByUser.keySet()) {
+			cacheInvalidator.evictUser(userId);
+		}
+		List<News> created = BulkIngest.created(newsList, results);
+		reminderScheduler.scheduleAll(created);
+		searchIndex.indexAll(created);
+		return Arrays.asList(results);
+	}
+
+	/*
+	 * This method should be used to get the news of a specific userId changed since a
+	 * checkpoint, see NewsChangeLog. Only the changed elements of the newslist leave
+	 * the server.
+	 */
+
+	@Override
+	public NewsChanges getNewsChangesByUserId(String userId, NewsCheckpoint since) {
+		NewsChangeLog.Sync sync = changeLog.begin(userId, since);
+		List<News> changed = mongoOperations.aggregate(UserNewsQueries.newsChanges(userId, sync),
+				mongoOperations.getCollectionName(UserNews.class), News.class).getMappedResults();
+		newsSources.resolveAll(changed);
+		return changeLog.changes(sync, changed, newsIds -> storedNewsIds(userId, newsIds));
+	}
+
+	/* The newsIds among the given ones that the user's newslist still holds. */
+
+	private List<Integer> storedNewsIds(String userId, List<Integer> newsIds) {
+		List<Integer> stored = new ArrayList<Integer>(newsIds.size());
+		for(News news : mongoOperations.aggregate(UserNewsQueries.newsIdsIn(userId, newsIds),
+				mongoOperations.getCollectionName(UserNews.class), News.class)) {
+			stored.add(news.getNewsId());
+		}
+		return stored;
+	}
+
+	/* Throws NewsVersionConflictException if the news a conditional write missed still exists. */
+
+	private void checkNoConflict(String userId, int newsId, long expectedVersion) {
+		if(mongoOperations.exists(UserNewsQueries.userWithNews(userId, newsId), UserNews.class)) {
+			throw new NewsVersionConflictException("The news with user ID: "+userId+ " and news ID: "+newsId+" is no longer at version "+expectedVersion+".");
+		}
+	}
+
+	/*
+	 * This method should be used to search the news of a specific userId, see
+	 * NewsSearchIndex. The matches are read from the newslist in one aggregation.
+	 */
+
+	@Override
+	public NewsSearchPage searchNews(String userId, String text, int page, int pageSize) {
+		List<Integer> matchedNewsIds = searchIndex.search(userId, text, page, pageSize);
+		List<News> found = matchedNewsIds.isEmpty() ? Collections.<News>emptyList()
+				: mongoOperations.aggregate(UserNewsQueries.newsWithIds(userId, matchedNewsIds),
+						mongoOperations.getCollectionName(UserNews.class), News.class).getMappedResults();
+		NewsSearchPage result = NewsSearchPage.of(matchedNewsIds, found, page, pageSize);
+		newsSources.resolveAll(result.getNews());
+		return result;
 	}
 
 }
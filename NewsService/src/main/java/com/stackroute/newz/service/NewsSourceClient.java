@@ -0,0 +1,193 @@
+package com.stackroute.newz.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.stackroute.newz.model.NewsSource;
+
+import reactor.core.publisher.Mono;
+
+/*
+ * Client of GET /api/v1/newssource?ids=&userId= of NewsSourceService, used by the
+ * NewsSourceResolver when newz.news-source.lookup is "service". Each lookup is made
+ * for one user, the author of the news, and only returns the news sources of that
+ * user. Callers cache the news sources it returns.
+ *
+ * Concurrent lookups of the same user and newsSourceId share one call: a lookup joins
+ * the call in flight for an id instead of sending its own, and the ids nobody is fetching yet
+ * are fetched together, batch-size ids per call. The calls of one lookup are sent at
+ * once and share its deadline, so a lookup waits at most timeout-ms however many
+ * batches it takes.
+ *
+ * A circuit breaker stops calling NewsSourceService after failure-threshold failed
+ * calls in a row. Lookups then return nothing at once, and after open-ms a single
+ * call is let through to find out whether the service is back.
+ */
+@Service
+public class NewsSourceClient {
+
+	@Value("${newz.news-source.client.base-url:http://localhost:8083}")
+	private String baseUrl = "http://localhost:8083";
+
+	@Value("${newz.news-source.client.timeout-ms:500}")
+	private long timeoutMillis = 500;
+
+	@Value("${newz.news-source.client.batch-size:100}")
+	private int batchSize = 100;
+
+	@Value("${newz.news-source.client.failure-threshold:5}")
+	private int failureThreshold = 5;
+
+	@Value("${newz.news-source.client.open-ms:10000}")
+	private long openMillis = 10000;
+
+	private WebClient webClient;
+
+	private final Map<String, CompletableFuture<NewsSource>> inFlight = new ConcurrentHashMap<String, CompletableFuture<NewsSource>>();
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicBoolean probing = new AtomicBoolean();
+	private volatile long openUntil;
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	public NewsSourceClient(WebClient.Builder webClientBuilder) {
+		this.webClient = webClientBuilder.build();
+	}
+
+	/*
+	 * Returns the news sources of the user with the given ids, leaving out those that
+	 * do not exist, belong to another user or could not be fetched in time.
+	 */
+
+	public Map<Integer, NewsSource> getNewsSources(String userId, Collection<Integer> newsSourceIds) {
+		Map<Integer, CompletableFuture<NewsSource>> pending = new LinkedHashMap<Integer, CompletableFuture<NewsSource>>();
+		Map<Integer, CompletableFuture<NewsSource>> owned = new LinkedHashMap<Integer, CompletableFuture<NewsSource>>();
+		for(Integer newsSourceId : newsSourceIds) {
+			CompletableFuture<NewsSource> call = new CompletableFuture<NewsSource>();
+			CompletableFuture<NewsSource> joined = inFlight.putIfAbsent(keyOf(userId, newsSourceId), call);
+			if(joined == null) {
+				owned.put(newsSourceId, call);
+				pending.put(newsSourceId, call);
+			} else {
+				pending.put(newsSourceId, joined);
+			}
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		if(!owned.isEmpty()) {
+			fetch(userId, owned, deadline);
+		}
+
+		Map<Integer, NewsSource> newsSources = new HashMap<Integer, NewsSource>();
+		for(Map.Entry<Integer, CompletableFuture<NewsSource>> entry : pending.entrySet()) {
+			try {
+				NewsSource newsSource = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				if(newsSource != null) {
+					newsSources.put(entry.getKey(), newsSource);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException | TimeoutException e) {
+				// left out, the caller keeps the reference
+			}
+		}
+		return newsSources;
+	}
+
+	/*
+	 * Sends a call per batch of the owned ids, all at once, and completes their calls
+	 * as the responses come in, found or not.
+	 */
+
+	private void fetch(String userId, Map<Integer, CompletableFuture<NewsSource>> owned, long deadline) {
+		List<Integer> ids = new ArrayList<Integer>(owned.keySet());
+		for(int from = 0; from < ids.size(); from += batchSize) {
+			List<Integer> batch = new ArrayList<Integer>(ids.subList(from, Math.min(from + batchSize, ids.size())));
+			call(userId, batch, deadline).subscribe(
+					newsSources -> {
+						for(NewsSource newsSource : newsSources) {
+							CompletableFuture<NewsSource> call = owned.get(newsSource.getNewsSourceId());
+							if(call != null) {
+								call.complete(newsSource);
+							}
+						}
+					},
+					error -> {
+						logger.warn("Could not fetch news sources {} from NewsSourceService: {}", batch, error.toString());
+						complete(userId, owned, batch);
+					},
+					() -> complete(userId, owned, batch));
+		}
+	}
+
+	/* Completes the calls of a batch that got no news source, and lets the ids be fetched again. */
+
+	private void complete(String userId, Map<Integer, CompletableFuture<NewsSource>> owned, List<Integer> batch) {
+		for(Integer newsSourceId : batch) {
+			CompletableFuture<NewsSource> call = owned.get(newsSourceId);
+			inFlight.remove(keyOf(userId, newsSourceId), call);
+			call.complete(null);
+		}
+	}
+
+	private Mono<List<NewsSource>> call(String userId, List<Integer> batch, long deadline) {
+		if(!allowCall()) {
+			return Mono.just(Collections.<NewsSource>emptyList());
+		}
+		return Mono.defer(() -> webClient.get()
+						.uri(baseUrl + "/api/v1/newssource?ids={ids}&userId={userId}",
+								StringUtils.collectionToCommaDelimitedString(batch), userId)
+						.retrieve()
+						.bodyToFlux(NewsSource.class)
+						.collectList())
+				.timeout(Duration.ofNanos(Math.max(1, deadline - System.nanoTime())))
+				.doOnSuccess(newsSources -> {
+					consecutiveFailures.set(0);
+					probing.set(false);
+				})
+				.doOnError(e -> {
+					if(consecutiveFailures.incrementAndGet() >= failureThreshold) {
+						openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openMillis);
+					}
+					probing.set(false);
+				});
+	}
+
+	private static String keyOf(String userId, Integer newsSourceId) {
+		return userId + ":" + newsSourceId;
+	}
+
+	/*
+	 * Closed below failureThreshold failures in a row. Once open, lets one call through
+	 * after openUntil; it closes the circuit on success and opens it again on failure.
+	 */
+
+	private boolean allowCall() {
+		if(consecutiveFailures.get() < failureThreshold) {
+			return true;
+		}
+		return System.nanoTime() - openUntil >= 0 && probing.compareAndSet(false, true);
+	}
+}
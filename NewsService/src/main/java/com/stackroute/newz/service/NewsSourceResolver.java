@@ -0,0 +1,162 @@
+package com.stackroute.newz.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.newz.config.CacheConfig;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.repository.NewsSourceRepository;
+
+/*
+ * Storage of the NewsSource of a news. In the default newz.news-source.mode "embedded"
+ * every news keeps a full copy of its news source. In mode "reference" an added news
+ * only keeps the newsSourceId, see NewsSource.reference, so a user with thousands of
+ * news from a few sources stores each source once, in the newsSource collection of
+ * NewsSourceService.
+ *
+ * Reads resolve references in either mode, so documents written in both modes can be
+ * read side by side. A news is only resolved to a news source created by its author,
+ * so a news cannot show the source of another user by naming its newsSourceId. The
+ * sources of a response are resolved together: cached sources
+ * come from the newsSource cache and the others from one lookup per author, as set by
+ * newz.news-source.lookup:
+ *
+ * database - one findAllById on the newsSource collection (default)
+ * service  - the NewsSourceClient, from NewsSourceService. As that is the owner of the
+ *            news sources, full copies embedded in news are refreshed from it as well.
+ */
+@Service
+public class NewsSourceResolver {
+
+	static final String REFERENCE_MODE = "reference";
+	static final String SERVICE_LOOKUP = "service";
+
+	@Value("${newz.news-source.mode:embedded}")
+	private String mode = "embedded";
+
+	@Value("${newz.news-source.lookup:database}")
+	private String lookup = "database";
+
+	private NewsSourceRepository newsSourceRepo;
+	private NewsSourceClient newsSourceClient;
+	private Cache newsSourceCache;
+
+	@Autowired
+	public NewsSourceResolver(NewsSourceRepository newsSourceRepository, NewsSourceClient newsSourceClient,
+			CacheManager cacheManager) {
+		this.newsSourceRepo = newsSourceRepository;
+		this.newsSourceClient = newsSourceClient;
+		this.newsSourceCache = cacheManager.getCache(CacheConfig.NEWS_SOURCE_CACHE);
+	}
+
+	/* Replaces the news source of a news about to be added by a reference, in mode "reference". */
+
+	public void reference(News news) {
+		referenceAll(Collections.singletonList(news));
+	}
+
+	public void referenceAll(List<News> newsList) {
+		if(!REFERENCE_MODE.equals(mode)) {
+			return;
+		}
+		for(News news : newsList) {
+			NewsSource newsSource = news.getNewsSource();
+			if(newsSource != null && newsSource.getNewsSourceId() != null) {
+				news.setNewssource(NewsSource.reference(newsSource.getNewsSourceId()));
+			}
+		}
+	}
+
+	/* Replaces a news source reference by the news source. */
+
+	public void resolve(News news) {
+		resolveAll(Collections.singletonList(news));
+	}
+
+	/*
+	 * Replaces the news source references of the news by the news sources. A reference
+	 * to a news source that no longer exists, could not be looked up or was created by
+	 * another user than the author of the news, is left as it is.
+	 */
+
+	public void resolveAll(Collection<News> newsList) {
+		if(!hasReferences(newsList)) {
+			return;
+		}
+		Map<String, Set<Integer>> newsSourceIdsByAuthor = new HashMap<String, Set<Integer>>();
+		for(News news : newsList) {
+			if(needsResolving(news.getNewsSource()) && news.getAuthor() != null) {
+				newsSourceIdsByAuthor.computeIfAbsent(news.getAuthor(), author -> new LinkedHashSet<Integer>())
+						.add(news.getNewsSource().getNewsSourceId());
+			}
+		}
+		Map<Integer, NewsSource> newsSources = new HashMap<Integer, NewsSource>();
+		for(Map.Entry<String, Set<Integer>> entry : newsSourceIdsByAuthor.entrySet()) {
+			newsSources.putAll(lookup(entry.getKey(), entry.getValue()));
+		}
+		for(News news : newsList) {
+			if(needsResolving(news.getNewsSource())) {
+				NewsSource newsSource = newsSources.get(news.getNewsSource().getNewsSourceId());
+				if(newsSource != null && news.getAuthor() != null && news.getAuthor().equals(newsSource.getNewsSourceCreatedBy())) {
+					news.setNewssource(newsSource);
+				}
+			}
+		}
+	}
+
+	/* Whether resolveAll has anything to resolve, so callers can skip scheduling it. */
+
+	public boolean hasReferences(Collection<News> newsList) {
+		if(newsList == null) {
+			return false;
+		}
+		for(News news : newsList) {
+			if(needsResolving(news.getNewsSource())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Map<Integer, NewsSource> lookup(String author, Set<Integer> newsSourceIds) {
+		Map<Integer, NewsSource> newsSources = new HashMap<Integer, NewsSource>();
+		List<Integer> missing = new ArrayList<Integer>();
+		for(Integer newsSourceId : newsSourceIds) {
+			NewsSource cached = newsSourceCache.get(newsSourceId, NewsSource.class);
+			if(cached != null) {
+				newsSources.put(newsSourceId, cached);
+			} else {
+				missing.add(newsSourceId);
+			}
+		}
+		if(!missing.isEmpty()) {
+			Iterable<NewsSource> found = SERVICE_LOOKUP.equals(lookup)
+					? newsSourceClient.getNewsSources(author, missing).values() : newsSourceRepo.findAllById(missing);
+			for(NewsSource newsSource : found) {
+				newsSourceCache.put(newsSource.getNewsSourceId(), newsSource);
+				newsSources.put(newsSource.getNewsSourceId(), newsSource);
+			}
+		}
+		return newsSources;
+	}
+
+	private boolean needsResolving(NewsSource newsSource) {
+		if(newsSource == null || newsSource.getNewsSourceId() == null) {
+			return false;
+		}
+		return newsSource.isReference() || SERVICE_LOOKUP.equals(lookup);
+	}
+}
@@ -0,0 +1,65 @@
+package com.stackroute.newz.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.NewsSummary;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Non-blocking counterpart of NewsService for the "reactive" profile. Lookups of a
+ * missing user or news complete with a NewsNotFoundException error instead of
+ * throwing it.
+ */
+public interface ReactiveNewsService {
+
+	Mono<Boolean> addNews(News news);
+
+	default Mono<Boolean> deleteNews(String userId, int newsId) {
+		return deleteNews(userId, newsId, null);
+	}
+
+	/* See NewsService.deleteNews; a version conflict is signalled as NewsVersionConflictException. */
+	Mono<Boolean> deleteNews(String userId, int newsId, Long expectedVersion);
+
+	Mono<Boolean> deleteAllNews(String userId);
+
+	default Mono<News> updateNews(News news, int newsId, String userId) {
+		return updateNews(news, newsId, userId, null);
+	}
+
+	/* See NewsService.updateNews; a version conflict is signalled as NewsVersionConflictException. */
+	Mono<News> updateNews(News news, int newsId, String userId, Long expectedVersion);
+
+	Mono<News> getNewsByNewsId(String userId, int newsId);
+
+	Flux<News> getAllNewsByUserId(String userId);
+
+	/* See NewsService.getNewsSummariesByUserId. */
+	Flux<NewsSummary> getNewsSummariesByUserId(String userId);
+
+	/* See NewsService.getNewsChangesByUserId. */
+	Mono<NewsChanges> getNewsChangesByUserId(String userId, NewsCheckpoint since);
+
+	/* See NewsService.getNewsPageByUserId. */
+	Mono<NewsPage> getNewsPageByUserId(String userId, NewsCursor after, int pageSize);
+
+	/*
+	 * All news of the user, newest first, read from the database cursor as the
+	 * subscriber requests them.
+	 */
+	Flux<News> streamAllNewsByUserId(String userId);
+
+	/* See NewsService.addAllNews; the results are emitted in the order of the news. */
+	Flux<NewsIngestResult> addAllNews(Flux<News> newsList);
+
+	/* See NewsService.searchNews. */
+	Mono<NewsSearchPage> searchNews(String userId, String text, int page, int pageSize);
+
+}
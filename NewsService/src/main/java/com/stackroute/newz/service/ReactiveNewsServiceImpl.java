@@ -0,0 +1,295 @@
+package com.stackroute.newz.service;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchEntry;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.NewsSummary;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.repository.ReactiveNewsRepository;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsVersionConflictException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/*
+* ReactiveNewsService of the "reactive" profile for the "embedded" storage mode. It
+* sends the same queries and updates as NewsServiceImpl through the reactive MongoDB
+* driver. The collaborators shared with the blocking services still block, and run on
+* the bounded elastic scheduler: the change stamps of addNews and updateNews and the
+* tombstone of deleteNews, reminder scheduling, search indexing, news source
+* resolution, and the whole of getNewsChangesByUserId and addAllNews, which go
+* through NewsService.
+* */
+
+@Service
+@Profile("reactive")
+@ConditionalOnProperty(prefix = "newz.storage", name = "mode", havingValue = "embedded", matchIfMissing = true)
+public class ReactiveNewsServiceImpl implements ReactiveNewsService {
+
+	private static final int STREAM_BATCH_SIZE = 100;
+
+	@Value("${newz.bulk.batch-size:1000}")
+	private int bulkBatchSize = 1000;
+
+	private ReactiveNewsRepository newsRepo;
+	private ReactiveMongoOperations mongoOperations;
+	private NewsService newsService;
+	private ReminderScheduler reminderScheduler;
+	private NewsSearchIndex searchIndex;
+	private NewsSourceResolver newsSources;
+	private NewsChangeLog changeLog;
+
+	@Autowired
+	public ReactiveNewsServiceImpl(ReactiveNewsRepository newsRepository, ReactiveMongoOperations mongoOperations,
+			NewsService newsService, ReminderScheduler reminderScheduler, NewsSearchIndex searchIndex,
+			NewsSourceResolver newsSources, NewsChangeLog changeLog) {
+		this.newsRepo = newsRepository;
+		this.mongoOperations = mongoOperations;
+		this.newsService = newsService;
+		this.reminderScheduler = reminderScheduler;
+		this.searchIndex = searchIndex;
+		this.newsSources = newsSources;
+		this.changeLog = changeLog;
+	}
+
+	/* This method should be used to save a new news, see NewsServiceImpl.addNews. */
+
+	@Override
+	public Mono<Boolean> addNews(News news) {
+		news.initVersion();
+		newsSources.reference(news);
+		Mono<UpdateResult> pushNews = Mono.defer(() ->
+				mongoOperations.upsert(UserNewsQueries.userWithoutNews(news), new Update().push("newslist", news), UserNews.class));
+		return onBoundedElastic(() -> changeLog.stamp(news.getAuthor(), news))
+				.then(pushNews.onErrorResume(DuplicateKeyException.class, firstAddOfUser -> pushNews))
+				.map(result -> result.getModifiedCount() > 0 || result.getUpsertedId() != null)
+				.onErrorReturn(DuplicateKeyException.class, false)
+				.flatMap(isNewsAdded -> isNewsAdded ? onBoundedElastic(() -> {
+					reminderScheduler.scheduleAdded(news);
+					searchIndex.index(news.getAuthor(), news);
+					newsSources.resolve(news);
+				}).thenReturn(true) : Mono.just(false));
+	}
+
+	/* This method should be used to delete an existing news, see NewsServiceImpl.deleteNews. */
+
+	@Override
+	public Mono<Boolean> deleteNews(String userId, int newsId, Long expectedVersion) {
+		return onBoundedElastic(() -> changeLog.deleting(userId, newsId))
+				.then(Mono.defer(() -> mongoOperations.updateFirst(UserNewsQueries.userWithNews(userId, newsId, expectedVersion),
+						UserNewsQueries.pullNews(newsId), UserNews.class)))
+				.map(result -> result.getModifiedCount() > 0)
+				.flatMap(isNewsDeleted -> isNewsDeleted ? onBoundedElastic(() -> {
+					reminderScheduler.cancel(userId, newsId);
+					searchIndex.remove(userId, newsId);
+				}).thenReturn(true) : checkNoConflict(userId, newsId, expectedVersion).thenReturn(false));
+	}
+
+	/* This method should be used to delete all news for a specific userId, in one delete. */
+
+	@Override
+	public Mono<Boolean> deleteAllNews(String userId) {
+		return mongoOperations.remove(new Query(Criteria.where("userId").is(userId)), UserNews.class)
+				.flatMap(result -> result.getDeletedCount() > 0 ? onBoundedElastic(() -> {
+					reminderScheduler.cancelAll(userId);
+					searchIndex.removeAll(userId);
+					changeLog.deletedAll(userId);
+				}).thenReturn(true)
+						: Mono.error(new NewsNotFoundException("Can not Delete the News. The news with user ID: "+userId+ " does not exists in the database.")));
+	}
+
+	/* This method should be used to update a existing news, see NewsServiceImpl.updateNews. */
+
+	@Override
+	public Mono<News> updateNews(News news, int newsId, String userId, Long expectedVersion) {
+		return onBoundedElastic(() -> changeLog.stamp(userId, news))
+				.then(Mono.defer(() -> mongoOperations.findAndModify(UserNewsQueries.newsOfUser(userId, newsId, expectedVersion),
+						UserNewsQueries.setEditableFields(news), FindAndModifyOptions.options().returnNew(true), UserNews.class)))
+				.flatMap(ReactiveNewsServiceImpl::firstNews)
+				.flatMap(updatedNews -> onBoundedElastic(() -> {
+					reminderScheduler.schedule(userId, updatedNews);
+					searchIndex.index(userId, updatedNews);
+					newsSources.resolve(updatedNews);
+				}).thenReturn(updatedNews))
+				.switchIfEmpty(checkNoConflict(userId, newsId, expectedVersion).then(Mono.empty()))
+				.switchIfEmpty(Mono.error(() -> new NewsNotFoundException("Can not Update the News. The news with user ID: "+userId+ " and news ID: "+newsId+" does not exists in the database.")));
+	}
+
+	/*
+	 * This method should be used to get a news by newsId created by specific user. The
+	 * $elemMatch projection returns only that news of the newslist.
+	 */
+
+	@Override
+	public Mono<News> getNewsByNewsId(String userId, int newsId) {
+		return mongoOperations.findOne(UserNewsQueries.newsOfUser(userId, newsId), UserNews.class)
+				.flatMap(ReactiveNewsServiceImpl::firstNews)
+				.flatMap(news -> resolveAll(Collections.singletonList(news)).then(Mono.just(news)))
+				.switchIfEmpty(Mono.error(() -> new NewsNotFoundException("Can not Retrieve the News. The news with user ID: "+userId+ " and news  ID: "+newsId +" does not exists in the database.")));
+	}
+
+	/* This method should be used to get all news for a specific userId, in newslist order. */
+
+	@Override
+	public Flux<News> getAllNewsByUserId(String userId) {
+		return newsRepo.findById(userId)
+				.switchIfEmpty(Mono.error(() -> new NewsNotFoundException("Can not Retrieve the News. The news with user ID: "+userId+ " does not exists in the database.")))
+				.flatMapIterable(userNews -> userNews.getNewslist() == null ? Collections.<News>emptyList() : userNews.getNewslist())
+				.buffer(STREAM_BATCH_SIZE)
+				.concatMap(this::resolveAll);
+	}
+
+	/* This method should be used to get the summaries of all news for a specific userId. */
+
+	@Override
+	public Flux<NewsSummary> getNewsSummariesByUserId(String userId) {
+		return mongoOperations.findOne(UserNewsQueries.newsSummariesOfUser(userId), UserNews.class)
+				.switchIfEmpty(Mono.error(() -> new NewsNotFoundException("Can not Retrieve the News. The news with user ID: "+userId+ " does not exists in the database.")))
+				.flatMapIterable(userNews -> userNews.getNewslist() == null ? Collections.<News>emptyList() : userNews.getNewslist())
+				.buffer(STREAM_BATCH_SIZE)
+				.concatMap(this::resolveAll)
+				.map(NewsSummary::of);
+	}
+
+	/*
+	 * This method should be used to get the news of a specific userId changed since a
+	 * checkpoint. The change log is only read through MongoOperations, so the sync runs
+	 * in the blocking NewsService, like addAllNews.
+	 */
+
+	@Override
+	public Mono<NewsChanges> getNewsChangesByUserId(String userId, NewsCheckpoint since) {
+		return Mono.fromCallable(() -> newsService.getNewsChangesByUserId(userId, since))
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	/* This method should be used to get one page of news for a specific userId. */
+
+	@Override
+	public Mono<NewsPage> getNewsPageByUserId(String userId, NewsCursor after, int pageSize) {
+		return mongoOperations.aggregate(UserNewsQueries.newsPage(userId, after, pageSize),
+				mongoOperations.getCollectionName(UserNews.class), News.class)
+				.collectList()
+				.flatMap(fetched -> resolveAll(fetched).then(Mono.fromCallable(() -> NewsPage.of(fetched, pageSize))));
+	}
+
+	/*
+	 * This method should be used to stream all news for a specific userId. The driver
+	 * fetches the next batch of at most STREAM_BATCH_SIZE news only on demand, and the
+	 * news source references of each batch are resolved together.
+	 */
+
+	@Override
+	public Flux<News> streamAllNewsByUserId(String userId) {
+		List<AggregationOperation> pipeline = UserNewsQueries.unwindNewslist(userId);
+		pipeline.add(Aggregation.sort(UserNewsQueries.NEWEST_FIRST));
+		AggregationOptions options = AggregationOptions.builder()
+				.allowDiskUse(true)
+				.cursorBatchSize(STREAM_BATCH_SIZE)
+				.build();
+		return mongoOperations.aggregate(Aggregation.newAggregation(pipeline).withOptions(options),
+				mongoOperations.getCollectionName(UserNews.class), News.class)
+				.buffer(STREAM_BATCH_SIZE)
+				.concatMap(this::resolveAll);
+	}
+
+	/*
+	 * This method should be used to save many news at once. The reactive template has
+	 * no bulk write API, so each chunk of newz.bulk.batch-size news is saved by the
+	 * blocking NewsService on the bounded elastic scheduler, one chunk at a time, and
+	 * the next chunk is only read from the request once the previous one is saved.
+	 */
+
+	@Override
+	public Flux<NewsIngestResult> addAllNews(Flux<News> newsList) {
+		return newsList.buffer(bulkBatchSize)
+				.concatMap(chunk -> Mono.fromCallable(() -> newsService.addAllNews(chunk))
+						.subscribeOn(Schedulers.boundedElastic()))
+				.flatMapIterable(results -> results);
+	}
+
+	/* See NewsService.searchNews. */
+
+	@Override
+	public Mono<NewsSearchPage> searchNews(String userId, String text, int page, int pageSize) {
+		return mongoOperations.find(NewsSearchIndex.searchQuery(userId, text, page, pageSize), NewsSearchEntry.class)
+				.map(NewsSearchEntry::getNewsId)
+				.collectList()
+				.flatMap(matchedNewsIds -> (matchedNewsIds.isEmpty() ? Flux.<News>empty()
+						: mongoOperations.aggregate(UserNewsQueries.newsWithIds(userId, matchedNewsIds),
+								mongoOperations.getCollectionName(UserNews.class), News.class))
+						.collectList()
+						.map(found -> NewsSearchPage.of(matchedNewsIds, found, page, pageSize)))
+				.flatMap(result -> resolveAll(result.getNews()).then(Mono.just(result)));
+	}
+
+	/*
+	 * ReminderScheduler, NewsSearchIndex, NewsChangeLog and NewsSourceResolver use the
+	 * blocking driver, so their calls run on the bounded elastic scheduler.
+	 */
+
+	private static Mono<Void> onBoundedElastic(Runnable call) {
+		return Mono.fromRunnable(call).subscribeOn(Schedulers.boundedElastic()).then();
+	}
+
+	/*
+	 * Resolves the news source references of the news, see NewsSourceResolver. A
+	 * resolution may read the database, so it only leaves the current thread when the
+	 * news hold references.
+	 */
+
+	private Flux<News> resolveAll(List<News> newsList) {
+		if(!newsSources.hasReferences(newsList)) {
+			return Flux.fromIterable(newsList);
+		}
+		return onBoundedElastic(() -> newsSources.resolveAll(newsList)).thenMany(Flux.fromIterable(newsList));
+	}
+
+	/*
+	 * Fails with NewsVersionConflictException if the news a conditional write missed
+	 * still exists, see NewsServiceImpl.
+	 */
+
+	private Mono<Void> checkNoConflict(String userId, int newsId, Long expectedVersion) {
+		if(expectedVersion == null) {
+			return Mono.empty();
+		}
+		return mongoOperations.exists(UserNewsQueries.userWithNews(userId, newsId), UserNews.class)
+				.flatMap(exists -> exists ? Mono.<Void>error(new NewsVersionConflictException("The news with user ID: "+userId+ " and news ID: "+newsId+" is no longer at version "+expectedVersion+"."))
+						: Mono.<Void>empty());
+	}
+
+	private static Mono<News> firstNews(UserNews userNews) {
+		if(userNews.getNewslist() == null || userNews.getNewslist().isEmpty()) {
+			return Mono.empty();
+		}
+		return Mono.just(userNews.getNewslist().get(0));
+	}
+
+}
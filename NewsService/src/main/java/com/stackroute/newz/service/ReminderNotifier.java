@@ -0,0 +1,18 @@
+package com.stackroute.newz.service;
+
+import java.util.List;
+
+import com.stackroute.newz.model.ScheduledReminder;
+
+/*
+ * Delivers due reminders for ReminderScheduler. The implementation is chosen with
+ * newz.reminders.notifier: "log" (default) or "mail".
+ */
+public interface ReminderNotifier {
+
+	/*
+	 * Delivers one batch of reminders and returns those that could not be delivered;
+	 * they are retried later.
+	 */
+	List<ScheduledReminder> notify(List<ScheduledReminder> reminders);
+}
@@ -0,0 +1,226 @@
+package com.stackroute.newz.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.ScheduledReminder;
+
+/*
+ * Keeps one ScheduledReminder per news whose Reminder is due in the future, and fires
+ * the due ones through the ReminderNotifier. The NewsService implementations call
+ * scheduleAdded, schedule or cancel on every write, so the pending reminders never
+ * have to be found by reading the news.
+ *
+ * Every newz.reminders.poll-interval-ms, fireDueReminders claims up to batch-size due
+ * reminders, scanning only the due range of the availableAt index. A claim pushes
+ * availableAt to the end of a lease and stamps the batch with a token, so several
+ * instances can poll the same collection without firing a reminder twice. Delivered
+ * reminders are deleted, and failed ones are retried after retry-delay-ms. A reminder
+ * whose instance dies before delivery becomes due again when its lease ends, so
+ * delivery is at least once.
+ */
+@Service
+public class ReminderScheduler {
+
+	private static final Sort DUE_FIRST = Sort.by(Direction.ASC, "availableAt");
+
+	@Value("${newz.reminders.batch-size:500}")
+	private int batchSize = 500;
+
+	@Value("${newz.reminders.lease-ms:60000}")
+	private long leaseMillis = 60000;
+
+	@Value("${newz.reminders.retry-delay-ms:60000}")
+	private long retryDelayMillis = 60000;
+
+	@Value("${newz.reminders.max-attempts:5}")
+	private int maxAttempts = 5;
+
+	private MongoOperations mongoOperations;
+	private ReminderNotifier notifier;
+
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	public ReminderScheduler(MongoOperations mongoOperations, ReminderNotifier notifier) {
+		this.mongoOperations = mongoOperations;
+		this.notifier = notifier;
+	}
+
+	/*
+	 * Schedules the reminder of a news that was added or updated, replacing the one
+	 * scheduled before. A news without a reminder in the future has its reminder
+	 * cancelled.
+	 */
+
+	public void schedule(String userId, News news) {
+		if(!hasFutureReminder(news)) {
+			cancel(userId, news.getNewsId());
+			return;
+		}
+		mongoOperations.upsert(byId(userId, news.getNewsId()), scheduleUpdate(userId, news), ScheduledReminder.class);
+	}
+
+	/*
+	 * Schedules the reminder of a news that was just added. Nothing can be scheduled
+	 * for it yet, so a news without a reminder in the future costs no write at all.
+	 */
+
+	public void scheduleAdded(News news) {
+		if(hasFutureReminder(news)) {
+			mongoOperations.upsert(byId(news.getAuthor(), news.getNewsId()), scheduleUpdate(news.getAuthor(), news),
+					ScheduledReminder.class);
+		}
+	}
+
+	/* Schedules the reminders of many added news with unordered bulk upserts. */
+
+	public void scheduleAll(List<News> newsList) {
+		BulkOperations bulkOps = null;
+		int pending = 0;
+		for(News news : newsList) {
+			if(!hasFutureReminder(news)) {
+				continue;
+			}
+			if(bulkOps == null) {
+				bulkOps = mongoOperations.bulkOps(BulkMode.UNORDERED, ScheduledReminder.class);
+			}
+			bulkOps.upsert(byId(news.getAuthor(), news.getNewsId()), scheduleUpdate(news.getAuthor(), news));
+			if(++pending == batchSize) {
+				bulkOps.execute();
+				bulkOps = null;
+				pending = 0;
+			}
+		}
+		if(bulkOps != null) {
+			bulkOps.execute();
+		}
+	}
+
+	public void cancel(String userId, int newsId) {
+		mongoOperations.remove(byId(userId, newsId), ScheduledReminder.class);
+	}
+
+	public void cancelAll(String userId) {
+		mongoOperations.remove(new Query(Criteria.where("userId").is(userId)), ScheduledReminder.class);
+	}
+
+	/*
+	 * Fires due reminders batch by batch until a batch fires fewer than batch-size,
+	 * because fewer are due or other instances claimed the rest. Only runs when
+	 * scheduling is enabled, see SchedulingConfig.
+	 */
+
+	@Scheduled(fixedDelayString = "${newz.reminders.poll-interval-ms:5000}")
+	public void fireDueReminders() {
+		int fired;
+		do {
+			fired = fireBatch(LocalDateTime.now());
+		} while(fired == batchSize);
+	}
+
+	/*
+	 * Claims, delivers and settles one batch of reminders due at the given time.
+	 * Returns the number of reminders this batch claimed and handed to the notifier,
+	 * leaving out those claimed by another instance in between.
+	 */
+
+	public int fireBatch(LocalDateTime now) {
+		Query due = new Query(Criteria.where("availableAt").lte(now)).with(DUE_FIRST).limit(batchSize);
+		due.fields().include("_id");
+		List<String> ids = new ArrayList<String>();
+		for(ScheduledReminder reminder : mongoOperations.find(due, ScheduledReminder.class)) {
+			ids.add(reminder.getId());
+		}
+		if(ids.isEmpty()) {
+			return 0;
+		}
+
+		String token = UUID.randomUUID().toString();
+		mongoOperations.updateMulti(new Query(Criteria.where("_id").in(ids).and("availableAt").lte(now)),
+				new Update().set("availableAt", now.plus(Duration.ofMillis(leaseMillis))).set("claimedBy", token),
+				ScheduledReminder.class);
+		List<ScheduledReminder> claimed = mongoOperations.find(claimedBy(ids, token), ScheduledReminder.class);
+		if(claimed.isEmpty()) {
+			return 0;
+		}
+
+		Set<String> failedIds = new HashSet<String>();
+		for(ScheduledReminder reminder : notifier.notify(claimed)) {
+			failedIds.add(reminder.getId());
+		}
+		List<String> deliveredIds = new ArrayList<String>(claimed.size());
+		List<String> retryIds = new ArrayList<String>();
+		List<String> droppedIds = new ArrayList<String>();
+		for(ScheduledReminder reminder : claimed) {
+			if(!failedIds.contains(reminder.getId())) {
+				deliveredIds.add(reminder.getId());
+			} else if(reminder.getAttempts() + 1 >= maxAttempts) {
+				droppedIds.add(reminder.getId());
+			} else {
+				retryIds.add(reminder.getId());
+			}
+		}
+		if(!deliveredIds.isEmpty()) {
+			mongoOperations.remove(claimedBy(deliveredIds, token), ScheduledReminder.class);
+		}
+		if(!retryIds.isEmpty()) {
+			mongoOperations.updateMulti(claimedBy(retryIds, token),
+					new Update().set("availableAt", now.plus(Duration.ofMillis(retryDelayMillis))).unset("claimedBy").inc("attempts", 1),
+					ScheduledReminder.class);
+		}
+		if(!droppedIds.isEmpty()) {
+			logger.warn("Dropping {} reminders after {} failed attempts: {}", droppedIds.size(), maxAttempts, droppedIds);
+			mongoOperations.remove(claimedBy(droppedIds, token), ScheduledReminder.class);
+		}
+		return claimed.size();
+	}
+
+	private static boolean hasFutureReminder(News news) {
+		return news.getReminder() != null && news.getReminder().getSchedule() != null
+				&& news.getReminder().getSchedule().isAfter(LocalDateTime.now());
+	}
+
+	private static Query byId(String userId, int newsId) {
+		return new Query(Criteria.where("_id").is(ScheduledReminder.idOf(userId, newsId)));
+	}
+
+	/* Matches the reminders only while they are still claimed by this batch. */
+
+	private static Query claimedBy(List<String> ids, String token) {
+		return new Query(Criteria.where("_id").in(ids).and("claimedBy").is(token));
+	}
+
+	private static Update scheduleUpdate(String userId, News news) {
+		LocalDateTime dueAt = news.getReminder().getSchedule();
+		return new Update()
+				.set("userId", userId)
+				.set("newsId", news.getNewsId())
+				.set("title", news.getTitle())
+				.set("dueAt", dueAt)
+				.set("availableAt", dueAt)
+				.set("attempts", 0)
+				.unset("claimedBy");
+	}
+}
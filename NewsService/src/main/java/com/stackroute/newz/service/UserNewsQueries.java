@@ -0,0 +1,171 @@
+package com.stackroute.newz.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsSummary;
+
+/*
+ * Queries, updates and pipelines on the newslist of a UserNews document, shared by the
+ * blocking and the reactive implementation of the "embedded" storage mode.
+ */
+final class UserNewsQueries {
+
+	/* Order of paged and streamed news, on the field names of an unwound newslist element. */
+	static final Sort NEWEST_FIRST = Sort.by(Direction.DESC, "publishedAt", "_id");
+
+	private UserNewsQueries() {
+	}
+
+	/* Matches the author's UserNews only while it does not hold the news yet. */
+
+	static Query userWithoutNews(News news) {
+		return new Query(Criteria.where("userId").is(news.getAuthor()).and("newslist.newsId").ne(news.getNewsId()));
+	}
+
+	/* Matches the user's UserNews while it holds the news. */
+
+	static Query userWithNews(String userId, int newsId) {
+		return new Query(Criteria.where("userId").is(userId).and("newslist.newsId").is(newsId));
+	}
+
+	/*
+	 * Matches the user's UserNews while it holds the news at the expected version, or
+	 * at any version when that is null, see versionIs.
+	 */
+
+	static Query userWithNews(String userId, int newsId, Long expectedVersion) {
+		if(expectedVersion == null) {
+			return userWithNews(userId, newsId);
+		}
+		return new Query(Criteria.where("userId").is(userId)
+				.and("newslist").elemMatch(versionIs(Criteria.where("newsId").is(newsId), "version", expectedVersion)));
+	}
+
+	/* Same as userWithNews, projected to just the matching newslist element. */
+
+	static Query newsOfUser(String userId, int newsId) {
+		return newsOfUser(userId, newsId, null);
+	}
+
+	static Query newsOfUser(String userId, int newsId, Long expectedVersion) {
+		Query userWithNews = userWithNews(userId, newsId, expectedVersion);
+		userWithNews.fields().elemMatch("newslist", Criteria.where("newsId").is(newsId));
+		return userWithNews;
+	}
+
+	/*
+	 * Adds the condition that the version field is at expectedVersion. News saved
+	 * before versioning have no version and count as version 0.
+	 */
+
+	static Criteria versionIs(Criteria criteria, String versionField, long expectedVersion) {
+		return criteria.and(versionField).is(expectedVersion == 0 ? null : expectedVersion);
+	}
+
+	/*
+	 * The user's UserNews, projected to the NewsSummary fields of every newslist element,
+	 * so MongoDB leaves out the description, content, urls and reminder of each news.
+	 */
+
+	static Query newsSummariesOfUser(String userId) {
+		Query user = new Query(Criteria.where("userId").is(userId));
+		for(String field : NewsSummary.SUMMARY_FIELDS) {
+			user.fields().include("newslist." + field);
+		}
+		return user;
+	}
+
+	static Update pullNews(int newsId) {
+		return new Update().pull("newslist", new Document("_id", newsId));
+	}
+
+	/*
+	 * $set of the editable fields of the newslist element matched by the query, which
+	 * also increments its version and takes over the changeStamp of the news.
+	 */
+
+	static Update setEditableFields(News news) {
+		return new Update()
+				.inc("newslist.$.version", 1)
+				.set("newslist.$.lastModifiedAt", LocalDateTime.now())
+				.set("newslist.$.changeStamp", news.getChangeStamp())
+				.set("newslist.$.author", news.getAuthor())
+				.set("newslist.$.content", news.getContent())
+				.set("newslist.$.description", news.getDescription())
+				.set("newslist.$.title", news.getTitle())
+				.set("newslist.$.url", news.getUrl())
+				.set("newslist.$.urlToImage", news.getUrlToImage())
+				.set("newslist.$.reminder", news.getReminder());
+	}
+
+	/* Pipeline stages turning the user's newslist into one document per news. */
+
+	static List<AggregationOperation> unwindNewslist(String userId) {
+		List<AggregationOperation> pipeline = new ArrayList<AggregationOperation>();
+		pipeline.add(Aggregation.match(Criteria.where("_id").is(userId)));
+		pipeline.add(Aggregation.unwind("newslist"));
+		pipeline.add(Aggregation.replaceRoot("newslist"));
+		return pipeline;
+	}
+
+	/* Pipeline of the user's news with the given newsIds, e.g. the matches of a search. */
+
+	static Aggregation newsWithIds(String userId, Collection<Integer> newsIds) {
+		List<AggregationOperation> pipeline = unwindNewslist(userId);
+		pipeline.add(Aggregation.match(Criteria.where("_id").in(newsIds)));
+		return Aggregation.newAggregation(pipeline);
+	}
+
+	/* Pipeline of the newsIds of the user's news among the given ones. */
+
+	static Aggregation newsIdsIn(String userId, Collection<Integer> newsIds) {
+		List<AggregationOperation> pipeline = unwindNewslist(userId);
+		pipeline.add(Aggregation.match(Criteria.where("_id").in(newsIds)));
+		pipeline.add(Aggregation.project("_id"));
+		return Aggregation.newAggregation(pipeline);
+	}
+
+	/* Pipeline of the user's news changed since the checkpoint of the sync, or all of them on a resync. */
+
+	static Aggregation newsChanges(String userId, NewsChangeLog.Sync sync) {
+		List<AggregationOperation> pipeline = unwindNewslist(userId);
+		if(!sync.isResync()) {
+			pipeline.add(Aggregation.match(sync.changedNews("")));
+		}
+		return Aggregation.newAggregation(pipeline);
+	}
+
+	/*
+	 * Pipeline of one page of the user's news past the cursor, newest first. It fetches
+	 * pageSize + 1 news, see NewsPage.of.
+	 */
+
+	static Aggregation newsPage(String userId, NewsCursor after, int pageSize) {
+		List<AggregationOperation> pipeline = unwindNewslist(userId);
+		if(after != null && after.getNewsId() == null) {
+			pipeline.add(Aggregation.match(Criteria.where("publishedAt").lt(after.getPublishedAtDate())));
+		}
+		else if(after != null) {
+			pipeline.add(Aggregation.match(new Criteria().orOperator(
+					Criteria.where("publishedAt").lt(after.getPublishedAtDate()),
+					Criteria.where("publishedAt").is(after.getPublishedAtDate()).and("_id").lt(after.getNewsId()))));
+		}
+		pipeline.add(Aggregation.sort(NEWEST_FIRST));
+		pipeline.add(Aggregation.limit(pageSize + 1L));
+		return Aggregation.newAggregation(pipeline);
+	}
+}
@@ -0,0 +1,126 @@
+package com.stackroute.newz.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSummary;
+
+/*
+ * Strong entity tags of the news read handlers, derived from the version of each news
+ * so that the response body is neither serialized nor hashed to compute them.
+ */
+public final class ETags {
+
+	private ETags() {
+	}
+
+	/*
+	 * "newsId-version" of one news, or "newsId-version.sourceVersion" when the news
+	 * shows a news source at a version of NewsSourceService, so that updating the
+	 * source changes the tag of the news that show it.
+	 */
+
+	public static String of(News news) {
+		Long sourceVersion = sourceVersionOf(news);
+		return "\"" + news.getNewsId() + "-" + versionOf(news.getVersion()) + (sourceVersion == null ? "" : "." + sourceVersion) + "\"";
+	}
+
+	/*
+	 * "size-hash" of a list of news, hashing the "newsId:version:sourceVersion" of each
+	 * news in order, so that adding, removing, reordering or updating a news or its
+	 * news source changes it.
+	 */
+
+	public static String ofAll(List<News> newsList) {
+		StringBuilder tuples = new StringBuilder();
+		for(News news : newsList) {
+			tuples.append(news.getNewsId()).append(':').append(versionOf(news.getVersion()))
+					.append(':').append(versionOf(sourceVersionOf(news))).append(',');
+		}
+		return "\"" + newsList.size() + "-" + hashOf(tuples) + "\"";
+	}
+
+	/*
+	 * "s-size-hash" of a list of news summaries, hashed like ofAll. The prefix keeps it
+	 * apart from the tag of the full list of the same news.
+	 */
+
+	public static String ofSummaries(List<NewsSummary> summaries) {
+		StringBuilder tuples = new StringBuilder();
+		for(NewsSummary summary : summaries) {
+			tuples.append(summary.getNewsId()).append(':').append(versionOf(summary.getVersion())).append(',');
+		}
+		return "\"s-" + summaries.size() + "-" + hashOf(tuples) + "\"";
+	}
+
+	/*
+	 * The version that a conditional write on the news expects, taken from the
+	 * If-Match header. Returns null when there is no header or it is "*". Throws
+	 * IllegalArgumentException for anything other than one strong tag of this
+	 * news, since such a header can never match. The version of the news source in
+	 * the tag is ignored, as writes to the news leave its news source alone.
+	 */
+
+	public static Long expectedVersion(String ifMatch, int newsId) {
+		if(ifMatch == null || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		String tag = ifMatch.trim();
+		String prefix = "\"" + newsId + "-";
+		if(!tag.startsWith(prefix) || !tag.endsWith("\"") || tag.length() <= prefix.length() + 1) {
+			throw new IllegalArgumentException("If-Match does not match news " + newsId + ": " + ifMatch);
+		}
+		String version = tag.substring(prefix.length(), tag.length() - 1);
+		int sourceVersionAt = version.indexOf('.');
+		return Long.valueOf(sourceVersionAt < 0 ? version : version.substring(0, sourceVersionAt));
+	}
+
+	/*
+	 * 200(OK) with the validators of a response. Spring MVC and WebFlux turn it into
+	 * 304(NOT MODIFIED), without writing the body, for a GET whose If-None-Match or
+	 * If-Modified-Since header still matches. "no-cache" makes clients revalidate
+	 * every time instead of guessing a freshness lifetime from Last-Modified.
+	 */
+	public static ResponseEntity.BodyBuilder okWithValidators(String eTag, LocalDateTime lastModifiedAt) {
+		ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache());
+		if(lastModifiedAt != null) {
+			ok.lastModified(lastModifiedAt.atZone(ZoneId.systemDefault()));
+		}
+		return ok;
+	}
+
+	private static long versionOf(Long version) {
+		return version == null ? 0 : version;
+	}
+
+	private static Long sourceVersionOf(News news) {
+		return news.getNewsSource() == null ? null : news.getNewsSource().getVersion();
+	}
+
+	/*
+	 * First 128 bits of the SHA-256 of delimited tuples, in hex. Unlike a polynomial
+	 * hash of the bare numbers, no two different lists of tuples can be made to share
+	 * a tag by shifting one number into another.
+	 */
+
+	private static String hashOf(CharSequence tuples) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(tuples.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(32);
+			for(int i = 0; i < 16; i++) {
+				hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.stackroute.newz.util.exception;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/*
+ * A conditional write found the news at another version than the one it expected,
+ * i.e. the news was changed since the client read it. The controllers answer it
+ * with 412(PRECONDITION FAILED).
+ */
+public class NewsVersionConflictException extends OptimisticLockingFailureException {
+
+	private static final long serialVersionUID = 1L;
+
+	public NewsVersionConflictException(String message) {
+		super(message);
+	}
+}
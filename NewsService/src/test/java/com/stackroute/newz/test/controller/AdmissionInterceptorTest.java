@@ -0,0 +1,244 @@
+package com.stackroute.newz.test.controller;
+
+import com.stackroute.newz.config.AdmissionBodyAdvice;
+import com.stackroute.newz.config.AdmissionInterceptor;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.util.AdaptiveConcurrencyLimit;
+import com.stackroute.newz.util.TokenBuckets;
+import com.stackroute.newz.util.exception.TooManyRequestsException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AdmissionInterceptorTest {
+
+    private AtomicLong clock;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new AtomicLong();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void userOverItsRateGetsTooManyRequests() throws Exception {
+        AdmissionInterceptor interceptor = interceptor(new TokenBuckets(1, 2, 100, clock::get),
+                new AdaptiveConcurrencyLimit(10, 1, 10, 2.0, 0.9, 100));
+
+        assertTrue(admit(interceptor, request("Becky123"), new MockHttpServletResponse()));
+        assertTrue(admit(interceptor, request("Becky123"), new MockHttpServletResponse()));
+        MockHttpServletResponse refused = new MockHttpServletResponse();
+        assertFalse(admit(interceptor, request("Becky123"), refused));
+        assertEquals(429, refused.getStatus());
+        assertEquals("1", refused.getHeader("Retry-After"));
+        assertTrue(admit(interceptor, request("John123"), new MockHttpServletResponse()));
+        assertEquals(1, meterRegistry.get("newz.admission.rejected").tag("reason", "rate").counter().count());
+    }
+
+    @Test
+    public void requestsOverTheLimitAreShedUntilOneCompletes() throws Exception {
+        AdmissionInterceptor interceptor = interceptor(new TokenBuckets(100, 100, 100, clock::get),
+                new AdaptiveConcurrencyLimit(1, 1, 10, 2.0, 0.9, 100));
+        MockHttpServletRequest first = request("Becky123");
+        assertTrue(admit(interceptor, first, new MockHttpServletResponse()));
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        assertFalse(admit(interceptor, request("John123"), shed));
+        assertEquals(503, shed.getStatus());
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertTrue(admit(interceptor, request("John123"), new MockHttpServletResponse()));
+    }
+
+    @Test
+    public void requestsWithoutUserAreNotChargedToTheClientAddress() {
+        AdmissionInterceptor interceptor = interceptor(new TokenBuckets(1, 1, 100, clock::get),
+                new AdaptiveConcurrencyLimit(10, 1, 10, 2.0, 0.9, 100));
+
+        for(int i = 0; i < 3; i++) {
+            assertTrue(admit(interceptor, new MockHttpServletRequest("POST", "/api/v1/news/bulk"), new MockHttpServletResponse()));
+        }
+        assertEquals(0, meterRegistry.get("newz.admission.rejected").tag("reason", "rate").counter().count());
+    }
+
+    @Test
+    public void requestWithoutUserIsChargedToTheOwnerOfItsBody() {
+        AdmissionInterceptor interceptor = interceptor(new TokenBuckets(1, 1, 100, clock::get),
+                new AdaptiveConcurrencyLimit(10, 1, 10, 2.0, 0.9, 100));
+        AdmissionBodyAdvice advice = new AdmissionBodyAdvice(interceptor);
+        News news = new News();
+        news.setAuthor("Becky123");
+
+        MockHttpServletRequest first = new MockHttpServletRequest("POST", "/api/v1/news");
+        assertTrue(admit(interceptor, first, new MockHttpServletResponse()));
+        assertEquals(news, readBody(advice, first, news));
+        MockHttpServletRequest second = new MockHttpServletRequest("POST", "/api/v1/news");
+        assertTrue(admit(interceptor, second, new MockHttpServletResponse()));
+        TooManyRequestsException refused = assertThrows(TooManyRequestsException.class, () -> readBody(advice, second, news));
+        assertEquals(1, refused.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.get("newz.admission.rejected").tag("reason", "rate").counter().count());
+    }
+
+    @Test
+    public void lookupIsChargedToTheUserItIsMadeFor() {
+        AdmissionInterceptor interceptor = interceptor(new TokenBuckets(1, 1, 100, clock::get),
+                new AdaptiveConcurrencyLimit(10, 1, 10, 2.0, 0.9, 100));
+
+        assertTrue(admit(interceptor, lookupRequest("Becky123"), new MockHttpServletResponse()));
+        MockHttpServletResponse refused = new MockHttpServletResponse();
+        assertFalse(admit(interceptor, lookupRequest("Becky123"), refused));
+        assertEquals(429, refused.getStatus());
+        assertTrue(admit(interceptor, lookupRequest("John123"), new MockHttpServletResponse()));
+    }
+
+    @Test
+    public void shedRequestDoesNotUseUpATokenOfItsUser() {
+        AdmissionInterceptor interceptor = interceptor(new TokenBuckets(1, 1, 100, clock::get),
+                new AdaptiveConcurrencyLimit(1, 1, 10, 2.0, 0.9, 100));
+        MockHttpServletRequest first = request("John123");
+        assertTrue(admit(interceptor, first, new MockHttpServletResponse()));
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        assertFalse(admit(interceptor, request("Becky123"), shed));
+        assertEquals(503, shed.getStatus());
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertTrue(admit(interceptor, request("Becky123"), new MockHttpServletResponse()));
+    }
+
+    @Test
+    public void rateLimitedRequestGivesBackItsSlot() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 10, 2.0, 0.9, 100);
+        AdmissionInterceptor interceptor = interceptor(new TokenBuckets(1, 1, 100, clock::get), limit);
+
+        assertTrue(admit(interceptor, request("Becky123"), new MockHttpServletResponse()));
+        assertFalse(admit(interceptor, request("Becky123"), new MockHttpServletResponse()));
+        assertEquals(1, limit.getInFlight());
+    }
+
+    @Test
+    public void sustainedSlowdownShrinksTheLimitAndRecoveryGrowsIt() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 40, 2.0, 0.5, 100, clock::get);
+        for(int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        limit.release(millis(5));
+        limit.release(millis(50));
+        assertEquals(20, limit.getLimit());
+        limit.release(millis(50));
+        assertEquals(10, limit.getLimit());
+
+        limit.release(millis(50));
+        assertEquals(10, limit.getLimit());
+        clock.addAndGet(millis(50));
+        limit.release(millis(50));
+        assertEquals(5, limit.getLimit());
+
+        for(int i = 0; i < 15; i++) {
+            limit.release(millis(5));
+        }
+        for(int round = 0; round < 20; round++) {
+            int admitted = 0;
+            while(limit.tryAcquire()) {
+                admitted++;
+            }
+            for(int i = 0; i < admitted; i++) {
+                limit.release(millis(5));
+            }
+        }
+        assertEquals(0, limit.getInFlight());
+        assertTrue(limit.getLimit() > 5);
+    }
+
+    @Test
+    public void lightJitteryLoadKeepsTheLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 10, 200, 2.0, 0.9, 500, clock::get);
+        Random random = new Random(42);
+        for(int i = 0; i < 1000; i++) {
+            assertTrue(limit.tryAcquire());
+            long latency = millis(2 + random.nextInt(5));
+            clock.addAndGet(latency);
+            limit.release("GET /api/v1/news/{userId}", latency);
+        }
+        assertEquals(50, limit.getLimit());
+    }
+
+    @Test
+    public void routesAreComparedWithTheirOwnLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 5, 40, 2.0, 0.5, 100, clock::get);
+        for(int round = 0; round < 20; round++) {
+            for(int i = 0; i < 10; i++) {
+                assertTrue(limit.tryAcquire());
+            }
+            for(int i = 0; i < 10; i++) {
+                clock.addAndGet(millis(10));
+                limit.release(i % 2 == 0 ? "GET /api/v1/news/{userId}" : "GET /api/v1/news/{userId}/{newsId}",
+                        millis(i % 2 == 0 ? 50 : 5));
+            }
+        }
+        assertTrue(limit.getLimit() > 10);
+    }
+
+    @Test
+    public void fullBucketsAreDroppedPastMaxKeys() {
+        TokenBuckets buckets = new TokenBuckets(1, 1, 2, clock::get);
+        buckets.tryAcquire("user:Becky123");
+        buckets.tryAcquire("user:John123");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        buckets.tryAcquire("user:Mary123");
+        assertEquals(1, buckets.size());
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private AdmissionInterceptor interceptor(TokenBuckets userRequests, AdaptiveConcurrencyLimit concurrencyLimit) {
+        return new AdmissionInterceptor(userRequests, concurrencyLimit, meterRegistry);
+    }
+
+    private static Object readBody(AdmissionBodyAdvice advice, MockHttpServletRequest request, News news) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            return advice.afterBodyRead(news, null, null, News.class, null);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static MockHttpServletRequest lookupRequest(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/newssource");
+        request.addParameter("ids", "1,2");
+        request.addParameter("userId", userId);
+        request.addHeader("X-Newz-Service", "NewsService");
+        return request;
+    }
+
+    private static boolean admit(AdmissionInterceptor interceptor, MockHttpServletRequest request, MockHttpServletResponse response) {
+        return interceptor.preHandle(request, response, null);
+    }
+
+    private static MockHttpServletRequest request(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/news/" + userId);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.singletonMap("userId", userId));
+        return request;
+    }
+}
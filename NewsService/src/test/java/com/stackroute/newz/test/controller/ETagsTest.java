@@ -0,0 +1,66 @@
+package com.stackroute.newz.test.controller;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.NewsSummary;
+import com.stackroute.newz.util.ETags;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ETagsTest {
+
+    @Test
+    public void listTagsOfDifferentNewsDiffer() {
+        assertNotEquals(ETags.ofAll(Collections.singletonList(news(1, 32))),
+                ETags.ofAll(Collections.singletonList(news(2, 1))));
+        assertNotEquals(ETags.ofAll(Arrays.asList(news(1, 1), news(40, 1))),
+                ETags.ofAll(Arrays.asList(news(1, 2), news(9, 1))));
+        assertNotEquals(ETags.ofAll(Arrays.asList(news(1, 1), news(2, 1))),
+                ETags.ofAll(Arrays.asList(news(2, 1), news(1, 1))));
+    }
+
+    @Test
+    public void listTagOfTheSameNewsIsStable() {
+        assertEquals(ETags.ofAll(Arrays.asList(news(1, 3), news(2, 1))),
+                ETags.ofAll(Arrays.asList(news(1, 3), news(2, 1))));
+    }
+
+    @Test
+    public void summaryTagsOfDifferentNewsDiffer() {
+        assertNotEquals(ETags.ofSummaries(NewsSummary.ofAll(Collections.singletonList(news(1, 32)))),
+                ETags.ofSummaries(NewsSummary.ofAll(Collections.singletonList(news(2, 1)))));
+        assertNotEquals(ETags.ofSummaries(NewsSummary.ofAll(Arrays.asList(news(1, 1), news(40, 1)))),
+                ETags.ofSummaries(NewsSummary.ofAll(Arrays.asList(news(1, 2), news(9, 1)))));
+        assertNotEquals(ETags.ofAll(Arrays.asList(news(1, 1))),
+                ETags.ofSummaries(NewsSummary.ofAll(Arrays.asList(news(1, 1)))));
+    }
+
+    @Test
+    public void tagsChangeWithTheVersionOfTheNewsSource() {
+        News news = news(1, 2);
+        String withoutSource = ETags.of(news);
+        String listWithoutSource = ETags.ofAll(Collections.singletonList(news));
+        NewsSource newsSource = new NewsSource();
+        newsSource.setNewsSourceId(7);
+        newsSource.setVersion(5L);
+        news.setNewssource(newsSource);
+
+        assertEquals("\"1-2.5\"", ETags.of(news));
+        assertNotEquals(listWithoutSource, ETags.ofAll(Collections.singletonList(news)));
+        assertEquals(Long.valueOf(2), ETags.expectedVersion(ETags.of(news), 1));
+        assertEquals(Long.valueOf(2), ETags.expectedVersion(withoutSource, 1));
+    }
+
+    private static News news(int newsId, long version) {
+        News news = new News();
+        news.setNewsId(newsId);
+        news.setVersion(version);
+        return news;
+    }
+}
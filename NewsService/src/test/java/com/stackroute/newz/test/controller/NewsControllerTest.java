@@ -7,9 +7,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -17,25 +19,47 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.stackroute.newz.config.BinaryEncodingConfig;
 import com.stackroute.newz.controller.NewsController;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsVersionConflictException;
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSummary;
+import com.stackroute.newz.model.NewsSearchPage;
 import com.stackroute.newz.model.Reminder;
 import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.ETags;
 
 import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -52,6 +76,9 @@ class NewsControllerTest {
     @MockBean
     private NewsService newsService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
     @InjectMocks
     private NewsController newsController;
     
@@ -102,6 +129,16 @@ class NewsControllerTest {
 		.andExpect(status().isCreated()).andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void addNewsWithoutNewsIdIsRejected() throws Exception {
+        news.setNewsId(null);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news").contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+        verify(newsService, never()).addNews(any());
+    }
+
     @Test
     public void addNewsFailure() throws Exception {
         when(newsService.addNews(any())).thenReturn(false);
@@ -181,6 +218,43 @@ class NewsControllerTest {
                 .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void updateNewsIfMatchReturnsNewETag() throws Exception {
+
+        news.setVersion(3L);
+        when(newsService.updateNews(any(), eq(news.getNewsId()), eq("Becky123"), eq(2L))).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/news/Becky123/1")
+                .header("If-Match", "\"1-2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-3\""))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void updateNewsIfMatchConflict() throws Exception {
+
+        when(newsService.updateNews(any(), eq(news.getNewsId()), eq("Becky123"), eq(2L)))
+                .thenThrow(new NewsVersionConflictException("changed"));
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/news/Becky123/1")
+                .header("If-Match", "\"1-2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(news)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void deleteNewsIfMatchConflict() throws Exception {
+
+        when(newsService.deleteNews("Becky123", 1, 2L)).thenThrow(new NewsVersionConflictException("changed"));
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/news/Becky123/1")
+                .header("If-Match", "\"1-2\""))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
 
     @Test
     public void getNewsByIdSuccess() throws Exception {
@@ -193,6 +267,35 @@ class NewsControllerTest {
     }
 
 
+    @Test
+    public void getNewsByIdSendsETag() throws Exception {
+
+        news.initVersion();
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-1\""))
+                .andExpect(MockMvcResultMatchers.header().exists("Last-Modified"));
+    }
+
+
+    @Test
+    public void getNewsByIdNotModified() throws Exception {
+
+        news.initVersion();
+        when(newsService.getNewsByNewsId("Becky123", 1)).thenReturn(news);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/1")
+                .header("If-None-Match", ETags.of(news)))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        news.nextVersion();
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/1")
+                .header("If-None-Match", "\"1-1\""))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+
     @Test
     public void getNewsByIdFailure() throws Exception {
 
@@ -212,6 +315,28 @@ class NewsControllerTest {
                 .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void getAllNewsByUserIdNotModified() throws Exception {
+        when(newsService.getAllNewsByUserId("Becky123")).thenReturn(newsList);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
+                .header("If-None-Match", ETags.ofAll(newsList)))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+    }
+
+    @Test
+    public void getAllNewsByUserIdAsCbor() throws Exception {
+        when(newsService.getAllNewsByUserId("Becky123")).thenReturn(newsList);
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
+                .accept(BinaryEncodingConfig.APPLICATION_CBOR_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(BinaryEncodingConfig.APPLICATION_CBOR_VALUE))
+                .andReturn();
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory()).registerModule(new JavaTimeModule());
+        List<News> decoded = cborMapper.readValue(result.getResponse().getContentAsByteArray(), new TypeReference<List<News>>() {});
+        assertEquals(newsList.size(), decoded.size());
+        assertEquals(news.getTitle(), decoded.get(0).getTitle());
+    }
+
     @Test
     public void getAllNewsByUserIdFailure() throws Exception {
         when(newsService.getAllNewsByUserId("Becky123")).thenReturn(null);
@@ -221,6 +346,149 @@ class NewsControllerTest {
                 .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void getNewsChangesByUserIdSuccess() throws Exception {
+        NewsCheckpoint since = new NewsCheckpoint(4, LocalDateTime.now());
+        NewsChanges changes = new NewsChanges(newsList, Collections.singletonList(2), false, new NewsCheckpoint(6, LocalDateTime.now()).encode());
+        when(newsService.getNewsChangesByUserId(eq("Becky123"), any(NewsCheckpoint.class))).thenReturn(changes);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/changes?since=" + since.encode())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changed[0].newsId").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.deleted[0]").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.resync").value(false))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getNewsChangesByUserIdInvalidCheckpoint() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/changes?since=not-a-checkpoint")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void getNewsSummariesByUserIdSuccess() throws Exception {
+        when(newsService.getNewsSummariesByUserId("Becky123")).thenReturn(NewsSummary.ofAll(newsList));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123?view=summary")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", ETags.ofSummaries(NewsSummary.ofAll(newsList))))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value(news.getTitle()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].content").doesNotExist())
+                .andDo(MockMvcResultHandlers.print());
+        verify(newsService, never()).getAllNewsByUserId("Becky123");
+    }
+
+    @Test
+    public void getNewsSummariesByUserIdFailure() throws Exception {
+        when(newsService.getNewsSummariesByUserId("Becky123")).thenReturn(null);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123?view=summary")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void getNewsPageByUserIdSuccess() throws Exception {
+        when(newsService.getNewsPageByUserId(eq("Becky123"), isNull(), eq(NewsPage.MAX_PAGE_SIZE)))
+                .thenReturn(new NewsPage(newsList, NewsCursor.after(news).encode()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123?limit=1000")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.news[0].newsId").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(NewsCursor.after(news).encode()))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getNewsPageByUserIdInvalidCursor() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123?limit=10&after=not-a-cursor")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void searchNewsSuccess() throws Exception {
+        when(newsService.searchNews("Becky123", "IPL match", 0, 20)).thenReturn(new NewsSearchPage(newsList, 1));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/search?q=IPL match")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.news[0].newsId").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextPage").value(1))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void searchNewsBlankQuery() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123/search?q= ")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void streamAllNewsByUserIdSuccess() throws Exception {
+        when(newsService.streamAllNewsByUserId("Becky123")).thenReturn(Stream.of(news, news));
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/news/Becky123")
+                .accept(NewsController.APPLICATION_NDJSON_VALUE))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(NewsController.APPLICATION_NDJSON_VALUE))
+                .andDo(MockMvcResultHandlers.print());
+        assertEquals(2, result.getResponse().getContentAsString().split("\n").length);
+    }
+
+    @Test
+    public void createAllNewsSuccess() throws Exception {
+        when(newsService.addAllNews(any())).thenReturn(Arrays.asList(
+                NewsIngestResult.of(news, NewsIngestResult.Status.CREATED)));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news/bulk").contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(newsList)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("CREATED"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void createAllNewsRejectsTooManyNews() throws Exception {
+        ReflectionTestUtils.setField(newsController, "maxBulkNews", newsList.size() - 1);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news/bulk").contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(newsList)))
+                .andExpect(MockMvcResultMatchers.status().isPayloadTooLarge())
+                .andDo(MockMvcResultHandlers.print());
+        verify(newsService, never()).addAllNews(any());
+    }
+
+    @Test
+    public void createAllNewsFromStreamChunksByTheBatchSize() throws Exception {
+        ReflectionTestUtils.setField(newsController, "ingestChunkSize", 1);
+        when(newsService.addAllNews(any())).thenReturn(Arrays.asList(
+                NewsIngestResult.of(news, NewsIngestResult.Status.CREATED)));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news/bulk")
+                .contentType(NewsController.APPLICATION_NDJSON_VALUE)
+                .content(asJsonString(news) + "\n" + asJsonString(news) + "\n"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andDo(MockMvcResultHandlers.print());
+        verify(newsService, times(2)).addAllNews(any());
+    }
+
+    @Test
+    public void createAllNewsFromStreamSuccess() throws Exception {
+        when(newsService.addAllNews(any())).thenReturn(Arrays.asList(
+                NewsIngestResult.of(news, NewsIngestResult.Status.CREATED),
+                NewsIngestResult.of(news, NewsIngestResult.Status.CONFLICT)));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/news/bulk")
+                .contentType(NewsController.APPLICATION_NDJSON_VALUE)
+                .content(asJsonString(news) + "\n" + asJsonString(news) + "\n"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("CONFLICT"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
     private static String asJsonString(final Object obj) {
         try {
         	ObjectMapper objmapper = new ObjectMapper();
@@ -0,0 +1,144 @@
+package com.stackroute.newz.test.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.stackroute.newz.config.ReactiveWebConfig;
+import com.stackroute.newz.controller.NewsController;
+import com.stackroute.newz.controller.ReactiveNewsController;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.service.ReactiveNewsService;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * Binds ReactiveNewsController with the codecs of ReactiveWebConfig, without a server.
+ */
+class ReactiveNewsControllerTest {
+
+    private WebTestClient webTestClient;
+
+    private News news;
+
+    @Mock
+    private ReactiveNewsService newsService;
+
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @BeforeEach
+    public void setUp() {
+
+        MockitoAnnotations.initMocks(this);
+        webTestClient = WebTestClient.bindToController(new ReactiveNewsController(newsService))
+                .httpMessageCodecs(new ReactiveWebConfig().ndjsonCodecCustomizer(objectMapper)::customize)
+                .build();
+
+        news = new News();
+        news.setNewsId(1);
+        news.setTitle("IPLT20 Match - 01");
+        news.setAuthor("John");
+        news.setDescription("Ipl match 01 - CSK Vs RCB");
+        news.setContent("CSK vs RCB match scheduled for 4 PM");
+    }
+
+    @Test
+    public void createNewsSuccess() {
+        when(newsService.addNews(any())).thenReturn(Mono.just(true));
+        webTestClient.post().uri("/api/v1/news").contentType(MediaType.APPLICATION_JSON).bodyValue(news)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.newsId").isEqualTo(1);
+    }
+
+    @Test
+    public void createNewsWithoutNewsIdIsRejected() {
+        news.setNewsId(null);
+        webTestClient.post().uri("/api/v1/news").contentType(MediaType.APPLICATION_JSON).bodyValue(news)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(newsService, never()).addNews(any());
+    }
+
+    @Test
+    public void createNewsFailure() {
+        when(newsService.addNews(any())).thenReturn(Mono.just(false));
+        webTestClient.post().uri("/api/v1/news").contentType(MediaType.APPLICATION_JSON).bodyValue(news)
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void deleteAllNewsFailure() {
+        when(newsService.deleteAllNews("John")).thenReturn(Mono.error(new NewsNotFoundException("not found")));
+        webTestClient.delete().uri("/api/v1/news/John")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getNewsByIdFailure() {
+        when(newsService.getNewsByNewsId("John", 1)).thenReturn(Mono.error(new NewsNotFoundException("not found")));
+        webTestClient.get().uri("/api/v1/news/John/1")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getAllNewsByUserIdSuccess() {
+        when(newsService.getAllNewsByUserId("John")).thenReturn(Flux.just(news, news));
+        webTestClient.get().uri("/api/v1/news/John").accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    public void getNewsPageWithInvalidCursor() {
+        webTestClient.get().uri("/api/v1/news/John?limit=10&after=not-a-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void streamAllNewsByUserIdAsNdjson() {
+        when(newsService.streamAllNewsByUserId("John")).thenReturn(Flux.just(news, news));
+        webTestClient.get().uri("/api/v1/news/John").accept(MediaType.parseMediaType(NewsController.APPLICATION_NDJSON_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType(NewsController.APPLICATION_NDJSON_VALUE))
+                .expectBody(String.class).value(body -> assertEquals(2, body.trim().split("\n").length));
+    }
+
+    @Test
+    public void createAllNewsFromNdjson() throws Exception {
+        when(newsService.addAllNews(any())).thenAnswer(invocation -> {
+            Flux<News> newsList = invocation.getArgument(0);
+            return newsList.map(each -> NewsIngestResult.of(each, NewsIngestResult.Status.CREATED));
+        });
+        String body = objectMapper.writeValueAsString(news) + "\n" + objectMapper.writeValueAsString(news) + "\n";
+        webTestClient.post().uri("/api/v1/news/bulk").contentType(MediaType.parseMediaType(NewsController.APPLICATION_NDJSON_VALUE))
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(NewsIngestResult.class).hasSize(2);
+    }
+}
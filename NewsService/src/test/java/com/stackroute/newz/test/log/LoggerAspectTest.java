@@ -0,0 +1,146 @@
+package com.stackroute.newz.test.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.newz.aspect.LoggerAspect;
+import com.stackroute.newz.controller.NewsController;
+import com.stackroute.newz.controller.ReactiveNewsController;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.ReactiveNewsService;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class LoggerAspectTest {
+
+    @Mock
+    private NewsService newsService;
+    @Mock
+    private ReactiveNewsService reactiveNewsService;
+    private LoggerAspect loggerAspect;
+    private NewsController newsController;
+    private ReactiveNewsController reactiveNewsController;
+    private Logger aspectLogger;
+    private ListAppender<ILoggingEvent> appender;
+    private List<News> newsList;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        loggerAspect = new LoggerAspect();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new NewsController(newsService, new ObjectMapper()));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(loggerAspect);
+        newsController = proxyFactory.getProxy();
+        AspectJProxyFactory reactiveProxyFactory = new AspectJProxyFactory(new ReactiveNewsController(reactiveNewsService));
+        reactiveProxyFactory.setProxyTargetClass(true);
+        reactiveProxyFactory.addAspect(loggerAspect);
+        reactiveNewsController = reactiveProxyFactory.getProxy();
+
+        aspectLogger = (Logger) LoggerFactory.getLogger(LoggerAspect.class);
+        appender = new ListAppender<>();
+        appender.start();
+        aspectLogger.addAppender(appender);
+
+        News news = new News();
+        news.setNewsId(1);
+        news.setTitle("IPLT20 Match - 01");
+        news.setAuthor("Becky123");
+        newsList = new ArrayList<>();
+        newsList.add(news);
+        newsList.add(news);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        aspectLogger.detachAppender(appender);
+    }
+
+    @Test
+    public void logsSummaryWithoutPayload() {
+        when(newsService.getAllNewsByUserId("Becky123")).thenReturn(newsList);
+        newsController.getAllNewsByUserId("Becky123");
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("method=getAllNewsByUserId args=[Becky123] status=200 items=2 durationMicros="));
+        assertFalse(message.contains("IPLT20"));
+    }
+
+    @Test
+    public void skipsCallsOutsideTheSample() {
+        ReflectionTestUtils.setField(loggerAspect, "sampleRate", 0.0);
+        when(newsService.getAllNewsByUserId("Becky123")).thenReturn(newsList);
+        newsController.getAllNewsByUserId("Becky123");
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    public void logsFailuresRegardlessOfSampling() {
+        ReflectionTestUtils.setField(loggerAspect, "sampleRate", 0.0);
+        when(newsService.getAllNewsByUserId("Becky123")).thenThrow(IllegalStateException.class);
+        assertThrows(IllegalStateException.class, () -> newsController.getAllNewsByUserId("Becky123"));
+
+        assertEquals(1, appender.list.size());
+        assertEquals(Level.WARN, appender.list.get(0).getLevel());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("failed=IllegalStateException"));
+    }
+
+    @Test
+    public void logsMonoResultsWhenTheyComplete() {
+        when(reactiveNewsService.getAllNewsByUserId("Becky123")).thenReturn(Flux.fromIterable(newsList));
+        Mono<?> response = reactiveNewsController.getAllNewsByUserId("Becky123");
+        assertTrue(appender.list.isEmpty());
+
+        response.block();
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage()
+                .startsWith("method=getAllNewsByUserId args=[Becky123] status=200 items=2 durationMicros="));
+    }
+
+    @Test
+    public void logsTheItemsOfFluxResults() {
+        when(reactiveNewsService.streamAllNewsByUserId("Becky123")).thenReturn(Flux.fromIterable(newsList));
+        reactiveNewsController.streamAllNewsByUserId("Becky123").blockLast();
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage()
+                .startsWith("method=streamAllNewsByUserId args=[Becky123] status=- items=2 durationMicros="));
+    }
+
+    @Test
+    public void logsFailedPublishersRegardlessOfSampling() {
+        ReflectionTestUtils.setField(loggerAspect, "sampleRate", 0.0);
+        when(reactiveNewsService.streamAllNewsByUserId("Becky123")).thenReturn(Flux.error(new IllegalStateException()));
+        Flux<?> response = reactiveNewsController.streamAllNewsByUserId("Becky123");
+        assertThrows(IllegalStateException.class, response::blockLast);
+
+        assertEquals(1, appender.list.size());
+        assertEquals(Level.WARN, appender.list.get(0).getLevel());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("failed=IllegalStateException"));
+    }
+}
@@ -0,0 +1,253 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsVersionConflictException;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.model.NewsCursor;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.NewsArticleRepository;
+import com.stackroute.newz.service.NewsArticleServiceImpl;
+import com.stackroute.newz.service.NewsCacheInvalidator;
+import com.stackroute.newz.service.NewsSearchIndex;
+import com.stackroute.newz.service.NewsChangeLog;
+import com.stackroute.newz.service.NewsSourceResolver;
+import com.stackroute.newz.service.ReminderScheduler;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class NewsArticleServiceImplTest {
+
+    private News news;
+    private NewsArticle article;
+    private NewsSource newsSource;
+    private Reminder reminder;
+    @Mock
+    private NewsArticleRepository articleRepository;
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private NewsCacheInvalidator cacheInvalidator;
+    @Mock
+    private ReminderScheduler reminderScheduler;
+    @Mock
+    private NewsSearchIndex searchIndex;
+    @Mock
+    private NewsSourceResolver newsSources;
+    @Mock
+    private NewsChangeLog changeLog;
+    @Mock
+    private BulkOperations bulkOperations;
+    @InjectMocks
+    private NewsArticleServiceImpl newsArticleServiceImpl;
+    private List<NewsArticle> articleList = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+
+        MockitoAnnotations.initMocks(this);
+
+        newsSource = new NewsSource();
+        newsSource.setNewsSourceId(1);
+        newsSource.setNewsSourceName("Cricket-Category");
+        newsSource.setNewsSourceDesc("All about IPL");
+        newsSource.setNewsSourceCreatedBy("Becky123");
+        newsSource.setNewsSourceCreationDate();
+
+        reminder = new Reminder();
+        reminder.setReminderId("5b0509731764e3096984eae6");
+        reminder.setSchedule();
+
+        news = new News();
+        news.setNewsId(1);
+        news.setTitle("IPLT20 Match - 01");
+        news.setAuthor("Becky123");
+        news.setDescription("Ipl match 01 - CSK Vs RCB");
+        news.setPublishedAt();
+        news.setContent("CSK vs RCB match scheduled for 4 PM");
+        news.setUrl("//CSKVsRCB.html");
+        news.setUrlToImage("//CSKVsRCB.png");
+        news.setReminder(reminder);
+        news.setNewssource(newsSource);
+
+        article = new NewsArticle("Becky123", news);
+        articleList = new ArrayList<>();
+        articleList.add(article);
+    }
+
+    @Test
+    public void addNewsSuccess() {
+        when(articleRepository.insert((NewsArticle) any())).thenReturn(article);
+        assertEquals(true, newsArticleServiceImpl.addNews(news));
+        assertEquals(Long.valueOf(1), news.getVersion());
+    }
+
+    @Test
+    public void addNewsWithoutNewsIdGetsGeneratedArticleId() {
+        when(articleRepository.insert((NewsArticle) any())).thenReturn(article);
+        news.setNewsId(null);
+        assertEquals(true, newsArticleServiceImpl.addNews(news));
+        ArgumentCaptor<NewsArticle> inserted = ArgumentCaptor.forClass(NewsArticle.class);
+        verify(articleRepository).insert(inserted.capture());
+        assertNull(inserted.getValue().getArticleId());
+    }
+
+    @Test
+    public void addNewsFailure() {
+        when(articleRepository.insert((NewsArticle) any())).thenThrow(DuplicateKeyException.class);
+        assertEquals(false, newsArticleServiceImpl.addNews(news));
+    }
+
+    @Test
+    public void deleteNewsSuccess() {
+        when(articleRepository.deleteByUserIdAndNewsId("Becky123", 1)).thenReturn(1L);
+        assertEquals(true, newsArticleServiceImpl.deleteNews("Becky123", 1));
+    }
+
+    @Test
+    public void deleteNewsFailure() {
+        when(articleRepository.deleteByUserIdAndNewsId("Becky123", 1)).thenReturn(0L);
+        assertEquals(false, newsArticleServiceImpl.deleteNews("Becky123", 1));
+    }
+
+    @Test
+    public void deleteAllNewsFailure() {
+        when(articleRepository.deleteAllByUserId("Becky123")).thenReturn(0L);
+        assertThrows(
+        		NewsNotFoundException.class,
+                    () -> { newsArticleServiceImpl.deleteAllNews("Becky123"); });
+    }
+
+    @Test
+    public void updateNewsSuccess() throws NewsNotFoundException {
+        when(articleRepository.findByUserIdAndNewsId("Becky123", 1)).thenReturn(Optional.of(article));
+        when(mongoOperations.findAndReplace(any(Query.class), eq(article))).thenReturn(article);
+        News update = new News();
+        update.setAuthor("Becky123");
+        update.setContent("Match cancelled");
+        News fetchedNews = newsArticleServiceImpl.updateNews(update, 1, "Becky123");
+        assertEquals("Match cancelled", fetchedNews.getContent());
+        assertEquals(Long.valueOf(1), fetchedNews.getVersion());
+        verify(mongoOperations).findAndReplace(any(Query.class), eq(article));
+    }
+
+    @Test
+    public void updateNewsGivesUpAfterMaxAttempts() {
+        when(articleRepository.findByUserIdAndNewsId("Becky123", 1)).thenReturn(Optional.of(article));
+        when(mongoOperations.findAndReplace(any(Query.class), eq(article))).thenReturn(null);
+        assertThrows(
+        		NewsVersionConflictException.class,
+                    () -> { newsArticleServiceImpl.updateNews(news, 1, "Becky123"); });
+        verify(mongoOperations, times(3)).findAndReplace(any(Query.class), eq(article));
+    }
+
+    @Test
+    public void updateNewsAtOtherVersionConflicts() {
+        news.setVersion(2L);
+        when(articleRepository.findByUserIdAndNewsId("Becky123", 1)).thenReturn(Optional.of(article));
+        assertThrows(
+        		NewsVersionConflictException.class,
+                    () -> { newsArticleServiceImpl.updateNews(news, 1, "Becky123", 1L); });
+        verify(mongoOperations, never()).findAndReplace(any(Query.class), any(NewsArticle.class));
+    }
+
+    @Test
+    public void updateNewsFailure() {
+        when(articleRepository.findByUserIdAndNewsId("Becky123", 1)).thenReturn(Optional.empty());
+        assertThrows(
+        		NewsNotFoundException.class,
+                    () -> { newsArticleServiceImpl.updateNews(news, 1, "Becky123"); });
+    }
+
+    @Test
+    public void getNewsByNewsIdSuccess() throws NewsNotFoundException {
+        when(articleRepository.findByUserIdAndNewsId("Becky123", 1)).thenReturn(Optional.of(article));
+        assertEquals(news, newsArticleServiceImpl.getNewsByNewsId("Becky123", 1));
+    }
+
+    @Test
+    public void getAllNewsByUserId() {
+        when(articleRepository.findAllByUserId("Becky123")).thenReturn(articleList);
+        List<News> allNews = newsArticleServiceImpl.getAllNewsByUserId("Becky123");
+        assertEquals(1, allNews.size());
+        assertEquals(news, allNews.get(0));
+    }
+
+    @Test
+    public void getAllNewsByUserIdNotFound() {
+        when(articleRepository.findAllByUserId("Becky123")).thenReturn(new ArrayList<>());
+        assertNull(newsArticleServiceImpl.getAllNewsByUserId("Becky123"));
+    }
+
+    @Test
+    public void getNewsPageByUserIdAfterCursor() {
+        when(mongoOperations.find(any(Query.class), eq(NewsArticle.class))).thenReturn(articleList);
+        NewsPage page = newsArticleServiceImpl.getNewsPageByUserId("Becky123", NewsCursor.after(news), 10);
+        assertEquals(1, page.getNews().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void getNewsPageByUserIdAfterNewsWithoutNewsId() {
+        news.setNewsId(null);
+        NewsCursor after = NewsCursor.decode(NewsCursor.after(news).encode());
+        assertNull(after.getNewsId());
+        when(mongoOperations.find(any(Query.class), eq(NewsArticle.class))).thenReturn(articleList);
+
+        newsArticleServiceImpl.getNewsPageByUserId("Becky123", after, 10);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).find(query.capture(), eq(NewsArticle.class));
+        assertFalse(query.getValue().getQueryObject().containsKey("$or"));
+    }
+
+    @Test
+    public void addAllNewsReportsDuplicateKeysAsConflicts() {
+        News newNews = new News();
+        newNews.setNewsId(2);
+        newNews.setAuthor("Becky123");
+        BulkOperationException duplicateKey = mock(BulkOperationException.class);
+        when(duplicateKey.getErrors()).thenReturn(
+                Collections.singletonList(new BulkWriteError(11000, "duplicate key", new BasicDBObject(), 0)));
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, NewsArticle.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(duplicateKey);
+
+        List<NewsIngestResult> results = newsArticleServiceImpl.addAllNews(Arrays.asList(news, newNews));
+
+        assertEquals(NewsIngestResult.Status.CONFLICT, results.get(0).getStatus());
+        assertEquals(NewsIngestResult.Status.CREATED, results.get(1).getStatus());
+        verify(bulkOperations, times(2)).insert(any(NewsArticle.class));
+        verify(cacheInvalidator).evictUser("Becky123");
+    }
+}
@@ -0,0 +1,170 @@
+package com.stackroute.newz.test.service;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.stackroute.newz.config.CacheConfig;
+import com.stackroute.newz.model.NewsArticle;
+import com.stackroute.newz.service.NewsCacheInvalidator;
+import com.stackroute.newz.service.NewsChangeListener;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.ErrorHandler;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+/*
+ * Feeds change stream events, as the driver decodes them, to a NewsChangeListener
+ * evicting from the Caffeine caches of CacheConfig.
+ */
+public class NewsChangeListenerTest {
+
+    private static final String SPEC = "maximumSize=100";
+
+    private CacheManager cacheManager;
+    private Cache newsCache;
+    private Cache userNewsCache;
+    private Cache newsSourceCache;
+    private NewsChangeListener newsChangeListener;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager = new CacheConfig().cacheManager(SPEC, SPEC, SPEC);
+        ((SimpleCacheManager) cacheManager).afterPropertiesSet();
+        newsCache = cacheManager.getCache(CacheConfig.NEWS_CACHE);
+        userNewsCache = cacheManager.getCache(CacheConfig.USER_NEWS_CACHE);
+        newsSourceCache = cacheManager.getCache(CacheConfig.NEWS_SOURCE_CACHE);
+        newsChangeListener = new NewsChangeListener(new NewsCacheInvalidator(cacheManager));
+
+        newsCache.put("Becky123:1", "news 1");
+        newsCache.put("Becky123:2", "news 2");
+        newsCache.put("John456:1", "news 1 of John456");
+        userNewsCache.put("Becky123", "news of Becky123");
+        userNewsCache.put("John456", "news of John456");
+        newsSourceCache.put(1, "news source 1");
+    }
+
+    @Test
+    public void userNewsChangeEvictsAllNewsOfTheUser() {
+        newsChangeListener.onUserNewsChange(event(OperationType.UPDATE, new BsonString("Becky123"), null));
+        assertNull(newsCache.get("Becky123:1"));
+        assertNull(newsCache.get("Becky123:2"));
+        assertNull(userNewsCache.get("Becky123"));
+        assertNotNull(newsCache.get("John456:1"));
+        assertNotNull(userNewsCache.get("John456"));
+    }
+
+    @Test
+    public void deletedArticleEvictsItsNews() {
+        newsChangeListener.onNewsArticleChange(event(OperationType.DELETE, new BsonString(NewsArticle.idOf("Becky123", 1)), null));
+        assertNull(newsCache.get("Becky123:1"));
+        assertNull(userNewsCache.get("Becky123"));
+        assertNotNull(newsCache.get("Becky123:2"));
+    }
+
+    @Test
+    public void updatedLegacyArticleEvictsNewsOfFullDocument() {
+        Document fullDocument = new Document("userId", "Becky123").append("newsId", 2);
+        newsChangeListener.onNewsArticleChange(event(OperationType.UPDATE, new BsonObjectId(new ObjectId()), fullDocument));
+        assertNull(newsCache.get("Becky123:2"));
+        assertNotNull(newsCache.get("Becky123:1"));
+    }
+
+    @Test
+    public void deletedLegacyArticleEvictsEverything() {
+        newsChangeListener.onNewsArticleChange(event(OperationType.DELETE, new BsonObjectId(new ObjectId()), null));
+        assertNull(newsCache.get("John456:1"));
+        assertNull(userNewsCache.get("John456"));
+    }
+
+    @Test
+    public void newsSourceChangeEvictsTheNewsSourceAndTheNewsOfItsOwner() {
+        Document fullDocument = new Document("_id", 1).append("newsSourceCreatedBy", "Becky123");
+        newsChangeListener.onNewsSourceChange(event(OperationType.REPLACE, new BsonInt32(1), fullDocument));
+        assertNull(newsSourceCache.get(1));
+        assertNull(newsCache.get("Becky123:1"));
+        assertNull(userNewsCache.get("Becky123"));
+        assertNotNull(newsCache.get("John456:1"));
+    }
+
+    @Test
+    public void deletedNewsSourceEvictsAllNews() {
+        newsSourceCache.put(2, "news source 2");
+        newsChangeListener.onNewsSourceChange(event(OperationType.DELETE, new BsonInt32(1), null));
+        assertNull(newsSourceCache.get(1));
+        assertNull(newsCache.get("John456:1"));
+        assertNull(userNewsCache.get("John456"));
+        assertNotNull(newsSourceCache.get(2));
+    }
+
+    @Test
+    public void failedChangeStreamEvictsEverything() {
+        newsChangeListener.onError(new IllegalStateException("connection reset"));
+        assertNull(newsCache.get("Becky123:1"));
+        assertNull(newsSourceCache.get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedChangeStreamIsReadAgain() throws Exception {
+        ReflectionTestUtils.setField(newsChangeListener, "restartMinMillis", 1L);
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        Subscription subscription = mock(Subscription.class);
+        when(subscription.await(any(Duration.class))).thenReturn(true);
+        when(container.register(any(ChangeStreamRequest.class), eq(Document.class), any(ErrorHandler.class))).thenReturn(subscription);
+        newsChangeListener.watch(container, ChangeStreamRequest.<Document>builder(message -> newsChangeListener.onUserNewsChange(message.getRaw()))
+                .collection("userNews")
+                .build());
+        ArgumentCaptor<ErrorHandler> errorHandler = ArgumentCaptor.forClass(ErrorHandler.class);
+        verify(container).register(any(ChangeStreamRequest.class), eq(Document.class), errorHandler.capture());
+
+        errorHandler.getValue().handleError(new IllegalStateException("not primary"));
+        assertNull(newsCache.get("Becky123:1"));
+        newsCache.put("Becky123:1", "news 1");
+        ArgumentCaptor<ChangeStreamRequest> request = ArgumentCaptor.forClass(ChangeStreamRequest.class);
+        verify(container, timeout(1000).times(2)).register(request.capture(), eq(Document.class), any(ErrorHandler.class));
+        verify(container).remove(subscription);
+        for(int waited = 0; newsCache.get("Becky123:1") != null && waited < 1000; waited++) {
+            Thread.sleep(1);
+        }
+        assertNull(newsCache.get("Becky123:1"));
+
+        newsCache.put("Becky123:1", "news 1");
+        newsCache.put("John456:1", "news 1 of John456");
+        Message<ChangeStreamDocument<Document>, Document> message = mock(Message.class);
+        when(message.getRaw()).thenReturn(event(OperationType.UPDATE, new BsonString("Becky123"), null));
+        request.getValue().getMessageListener().onMessage(message);
+        assertNull(newsCache.get("Becky123:1"));
+        assertNotNull(newsCache.get("John456:1"));
+    }
+
+    private static ChangeStreamDocument<Document> event(OperationType operationType, BsonValue id, Document fullDocument) {
+        return new ChangeStreamDocument<Document>(operationType, new BsonDocument(), null, null, fullDocument,
+                new BsonDocument("_id", id), null, null);
+    }
+}
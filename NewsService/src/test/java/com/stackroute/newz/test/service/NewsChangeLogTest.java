@@ -0,0 +1,146 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsChangeCounter;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsTombstone;
+import com.stackroute.newz.service.NewsChangeLog;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class NewsChangeLogTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @InjectMocks
+    private NewsChangeLog changeLog;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void stampAllClaimsOneRangePerAuthor() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(NewsChangeCounter.class)))
+                .thenReturn(counter(12, 0));
+        News first = news(1);
+        News second = news(2);
+
+        changeLog.stampAll(Arrays.asList(first, second));
+
+        assertEquals(Long.valueOf(11), first.getChangeStamp());
+        assertEquals(Long.valueOf(12), second.getChangeStamp());
+        ArgumentCaptor<Update> claim = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).findAndModify(any(Query.class), claim.capture(), any(FindAndModifyOptions.class), eq(NewsChangeCounter.class));
+        assertEquals(2, claim.getValue().getUpdateObject().get("$inc", Document.class).get("stamp"));
+    }
+
+    @Test
+    public void beginWithoutCheckpointResyncs() {
+        when(mongoOperations.findOne(any(Query.class), eq(NewsChangeCounter.class))).thenReturn(counter(5, 0));
+
+        NewsChangeLog.Sync sync = changeLog.begin("Becky123", null);
+        NewsChanges changes = changeLog.changes(sync, Collections.singletonList(news(1)), newsIds -> newsIds);
+
+        assertTrue(changes.isResync());
+        assertEquals(5, NewsCheckpoint.decode(changes.getCheckpoint()).getStamp());
+        verify(mongoOperations, never()).find(any(Query.class), eq(NewsTombstone.class));
+    }
+
+    @Test
+    public void beginBeforeDeleteAllResyncs() {
+        when(mongoOperations.findOne(any(Query.class), eq(NewsChangeCounter.class))).thenReturn(counter(9, 7));
+        assertTrue(changeLog.begin("Becky123", new NewsCheckpoint(6, LocalDateTime.now())).isResync());
+        assertFalse(changeLog.begin("Becky123", new NewsCheckpoint(7, LocalDateTime.now())).isResync());
+    }
+
+    @Test
+    public void changesListDeletedNewsUnlessAddedAgain() {
+        when(mongoOperations.findOne(any(Query.class), eq(NewsChangeCounter.class))).thenReturn(counter(9, 0));
+        when(mongoOperations.find(any(Query.class), eq(NewsTombstone.class))).thenReturn(Arrays.asList(tombstone(1), tombstone(2)));
+
+        NewsChangeLog.Sync sync = changeLog.begin("Becky123", new NewsCheckpoint(4, LocalDateTime.now()));
+        NewsChanges changes = changeLog.changes(sync, Collections.singletonList(news(1)), newsIds -> Collections.emptyList());
+
+        assertFalse(changes.isResync());
+        assertEquals(Collections.singletonList(2), changes.getDeleted());
+        assertEquals(9, NewsCheckpoint.decode(changes.getCheckpoint()).getStamp());
+    }
+
+    @Test
+    public void changesLeaveOutTombstonesOfDeletesThatDidNotHappen() {
+        when(mongoOperations.findOne(any(Query.class), eq(NewsChangeCounter.class))).thenReturn(counter(9, 0));
+        when(mongoOperations.find(any(Query.class), eq(NewsTombstone.class))).thenReturn(Arrays.asList(tombstone(2), tombstone(3)));
+
+        NewsChangeLog.Sync sync = changeLog.begin("Becky123", new NewsCheckpoint(4, LocalDateTime.now()));
+        List<List<Integer>> asked = new ArrayList<>();
+        NewsChanges changes = changeLog.changes(sync, Collections.emptyList(), newsIds -> {
+            asked.add(new ArrayList<>(newsIds));
+            return Collections.singletonList(3);
+        });
+
+        assertEquals(Collections.singletonList(2), changes.getDeleted());
+        assertEquals(Collections.singletonList(Arrays.asList(2, 3)), asked);
+    }
+
+    @Test
+    public void deletedLeavesTombstone() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(NewsChangeCounter.class)))
+                .thenReturn(counter(3, 0));
+
+        changeLog.deleting("Becky123", 1);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(query.capture(), update.capture(), eq(NewsTombstone.class));
+        assertEquals("Becky123:1", query.getValue().getQueryObject().get("_id"));
+        assertEquals(3L, update.getValue().getUpdateObject().get("$set", Document.class).get("changeStamp"));
+    }
+
+    private static NewsChangeCounter counter(long stamp, long clearedStamp) {
+        NewsChangeCounter counter = new NewsChangeCounter();
+        counter.setUserId("Becky123");
+        counter.setStamp(stamp);
+        counter.setClearedStamp(clearedStamp);
+        return counter;
+    }
+
+    private static NewsTombstone tombstone(int newsId) {
+        NewsTombstone tombstone = new NewsTombstone();
+        tombstone.setId(NewsTombstone.idOf("Becky123", newsId));
+        tombstone.setNewsId(newsId);
+        return tombstone;
+    }
+
+    private static News news(int newsId) {
+        News news = new News();
+        news.setNewsId(newsId);
+        news.setAuthor("Becky123");
+        return news;
+    }
+}
@@ -0,0 +1,108 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSearchEntry;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.service.NewsSearchIndex;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class NewsSearchIndexTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @InjectMocks
+    private NewsSearchIndex newsSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void searchIsRankedAndScopedToUser() {
+        when(mongoOperations.find(any(Query.class), eq(NewsSearchEntry.class))).thenReturn(entries(3));
+
+        List<Integer> matchedNewsIds = newsSearchIndex.search("Becky123", "IPL match", 1, 2);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).find(query.capture(), eq(NewsSearchEntry.class));
+        Document queryObject = query.getValue().getQueryObject();
+        assertEquals("Becky123", queryObject.get("userId"));
+        assertEquals("IPL match", queryObject.get("$text", Document.class).get("$search"));
+        assertEquals(new Document("score", new Document("$meta", "textScore")), query.getValue().getSortObject());
+        assertEquals(2, query.getValue().getSkip());
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("newsId", 1).append("score", new Document("$meta", "textScore")),
+                query.getValue().getFieldsObject());
+        assertEquals(Arrays.asList(1, 2, 3), matchedNewsIds);
+    }
+
+    @Test
+    public void pageLeavesOutTheExtraMatchAndDeletedNews() {
+        NewsSearchPage page = NewsSearchPage.of(Arrays.asList(3, 1, 2), Arrays.asList(news(1), news(2)), 1, 2);
+        assertEquals(1, page.getNews().size());
+        assertEquals(Integer.valueOf(1), page.getNews().get(0).getNewsId());
+        assertEquals(Integer.valueOf(2), page.getNextPage());
+    }
+
+    @Test
+    public void pageOfLastMatches() {
+        NewsSearchPage page = NewsSearchPage.of(Arrays.asList(2, 1), Arrays.asList(news(1), news(2)), 0, 20);
+        assertEquals(Arrays.asList(2, 1), Arrays.asList(page.getNews().get(0).getNewsId(), page.getNews().get(1).getNewsId()));
+        assertNull(page.getNextPage());
+    }
+
+    @Test
+    public void indexUpsertsEntryOfNews() {
+        News news = news(1);
+        newsSearchIndex.index("Becky123", news);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(query.capture(), update.capture(), eq(NewsSearchEntry.class));
+        assertEquals("Becky123:1", query.getValue().getQueryObject().get("_id"));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals("IPLT20 Match - 01", set.get("title"));
+        assertFalse(set.containsKey("news"));
+    }
+
+    private static List<NewsSearchEntry> entries(int count) {
+        List<NewsSearchEntry> entries = new ArrayList<>();
+        for(int newsId = 1; newsId <= count; newsId++) {
+            NewsSearchEntry entry = new NewsSearchEntry();
+            entry.setId(NewsSearchEntry.idOf("Becky123", newsId));
+            entry.setNewsId(newsId);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static News news(int newsId) {
+        News news = new News();
+        news.setNewsId(newsId);
+        news.setAuthor("Becky123");
+        news.setTitle("IPLT20 Match - 0" + newsId);
+        return news;
+    }
+}
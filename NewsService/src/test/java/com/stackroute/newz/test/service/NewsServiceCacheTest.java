@@ -0,0 +1,173 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.config.CacheConfig;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.service.NewsCacheInvalidator;
+import com.stackroute.newz.service.NewsChangeLog;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsSearchIndex;
+import com.stackroute.newz.service.NewsServiceImpl;
+import com.stackroute.newz.service.NewsSourceResolver;
+import com.stackroute.newz.service.ReminderScheduler;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.mongodb.client.result.UpdateResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/*
+ * Runs NewsServiceImpl behind the real CacheConfig, with class based proxies as in the
+ * application, and mocked database access.
+ */
+@SpringJUnitConfig(NewsServiceCacheTest.Config.class)
+public class NewsServiceCacheTest {
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    @Import({ CacheConfig.class, NewsCacheInvalidator.class, NewsServiceImpl.class })
+    static class Config {
+
+        @Bean
+        public NewsRepository newsRepository() {
+            return mock(NewsRepository.class);
+        }
+
+        @Bean
+        public MongoOperations mongoOperations() {
+            return mock(MongoOperations.class);
+        }
+
+        @Bean
+        public ReminderScheduler reminderScheduler() {
+            return mock(ReminderScheduler.class);
+        }
+
+        @Bean
+        public NewsSearchIndex newsSearchIndex() {
+            return mock(NewsSearchIndex.class);
+        }
+
+        @Bean
+        public NewsSourceResolver newsSourceResolver() {
+            return mock(NewsSourceResolver.class);
+        }
+
+        @Bean
+        public NewsChangeLog newsChangeLog() {
+            return mock(NewsChangeLog.class);
+        }
+    }
+
+    @Autowired
+    private NewsService newsService;
+    @Autowired
+    private NewsRepository newsRepository;
+    @Autowired
+    private MongoOperations mongoOperations;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private News news;
+
+    @BeforeEach
+    public void setUp() {
+        reset(newsRepository, mongoOperations);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        news = new News();
+        news.setNewsId(1);
+        news.setAuthor("Becky123");
+        news.setTitle("IPLT20 Match - 01");
+        List<News> newsList = new ArrayList<>();
+        newsList.add(news);
+        when(newsRepository.findById("Becky123")).thenReturn(Optional.of(new UserNews("Becky123", newsList)));
+    }
+
+    @Test
+    public void repeatedReadsHitTheCache() throws NewsNotFoundException {
+        assertEquals(news, newsService.getNewsByNewsId("Becky123", 1));
+        assertEquals(news, newsService.getNewsByNewsId("Becky123", 1));
+        newsService.getAllNewsByUserId("Becky123");
+        newsService.getAllNewsByUserId("Becky123");
+
+        verify(newsRepository, times(2)).findById("Becky123");
+        CaffeineCache newsCache = (CaffeineCache) cacheManager.getCache(CacheConfig.NEWS_CACHE);
+        assertEquals(1, newsCache.getNativeCache().stats().hitCount());
+        assertEquals(1, newsCache.getNativeCache().stats().missCount());
+    }
+
+    @Test
+    public void deleteNewsInvalidatesCachedReads() throws NewsNotFoundException {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        newsService.getNewsByNewsId("Becky123", 1);
+        newsService.getAllNewsByUserId("Becky123");
+
+        newsService.deleteNews("Becky123", 1);
+        newsService.getNewsByNewsId("Becky123", 1);
+        newsService.getAllNewsByUserId("Becky123");
+
+        verify(newsRepository, times(4)).findById("Becky123");
+    }
+
+    @Test
+    public void deleteAllNewsOnlyInvalidatesCachedReadsOfTheUser() throws NewsNotFoundException {
+        News otherUserNews = new News();
+        otherUserNews.setNewsId(1);
+        otherUserNews.setAuthor("John123");
+        List<News> otherUserNewsList = new ArrayList<>();
+        otherUserNewsList.add(otherUserNews);
+        when(newsRepository.findById("John123")).thenReturn(Optional.of(new UserNews("John123", otherUserNewsList)));
+        newsService.getNewsByNewsId("Becky123", 1);
+        newsService.getNewsByNewsId("John123", 1);
+
+        newsService.deleteAllNews("Becky123");
+        newsService.getNewsByNewsId("Becky123", 1);
+        newsService.getNewsByNewsId("John123", 1);
+
+        verify(newsRepository, times(3)).findById("Becky123");
+        verify(newsRepository, times(1)).findById("John123");
+    }
+
+    @Test
+    public void addNewsInvalidatesCachedList() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        newsService.getAllNewsByUserId("Becky123");
+
+        News other = new News();
+        other.setNewsId(2);
+        other.setAuthor("Becky123");
+        newsService.addNews(other);
+        newsService.getAllNewsByUserId("Becky123");
+
+        verify(newsRepository, times(2)).findById("Becky123");
+    }
+}
@@ -3,30 +3,70 @@ package com.stackroute.newz.test.service;
 
 import com.stackroute.newz.util.exception.NewsAlreadyExistsException;
 import com.stackroute.newz.util.exception.NewsNotFoundException;
+import com.stackroute.newz.util.exception.NewsVersionConflictException;
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.NewsChanges;
+import com.stackroute.newz.model.NewsCheckpoint;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSummary;
 import com.stackroute.newz.model.UserNews;
 import com.stackroute.newz.model.Reminder;
 import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.service.NewsCacheInvalidator;
+import com.stackroute.newz.service.NewsSearchIndex;
+import com.stackroute.newz.service.NewsChangeLog;
+import com.stackroute.newz.service.NewsSourceResolver;
+import com.stackroute.newz.service.ReminderScheduler;
 import com.stackroute.newz.service.NewsServiceImpl;
 import java.util.Optional;
 
+import org.bson.BsonString;
+import org.bson.Document;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.client.result.UpdateResult;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 public class NewsServiceImplTest {
 
@@ -37,6 +77,20 @@ public class NewsServiceImplTest {
     private Reminder reminder;
     @Mock
     private NewsRepository newsRepository;
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private NewsCacheInvalidator cacheInvalidator;
+    @Mock
+    private ReminderScheduler reminderScheduler;
+    @Mock
+    private NewsSearchIndex searchIndex;
+    @Mock
+    private NewsSourceResolver newsSources;
+    @Mock
+    private NewsChangeLog changeLog;
+    @Mock
+    private BulkOperations bulkOperations;
     @InjectMocks
     private NewsServiceImpl newsServiceImpl;
     private List<News> newsList = null;
@@ -86,37 +140,81 @@ public class NewsServiceImplTest {
 
     @Test
     public void addNewsSuccess() throws NewsAlreadyExistsException {
-        when(newsRepository.insert((UserNews) any())).thenReturn(userNews);
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, new BsonString("Becky123")));
         boolean status = newsServiceImpl.addNews(news);
         assertEquals(true, status);
     }
 
     @Test
-    public void addNewsFailure() throws NewsAlreadyExistsException {
+    public void addNewsToExistingUserSuccess() throws NewsAlreadyExistsException {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        boolean status = newsServiceImpl.addNews(news);
+        assertEquals(true, status);
+    }
 
-        when(newsRepository.insert(userNews)).thenReturn(null);
+    @Test
+    public void addNewsFailure() throws NewsAlreadyExistsException {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenThrow(DuplicateKeyException.class);
         boolean status = newsServiceImpl.addNews(news);
         assertEquals(false, status);
+        verify(reminderScheduler, never()).scheduleAdded(any());
      }
 
+    @Test
+    public void addNewsRacingFirstAddOfUserIsPushedAgain() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenThrow(DuplicateKeyException.class)
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        assertTrue(newsServiceImpl.addNews(news));
+        verify(mongoOperations, times(2)).upsert(any(Query.class), any(Update.class), eq(UserNews.class));
+        verify(reminderScheduler).scheduleAdded(news);
+    }
+
 
     @Test
     public void deleteNewsSuccess() throws NewsNotFoundException {
-        when(newsRepository.findById(userNews.getUserId())).thenReturn(options);
-        when(newsRepository.save(userNews)).thenReturn(userNews);
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
         boolean flag = newsServiceImpl.deleteNews("Becky123", news.getNewsId());
         assertEquals(true, flag);
+        verify(reminderScheduler).cancel("Becky123", news.getNewsId());
+        verify(searchIndex).remove("Becky123", news.getNewsId());
+        InOrder inOrder = inOrder(changeLog, mongoOperations);
+        inOrder.verify(changeLog).deleting("Becky123", news.getNewsId());
+        inOrder.verify(mongoOperations).updateFirst(any(Query.class), any(Update.class), eq(UserNews.class));
     }
 
     @Test
     public void deleteNewsFailure() {
-        when(newsRepository.findById(userNews.getUserId())).thenReturn(null);
-        when(newsRepository.save(userNews)).thenReturn(userNews);
-        
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        boolean flag = newsServiceImpl.deleteNews("Becky123", news.getNewsId());
+        assertEquals(false, flag);
+    }
+
+    @Test
+    public void deleteNewsAtOtherVersionConflicts() {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(mongoOperations.exists(any(Query.class), eq(UserNews.class))).thenReturn(true);
         assertThrows(
-        		NullPointerException.class,
-                    () -> { newsServiceImpl.deleteNews("Becky123", news.getNewsId()); });
-    
+        		NewsVersionConflictException.class,
+                    () -> { newsServiceImpl.deleteNews("Becky123", news.getNewsId(), 1L); });
+        verify(reminderScheduler, never()).cancel("Becky123", news.getNewsId());
+    }
+
+    @Test
+    public void updateNewsAtExpectedVersionMatchesVersion() throws NewsNotFoundException {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UserNews.class)))
+                .thenReturn(userNews);
+        newsServiceImpl.updateNews(news, news.getNewsId(), news.getAuthor(), 2L);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class), eq(UserNews.class));
+        Document newsAtVersion = query.getValue().getQueryObject().get("newslist", Document.class).get("$elemMatch", Document.class);
+        assertEquals(2L, newsAtVersion.get("version"));
     }
 
 
@@ -143,11 +241,13 @@ public class NewsServiceImplTest {
     @Test
     public void updateNewsSuccess() throws NewsNotFoundException {
 
-        when(newsRepository.findById("Becky123")).thenReturn(options);
         news.setContent("Match cancelled");
-        newsList.add(news);
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UserNews.class)))
+                .thenReturn(userNews);
         News fetchedNews = newsServiceImpl.updateNews(news, news.getNewsId(), news.getAuthor());
         assertEquals(news, fetchedNews);
+        verify(reminderScheduler).schedule(news.getAuthor(), news);
+        verify(searchIndex).index(news.getAuthor(), news);
 
 
     }
@@ -155,9 +255,9 @@ public class NewsServiceImplTest {
     @Test
     public void updateNewsFailure() throws NewsNotFoundException {
 
-        when(newsRepository.findById("Becky123")).thenThrow(NoSuchElementException.class);
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UserNews.class)))
+                .thenReturn(null);
         news.setContent("Match cancelled");
-        newsList.add(news);
         
         assertThrows(
         		NewsNotFoundException.class,
@@ -188,4 +288,191 @@ public class NewsServiceImplTest {
         List<News> newslist1 = newsServiceImpl.getAllNewsByUserId("Becky123");
         assertEquals(newsList, newslist1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getNewsChangesByUserIdMatchesChangedNews() {
+        NewsCheckpoint since = new NewsCheckpoint(4, LocalDateTime.now());
+        NewsChangeLog.Sync sync = mock(NewsChangeLog.Sync.class);
+        NewsChanges changes = new NewsChanges(newsList, new ArrayList<>(), false, since.encode());
+        when(changeLog.begin("Becky123", since)).thenReturn(sync);
+        when(sync.changedNews("")).thenReturn(Criteria.where("changeStamp").gt(4L));
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        ArgumentCaptor<Aggregation> pipeline = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoOperations.aggregate(pipeline.capture(), eq("userNews"), eq(News.class)))
+                .thenReturn(new AggregationResults<>(newsList, new Document()));
+        when(changeLog.changes(eq(sync), eq(newsList), any())).thenReturn(changes);
+
+        assertEquals(changes, newsServiceImpl.getNewsChangesByUserId("Becky123", since));
+        assertTrue(pipeline.getValue().toString().contains("changeStamp"));
+        verify(newsSources).resolveAll(newsList);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getNewsChangesByUserIdAsksWhichTombstonedNewsAreStillStored() {
+        NewsChangeLog.Sync sync = mock(NewsChangeLog.Sync.class);
+        when(changeLog.begin("Becky123", null)).thenReturn(sync);
+        when(sync.isResync()).thenReturn(true);
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        ArgumentCaptor<Aggregation> pipeline = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoOperations.aggregate(pipeline.capture(), eq("userNews"), eq(News.class)))
+                .thenReturn(new AggregationResults<>(newsList, new Document()));
+        ArgumentCaptor<Function<List<Integer>, Collection<Integer>>> storedNewsIds = ArgumentCaptor.forClass(Function.class);
+        when(changeLog.changes(eq(sync), eq(newsList), storedNewsIds.capture())).thenReturn(null);
+
+        newsServiceImpl.getNewsChangesByUserId("Becky123", null);
+
+        assertEquals(Collections.singletonList(news.getNewsId()), storedNewsIds.getValue().apply(Arrays.asList(news.getNewsId(), 99)));
+        assertTrue(pipeline.getValue().toString().contains("$project"));
+    }
+
+    @Test
+    public void getNewsSummariesByUserIdProjectsSummaryFields() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.findOne(query.capture(), eq(UserNews.class))).thenReturn(new UserNews("Becky123", newsList));
+        List<NewsSummary> summaries = newsServiceImpl.getNewsSummariesByUserId("Becky123");
+        assertEquals(1, summaries.size());
+        assertEquals(news.getTitle(), summaries.get(0).getTitle());
+        assertEquals(Integer.valueOf(1), summaries.get(0).getNewsSourceId());
+        Document fields = query.getValue().getFieldsObject();
+        assertEquals(1, fields.get("newslist.title"));
+        assertNull(fields.get("newslist.content"));
+        verify(newsSources).resolveAll(newsList);
+    }
+
+    @Test
+    public void getNewsSummariesByUserIdNotFound() {
+        when(mongoOperations.findOne(any(Query.class), eq(UserNews.class))).thenReturn(null);
+        assertNull(newsServiceImpl.getNewsSummariesByUserId("Becky123"));
+    }
+
+    @Test
+    public void getNewsPageByUserIdHasNextPage() {
+        News older = new News();
+        older.setNewsId(2);
+        List<News> fetched = new ArrayList<>();
+        fetched.add(news);
+        fetched.add(older);
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        when(mongoOperations.aggregate(any(Aggregation.class), eq("userNews"), eq(News.class)))
+                .thenReturn(new AggregationResults<>(fetched, new Document()));
+        NewsPage page = newsServiceImpl.getNewsPageByUserId("Becky123", null, 1);
+        assertEquals(1, page.getNews().size());
+        assertEquals(news, page.getNews().get(0));
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    public void searchNewsReadsMatchesInScoreOrder() {
+        News other = new News();
+        other.setNewsId(2);
+        when(searchIndex.search("Becky123", "IPL", 0, 20)).thenReturn(Arrays.asList(2, news.getNewsId()));
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        when(mongoOperations.aggregate(any(Aggregation.class), eq("userNews"), eq(News.class)))
+                .thenReturn(new AggregationResults<>(Arrays.asList(news, other), new Document()));
+        assertEquals(Arrays.asList(other, news), newsServiceImpl.searchNews("Becky123", "IPL", 0, 20).getNews());
+    }
+
+    @Test
+    public void getNewsPageByUserIdLastPage() {
+        when(mongoOperations.getCollectionName(UserNews.class)).thenReturn("userNews");
+        when(mongoOperations.aggregate(any(Aggregation.class), eq("userNews"), eq(News.class)))
+                .thenReturn(new AggregationResults<>(newsList, new Document()));
+        NewsPage page = newsServiceImpl.getNewsPageByUserId("Becky123", null, 10);
+        assertEquals(newsList, page.getNews());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void addAllNewsRetriesConflictingUserPerNews() {
+        News newNews = new News();
+        newNews.setNewsId(2);
+        newNews.setAuthor("Becky123");
+        News invalidNews = new News();
+        invalidNews.setNewsId(3);
+        BulkOperationException groupConflict = duplicateKeyAt(0);
+        BulkOperationException newsConflict = duplicateKeyAt(0);
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(groupConflict).thenThrow(newsConflict);
+
+        List<NewsIngestResult> results = newsServiceImpl.addAllNews(Arrays.asList(news, newNews, invalidNews, news));
+
+        assertEquals(NewsIngestResult.Status.CONFLICT, results.get(0).getStatus());
+        assertEquals(NewsIngestResult.Status.CREATED, results.get(1).getStatus());
+        assertEquals(NewsIngestResult.Status.INVALID, results.get(2).getStatus());
+        assertEquals(NewsIngestResult.Status.CONFLICT, results.get(3).getStatus());
+        verify(bulkOperations, times(3)).upsert(any(Query.class), any(Update.class));
+        verify(cacheInvalidator).evictUser("Becky123");
+        verify(reminderScheduler).scheduleAll(Arrays.asList(newNews));
+        verify(searchIndex).indexAll(Arrays.asList(newNews));
+    }
+
+    @Test
+    public void addAllNewsOneWritePerUser() {
+        News otherUserNews = new News();
+        otherUserNews.setNewsId(1);
+        otherUserNews.setAuthor("Jhon123");
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class)).thenReturn(bulkOperations);
+
+        List<NewsIngestResult> results = newsServiceImpl.addAllNews(Arrays.asList(news, otherUserNews));
+
+        assertEquals(NewsIngestResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(NewsIngestResult.Status.CREATED, results.get(1).getStatus());
+        verify(bulkOperations, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    public void addAllNewsPushesTheNewsOfAUserInPiecesOfTheBatchSize() {
+        ReflectionTestUtils.setField(newsServiceImpl, "bulkBatchSize", 2);
+        List<News> userNews = new ArrayList<>();
+        for (int newsId = 1; newsId <= 5; newsId++) {
+            News userNewsItem = new News();
+            userNewsItem.setNewsId(newsId);
+            userNewsItem.setAuthor("Becky123");
+            userNews.add(userNewsItem);
+        }
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class)).thenReturn(bulkOperations);
+
+        List<NewsIngestResult> results = newsServiceImpl.addAllNews(userNews);
+
+        results.forEach(result -> assertEquals(NewsIngestResult.Status.CREATED, result.getStatus()));
+        verify(bulkOperations, times(3)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(3)).execute();
+    }
+
+    @Test
+    public void addAllNewsStampsEachBatchRightBeforeItIsWritten() {
+        ReflectionTestUtils.setField(newsServiceImpl, "bulkBatchSize", 1);
+        News otherUserNews = new News();
+        otherUserNews.setNewsId(1);
+        otherUserNews.setAuthor("Jhon123");
+        AtomicLong stamps = new AtomicLong();
+        AtomicLong syncCheckpoint = new AtomicLong(-1);
+        doAnswer(invocation -> {
+            List<News> batch = invocation.getArgument(0);
+            batch.forEach(stamped -> stamped.setChangeStamp(stamps.incrementAndGet()));
+            return null;
+        }).when(changeLog).stampAll(any());
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, UserNews.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            syncCheckpoint.compareAndSet(-1, stamps.get());
+            return null;
+        });
+
+        newsServiceImpl.addAllNews(Arrays.asList(news, otherUserNews));
+
+        assertEquals(1L, syncCheckpoint.get());
+        assertTrue(otherUserNews.getChangeStamp() > syncCheckpoint.get());
+        assertEquals(1L, otherUserNews.getVersion().longValue());
+        assertNotNull(otherUserNews.getLastModifiedAt());
+        verify(changeLog, times(2)).stampAll(any());
+    }
+
+    private static BulkOperationException duplicateKeyAt(int index) {
+        BulkOperationException exception = mock(BulkOperationException.class);
+        when(exception.getErrors()).thenReturn(
+                Collections.singletonList(new BulkWriteError(11000, "duplicate key", new BasicDBObject(), index)));
+        return exception;
+    }
+}
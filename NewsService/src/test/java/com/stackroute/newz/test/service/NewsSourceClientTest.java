@@ -0,0 +1,196 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.service.NewsSourceClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Runs NewsSourceClient against a stub of GET /api/v1/newssource?ids=&userId= on a local port,
+ * which knows the news sources with ids below 100.
+ */
+public class NewsSourceClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMillis = 0;
+    private NewsSourceClient newsSourceClient;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/api/v1/newssource", this::respond);
+        server.start();
+
+        newsSourceClient = new NewsSourceClient(WebClient.builder());
+        ReflectionTestUtils.setField(newsSourceClient, "baseUrl", "http://localhost:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(newsSourceClient, "timeoutMillis", 2000L);
+        ReflectionTestUtils.setField(newsSourceClient, "failureThreshold", 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void fetchesIdsInBatches() {
+        Map<Integer, NewsSource> newsSources = newsSourceClient.getNewsSources("Jhon123", Arrays.asList(1, 2, 3));
+        assertEquals(3, newsSources.size());
+        assertEquals("Source 2", newsSources.get(2).getNewsSourceName());
+        assertEquals("Jhon123", newsSources.get(2).getNewsSourceCreatedBy());
+        assertEquals(1, calls.get());
+
+        ReflectionTestUtils.setField(newsSourceClient, "batchSize", 2);
+        newsSourceClient.getNewsSources("Jhon123", Arrays.asList(4, 5, 6));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void sendsTheBatchesOfALookupAtOnce() {
+        delayMillis = 300;
+        ReflectionTestUtils.setField(newsSourceClient, "batchSize", 1);
+        ReflectionTestUtils.setField(newsSourceClient, "timeoutMillis", 800L);
+
+        Map<Integer, NewsSource> newsSources = newsSourceClient.getNewsSources("Jhon123", Arrays.asList(1, 2, 3, 4));
+        assertEquals(4, newsSources.size());
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void waitsAtMostTheTimeoutForAllBatches() {
+        delayMillis = 1000;
+        ReflectionTestUtils.setField(newsSourceClient, "batchSize", 1);
+        ReflectionTestUtils.setField(newsSourceClient, "timeoutMillis", 200L);
+
+        long startedAt = System.nanoTime();
+        assertTrue(newsSourceClient.getNewsSources("Jhon123", Arrays.asList(1, 2, 3)).isEmpty());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 600);
+    }
+
+    @Test
+    public void leavesOutMissingIds() {
+        Map<Integer, NewsSource> newsSources = newsSourceClient.getNewsSources("Jhon123", Arrays.asList(1, 100));
+        assertEquals(Collections.singleton(1), newsSources.keySet());
+    }
+
+    @Test
+    public void coalescesConcurrentLookups() throws Exception {
+        delayMillis = 300;
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Map<Integer, NewsSource>>> lookups = new ArrayList<>();
+            for(int i = 0; i < 8; i++) {
+                lookups.add(callers.submit(() -> {
+                    start.await();
+                    return newsSourceClient.getNewsSources("Jhon123", Collections.singletonList(7));
+                }));
+            }
+            start.countDown();
+            for(Future<Map<Integer, NewsSource>> lookup : lookups) {
+                assertEquals("Source 7", lookup.get().get(7).getNewsSourceName());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void doesNotShareLookupsOfDifferentUsers() throws Exception {
+        delayMillis = 300;
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<Integer, NewsSource>> jhon = callers.submit(() -> newsSourceClient.getNewsSources("Jhon123", Collections.singletonList(7)));
+            Future<Map<Integer, NewsSource>> becky = callers.submit(() -> newsSourceClient.getNewsSources("Becky123", Collections.singletonList(7)));
+            assertEquals("Jhon123", jhon.get().get(7).getNewsSourceCreatedBy());
+            assertEquals("Becky123", becky.get().get(7).getNewsSourceCreatedBy());
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void opensCircuitAfterFailures() {
+        status = 500;
+        for(int i = 0; i < 4; i++) {
+            assertTrue(newsSourceClient.getNewsSources("Jhon123", Collections.singletonList(1)).isEmpty());
+        }
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void closesCircuitWhenServiceIsBack() throws InterruptedException {
+        ReflectionTestUtils.setField(newsSourceClient, "openMillis", 100L);
+        status = 500;
+        newsSourceClient.getNewsSources("Jhon123", Collections.singletonList(1));
+        newsSourceClient.getNewsSources("Jhon123", Collections.singletonList(1));
+        status = 200;
+        assertTrue(newsSourceClient.getNewsSources("Jhon123", Collections.singletonList(1)).isEmpty());
+
+        Thread.sleep(150);
+        assertEquals(1, newsSourceClient.getNewsSources("Jhon123", Collections.singletonList(1)).size());
+        assertEquals(1, newsSourceClient.getNewsSources("Jhon123", Collections.singletonList(2)).size());
+        assertEquals(4, calls.get());
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        calls.incrementAndGet();
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        StringBuilder body = new StringBuilder("[");
+        Map<String, String> params = new HashMap<>();
+        for(String param : exchange.getRequestURI().getQuery().split("&")) {
+            params.put(param.substring(0, param.indexOf('=')), param.substring(param.indexOf('=') + 1));
+        }
+        for(String id : params.get("ids").split(",")) {
+            if(Integer.parseInt(id) < 100) {
+                body.append(body.length() > 1 ? "," : "")
+                        .append("{\"newsSourceId\":").append(id).append(",\"newsSourceName\":\"Source ").append(id)
+                        .append("\",\"newsSourceCreatedBy\":\"").append(params.get("userId")).append("\"}");
+            }
+        }
+        byte[] bytes = body.append("]").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
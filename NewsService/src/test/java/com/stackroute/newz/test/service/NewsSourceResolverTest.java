@@ -0,0 +1,148 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.repository.NewsSourceRepository;
+import com.stackroute.newz.service.NewsSourceClient;
+import com.stackroute.newz.service.NewsSourceResolver;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class NewsSourceResolverTest {
+
+    private NewsSource newsSource;
+    private News first;
+    private News second;
+    @Mock
+    private NewsSourceRepository newsSourceRepository;
+    @Mock
+    private NewsSourceClient newsSourceClient;
+    private NewsSourceResolver newsSourceResolver;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        newsSourceResolver = new NewsSourceResolver(newsSourceRepository, newsSourceClient, new ConcurrentMapCacheManager());
+
+        newsSource = new NewsSource();
+        newsSource.setNewsSourceId(1);
+        newsSource.setNewsSourceName("Cricket-Category");
+        newsSource.setNewsSourceDesc("All about IPL");
+        newsSource.setNewsSourceCreatedBy("Becky123");
+
+        first = news(1);
+        second = news(2);
+    }
+
+    @Test
+    public void embeddedModeKeepsNewsSource() {
+        newsSourceResolver.referenceAll(Arrays.asList(first, second));
+        assertSame(newsSource, first.getNewsSource());
+    }
+
+    @Test
+    public void referenceModeKeepsOnlyNewsSourceId() {
+        ReflectionTestUtils.setField(newsSourceResolver, "mode", "reference");
+        newsSourceResolver.referenceAll(Arrays.asList(first, second));
+        assertEquals(Integer.valueOf(1), first.getNewsSource().getNewsSourceId());
+        assertNull(first.getNewsSource().getNewsSourceName());
+        assertNull(second.getNewsSource().getNewsSourceCreationDate());
+        assertTrue(first.getNewsSource().isReference());
+        assertFalse(newsSource.isReference());
+    }
+
+    @Test
+    public void resolveAllLooksUpEachNewsSourceOnce() {
+        ReflectionTestUtils.setField(newsSourceResolver, "mode", "reference");
+        List<News> newsList = Arrays.asList(first, second);
+        newsSourceResolver.referenceAll(newsList);
+        when(newsSourceRepository.findAllById(Collections.singletonList(1))).thenReturn(Collections.singletonList(newsSource));
+
+        newsSourceResolver.resolveAll(newsList);
+        assertEquals("Cricket-Category", first.getNewsSource().getNewsSourceName());
+        assertEquals("Cricket-Category", second.getNewsSource().getNewsSourceName());
+
+        News third = news(3);
+        newsSourceResolver.reference(third);
+        newsSourceResolver.resolve(third);
+        assertEquals("Cricket-Category", third.getNewsSource().getNewsSourceName());
+        verify(newsSourceRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    public void resolveAllSkipsEmbeddedNewsSources() {
+        newsSourceResolver.resolveAll(Arrays.asList(first, second));
+        verify(newsSourceRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void serviceLookupRefreshesEmbeddedNewsSources() {
+        ReflectionTestUtils.setField(newsSourceResolver, "lookup", "service");
+        NewsSource renamed = new NewsSource();
+        renamed.setNewsSourceId(1);
+        renamed.setNewsSourceName("Sports");
+        renamed.setNewsSourceCreatedBy("Becky123");
+        when(newsSourceClient.getNewsSources(any(), any())).thenReturn(Collections.singletonMap(1, renamed));
+
+        newsSourceResolver.resolveAll(Arrays.asList(first, second));
+        assertEquals("Sports", first.getNewsSource().getNewsSourceName());
+        assertEquals("Sports", second.getNewsSource().getNewsSourceName());
+        verify(newsSourceClient, times(1)).getNewsSources(eq("Becky123"), any());
+        verify(newsSourceRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void resolveAllLeavesNewsSourcesOfOtherUsers() {
+        ReflectionTestUtils.setField(newsSourceResolver, "mode", "reference");
+        News otherUserNews = news(3);
+        otherUserNews.setAuthor("Jhon123");
+        List<News> newsList = Arrays.asList(first, otherUserNews);
+        newsSourceResolver.referenceAll(newsList);
+        when(newsSourceRepository.findAllById(Collections.singletonList(1))).thenReturn(Collections.singletonList(newsSource));
+
+        newsSourceResolver.resolveAll(newsList);
+        assertEquals("Cricket-Category", first.getNewsSource().getNewsSourceName());
+        assertTrue(otherUserNews.getNewsSource().isReference());
+        assertNull(otherUserNews.getNewsSource().getNewsSourceName());
+    }
+
+    @Test
+    public void serviceLookupLeavesNewsSourcesOfOtherUsers() {
+        ReflectionTestUtils.setField(newsSourceResolver, "lookup", "service");
+        NewsSource otherUserSource = new NewsSource();
+        otherUserSource.setNewsSourceId(1);
+        otherUserSource.setNewsSourceName("Politics");
+        otherUserSource.setNewsSourceCreatedBy("Jhon123");
+        when(newsSourceClient.getNewsSources(any(), any())).thenReturn(Collections.singletonMap(1, otherUserSource));
+
+        newsSourceResolver.resolveAll(Arrays.asList(first, second));
+        assertSame(newsSource, first.getNewsSource());
+        assertSame(newsSource, second.getNewsSource());
+    }
+
+    private News news(int newsId) {
+        News news = new News();
+        news.setNewsId(newsId);
+        news.setAuthor("Becky123");
+        news.setNewssource(newsSource);
+        return news;
+    }
+}
@@ -0,0 +1,167 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsIngestResult;
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.repository.ReactiveNewsRepository;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.ReactiveNewsServiceImpl;
+import com.stackroute.newz.service.NewsSearchIndex;
+import com.stackroute.newz.service.NewsChangeLog;
+import com.stackroute.newz.service.NewsSourceResolver;
+import com.stackroute.newz.service.ReminderScheduler;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReactiveNewsServiceImplTest {
+
+    private News news;
+    private UserNews userNews;
+    @Mock
+    private ReactiveNewsRepository newsRepository;
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
+    @Mock
+    private NewsService newsService;
+    @Mock
+    private ReminderScheduler reminderScheduler;
+    @Mock
+    private NewsSearchIndex searchIndex;
+    @Mock
+    private NewsSourceResolver newsSources;
+    @Mock
+    private NewsChangeLog changeLog;
+    @InjectMocks
+    private ReactiveNewsServiceImpl reactiveNewsServiceImpl;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        news = new News();
+        news.setNewsId(1);
+        news.setTitle("IPLT20 Match - 01");
+        news.setAuthor("Becky123");
+        news.setDescription("Ipl match 01 - CSK Vs RCB");
+        news.setPublishedAt();
+        news.setContent("CSK vs RCB match scheduled for 4 PM");
+        List<News> newsList = new ArrayList<>();
+        newsList.add(news);
+        userNews = new UserNews("Becky123", newsList);
+    }
+
+    @Test
+    public void addNewsSuccess() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        StepVerifier.create(reactiveNewsServiceImpl.addNews(news)).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    public void addNewsFailure() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate key")));
+        StepVerifier.create(reactiveNewsServiceImpl.addNews(news)).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    public void addNewsRacingFirstAddOfUserIsPushedAgain() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate key")))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        StepVerifier.create(reactiveNewsServiceImpl.addNews(news)).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    public void deleteNewsFailure() {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        StepVerifier.create(reactiveNewsServiceImpl.deleteNews("Becky123", 1)).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    public void deleteAllNewsFailure() {
+        when(mongoOperations.remove(any(Query.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(0)));
+        StepVerifier.create(reactiveNewsServiceImpl.deleteAllNews("Becky123"))
+                .expectError(NewsNotFoundException.class).verify();
+    }
+
+    @Test
+    public void updateNewsSuccess() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UserNews.class)))
+                .thenReturn(Mono.just(userNews));
+        StepVerifier.create(reactiveNewsServiceImpl.updateNews(news, 1, "Becky123")).expectNext(news).verifyComplete();
+    }
+
+    @Test
+    public void updateNewsFailure() {
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UserNews.class)))
+                .thenReturn(Mono.empty());
+        StepVerifier.create(reactiveNewsServiceImpl.updateNews(news, 1, "Becky123"))
+                .expectError(NewsNotFoundException.class).verify();
+    }
+
+    @Test
+    public void getNewsByNewsIdSuccess() {
+        when(mongoOperations.findOne(any(Query.class), eq(UserNews.class))).thenReturn(Mono.just(userNews));
+        StepVerifier.create(reactiveNewsServiceImpl.getNewsByNewsId("Becky123", 1)).expectNext(news).verifyComplete();
+    }
+
+    @Test
+    public void getAllNewsByUserId() {
+        when(newsRepository.findById("Becky123")).thenReturn(Mono.just(userNews));
+        StepVerifier.create(reactiveNewsServiceImpl.getAllNewsByUserId("Becky123")).expectNext(news).verifyComplete();
+    }
+
+    @Test
+    public void getAllNewsByUserIdNotFound() {
+        when(newsRepository.findById("Becky123")).thenReturn(Mono.empty());
+        StepVerifier.create(reactiveNewsServiceImpl.getAllNewsByUserId("Becky123"))
+                .expectError(NewsNotFoundException.class).verify();
+    }
+
+    @Test
+    public void addAllNewsSavesInChunks() {
+        ReflectionTestUtils.setField(reactiveNewsServiceImpl, "bulkBatchSize", 2);
+        List<News> chunk = new ArrayList<>();
+        chunk.add(news);
+        chunk.add(news);
+        List<NewsIngestResult> chunkResults = new ArrayList<>();
+        chunkResults.add(NewsIngestResult.of(news, NewsIngestResult.Status.CREATED));
+        chunkResults.add(NewsIngestResult.of(news, NewsIngestResult.Status.CONFLICT));
+        when(newsService.addAllNews(anyList())).thenReturn(chunkResults);
+
+        StepVerifier.create(reactiveNewsServiceImpl.addAllNews(Flux.just(news, news, news, news)))
+                .expectNextCount(4).verifyComplete();
+        verify(newsService, times(2)).addAllNews(chunk);
+    }
+}
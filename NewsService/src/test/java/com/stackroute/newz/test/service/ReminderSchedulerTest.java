@@ -0,0 +1,165 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.ScheduledReminder;
+import com.stackroute.newz.service.ReminderNotifier;
+import com.stackroute.newz.service.ReminderScheduler;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ReminderSchedulerTest {
+
+    private News news;
+    private ScheduledReminder first;
+    private ScheduledReminder second;
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private ReminderNotifier notifier;
+    @Mock
+    private BulkOperations bulkOperations;
+    @InjectMocks
+    private ReminderScheduler reminderScheduler;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        news = new News();
+        news.setNewsId(1);
+        news.setAuthor("Becky123");
+        news.setTitle("IPLT20 Match - 01");
+        news.setReminder(new Reminder("5b0509731764e3096984eae6", LocalDateTime.now().plusHours(1)));
+
+        first = reminder("Becky123", 1, 0);
+        second = reminder("Becky123", 2, 0);
+    }
+
+    @Test
+    public void scheduleUpsertsFutureReminder() {
+        reminderScheduler.schedule("Becky123", news);
+        verify(mongoOperations).upsert(any(Query.class), any(Update.class), eq(ScheduledReminder.class));
+        verify(mongoOperations, never()).remove(any(Query.class), eq(ScheduledReminder.class));
+    }
+
+    @Test
+    public void scheduleCancelsPastReminder() {
+        news.setReminder(new Reminder("5b0509731764e3096984eae6", LocalDateTime.now().minusHours(1)));
+        reminderScheduler.schedule("Becky123", news);
+        verify(mongoOperations).remove(any(Query.class), eq(ScheduledReminder.class));
+        verify(mongoOperations, never()).upsert(any(Query.class), any(Update.class), eq(ScheduledReminder.class));
+    }
+
+    @Test
+    public void scheduleAddedUpsertsFutureReminder() {
+        reminderScheduler.scheduleAdded(news);
+        verify(mongoOperations).upsert(any(Query.class), any(Update.class), eq(ScheduledReminder.class));
+    }
+
+    @Test
+    public void scheduleAddedWithoutReminderDoesNotWrite() {
+        news.setReminder(null);
+        reminderScheduler.scheduleAdded(news);
+        verifyNoInteractions(mongoOperations);
+    }
+
+    @Test
+    public void scheduleAllSkipsNewsWithoutReminder() {
+        News withoutReminder = new News();
+        withoutReminder.setNewsId(2);
+        withoutReminder.setAuthor("Becky123");
+        when(mongoOperations.bulkOps(BulkMode.UNORDERED, ScheduledReminder.class)).thenReturn(bulkOperations);
+
+        reminderScheduler.scheduleAll(Arrays.asList(news, withoutReminder));
+
+        verify(bulkOperations, times(1)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    public void fireBatchWithoutDueReminders() {
+        when(mongoOperations.find(any(Query.class), eq(ScheduledReminder.class))).thenReturn(Collections.emptyList());
+        assertEquals(0, reminderScheduler.fireBatch(LocalDateTime.now()));
+        verifyNoInteractions(notifier);
+    }
+
+    @Test
+    public void fireBatchDeletesDeliveredAndRetriesFailed() {
+        List<ScheduledReminder> due = Arrays.asList(first, second);
+        when(mongoOperations.find(any(Query.class), eq(ScheduledReminder.class))).thenReturn(due, due);
+        when(notifier.notify(due)).thenReturn(Collections.singletonList(second));
+
+        assertEquals(2, reminderScheduler.fireBatch(LocalDateTime.now()));
+
+        verify(mongoOperations).remove(argThat(matchesIds(first)), eq(ScheduledReminder.class));
+        verify(mongoOperations).updateMulti(argThat(matchesIds(second)),
+                argThat(update -> update.modifies("attempts")), eq(ScheduledReminder.class));
+    }
+
+    @Test
+    public void fireBatchCountsOnlyRemindersItClaimed() {
+        when(mongoOperations.find(any(Query.class), eq(ScheduledReminder.class)))
+                .thenReturn(Arrays.asList(first, second), Collections.singletonList(first));
+        when(notifier.notify(Collections.singletonList(first))).thenReturn(Collections.emptyList());
+
+        assertEquals(1, reminderScheduler.fireBatch(LocalDateTime.now()));
+    }
+
+    @Test
+    public void fireBatchClaimedByOthersFiresNothing() {
+        when(mongoOperations.find(any(Query.class), eq(ScheduledReminder.class)))
+                .thenReturn(Arrays.asList(first, second), Collections.emptyList());
+
+        assertEquals(0, reminderScheduler.fireBatch(LocalDateTime.now()));
+        verifyNoInteractions(notifier);
+    }
+
+    @Test
+    public void fireBatchDropsReminderAfterMaxAttempts() {
+        ScheduledReminder exhausted = reminder("Becky123", 3, 4);
+        List<ScheduledReminder> due = Collections.singletonList(exhausted);
+        when(mongoOperations.find(any(Query.class), eq(ScheduledReminder.class))).thenReturn(due, due);
+        when(notifier.notify(due)).thenReturn(due);
+
+        reminderScheduler.fireBatch(LocalDateTime.now());
+
+        verify(mongoOperations).remove(argThat(matchesIds(exhausted)), eq(ScheduledReminder.class));
+        verify(mongoOperations, times(1)).updateMulti(any(Query.class), any(Update.class), eq(ScheduledReminder.class));
+    }
+
+    private static ScheduledReminder reminder(String userId, int newsId, int attempts) {
+        ScheduledReminder reminder = new ScheduledReminder();
+        reminder.setId(ScheduledReminder.idOf(userId, newsId));
+        reminder.setUserId(userId);
+        reminder.setNewsId(newsId);
+        reminder.setAttempts(attempts);
+        return reminder;
+    }
+
+    private static org.mockito.ArgumentMatcher<Query> matchesIds(ScheduledReminder reminder) {
+        return query -> query != null && query.getQueryObject().containsKey("claimedBy")
+                && query.getQueryObject().get("_id", Document.class).get("$in", List.class).contains(reminder.getId());
+    }
+}
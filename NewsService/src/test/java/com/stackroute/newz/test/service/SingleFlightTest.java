@@ -0,0 +1,131 @@
+package com.stackroute.newz.test.service;
+
+import com.stackroute.newz.util.SingleFlight;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<String, List<String>> reads;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reads = new SingleFlight<>("userNews", meterRegistry);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentReadsShareOneFetch() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        List<String> newsList = new ArrayList<>();
+
+        Future<List<String>> first = executor.submit(() -> reads.load("Becky123", 1000, () -> {
+            fetches.incrementAndGet();
+            fetching.countDown();
+            await(release);
+            return newsList;
+        }));
+        fetching.await();
+        Future<List<String>> second = executor.submit(() -> reads.load("Becky123", 1000, () -> {
+            fetches.incrementAndGet();
+            return new ArrayList<String>();
+        }));
+        while(count("coalesced") < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertSame(newsList, first.get());
+        assertSame(newsList, second.get());
+        assertEquals(1, fetches.get());
+        assertEquals(1, count("fetched"));
+    }
+
+    @Test
+    public void joinedReadsGetTheException() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<List<String>> first = executor.submit(() -> reads.load("Becky123", 1000, () -> {
+            fetching.countDown();
+            await(release);
+            throw new IllegalStateException("down");
+        }));
+        fetching.await();
+        Future<List<String>> second = executor.submit(() -> reads.load("Becky123", 1000, ArrayList::new));
+        while(count("coalesced") < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertEquals(IllegalStateException.class, assertThrows(ExecutionException.class, first::get).getCause().getClass());
+        assertEquals(IllegalStateException.class, assertThrows(ExecutionException.class, second::get).getCause().getClass());
+    }
+
+    @Test
+    public void readFetchesOnItsOwnWhenTheSharedFetchTakesTooLong() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> ownNewsList = new ArrayList<>();
+
+        Future<List<String>> first = executor.submit(() -> reads.load("Becky123", 1000, () -> {
+            fetching.countDown();
+            await(release);
+            return new ArrayList<String>();
+        }));
+        fetching.await();
+
+        assertSame(ownNewsList, reads.load("Becky123", 10, () -> ownNewsList));
+        assertEquals(1, count("timed-out"));
+        assertEquals(1, count("fetched"));
+        release.countDown();
+        first.get();
+    }
+
+    @Test
+    public void sequentialReadsFetchAgain() {
+        reads.load("Becky123", 1000, ArrayList::new);
+        reads.load("Becky123", 1000, ArrayList::new);
+        assertEquals(2, count("fetched"));
+        assertEquals(0, count("coalesced"));
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(SingleFlight.CALLS_METER).tag("name", "userNews").tag("result", result).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.stackroute.newz.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/*
+ * Binary encodings of the request and response bodies, chosen by the Accept and
+ * Content-Type headers: application/x-jackson-smile and application/cbor. Both encode
+ * the same objects as the JSON bodies, but write numbers and lengths in binary and,
+ * for Smile, refer back to field names already written instead of repeating them.
+ *
+ * Spring MVC would add both converters with a default ObjectMapper. These replace
+ * them with ObjectMappers configured by Spring Boot like the JSON one, so the
+ * spring.jackson settings apply to every encoding.
+ */
+@Configuration
+public class BinaryEncodingConfig {
+
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+	public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(mapper(builder, new ObjectMapper(new SmileFactory())));
+	}
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(mapper(builder, new ObjectMapper(new CBORFactory())));
+	}
+
+	/* Applies the settings of the builder without changing the builder itself. */
+
+	static ObjectMapper mapper(Jackson2ObjectMapperBuilder builder, ObjectMapper mapper) {
+		builder.configure(mapper);
+		return mapper;
+	}
+}
@@ -0,0 +1,48 @@
+package com.stackroute.newz.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+
+/*
+ * Opt-in mode, newz.threads.virtual=true, that runs every request on its own virtual
+ * thread instead of a thread of Tomcat's pool, so a request waiting for MongoDB no
+ * longer holds one of server.tomcat.max-threads platform threads. The same executor
+ * runs asynchronous MVC work such as streamed responses.
+ *
+ * Virtual threads need Java 21. The code is compiled for Java 11, so the executor is
+ * looked up at startup, and the application fails to start if the JDK lacks it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "newz.threads", name = "virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("newz.threads.virtual=true needs Java 21 or later, running on Java "
+					+ System.getProperty("java.version"), e);
+		}
+	}
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+		return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+	}
+
+	/* Replaces the thread pool that Spring Boot gives to Spring MVC for asynchronous requests. */
+	@Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+	public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+		return new ConcurrentTaskExecutor(virtualThreadExecutor);
+	}
+}
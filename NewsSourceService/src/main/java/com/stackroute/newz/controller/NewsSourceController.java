@@ -5,6 +5,8 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,12 +15,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.service.NewsSourceService;
+import com.stackroute.newz.util.ETags;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
+import com.stackroute.newz.util.exception.NewsSourceVersionConflictException;
 
 /*
  * As in this assignment, we are working with creating RESTful web service, hence annotate
@@ -45,6 +51,9 @@ public class NewsSourceController {
 	
 	private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+	@Value("${newz.news-source.ids.max:100}")
+	private int maxIds = 100;
+
 
 	/*
 	 * Define a handler method which will create a specific newssource by reading the
@@ -74,6 +83,7 @@ public class NewsSourceController {
 	 * on different situations: 
 	 * 1. 200(OK) - If the newssource deleted successfully from database. 
 	 * 2. 404(NOT FOUND) - If the newssource with specified newsId is not found.
+	 * 3. 412(PRECONDITION FAILED) - If the newssource no longer matches the If-Match ETag.
 	 *
 	 * This handler method should map to the URL "/api/v1/newssource/{newssourceId}" 
 	 * using HTTP Delete method where "userId" should be replaced by a valid userId 
@@ -82,8 +92,17 @@ public class NewsSourceController {
 	 * 
 	 */
 	@DeleteMapping("/{newssourceId}")
-	public ResponseEntity<NewsSource> deleteNewsSource(@PathVariable("newssourceId") Integer newssourceId){
-		boolean newsSourceDeleted = newsSourceService.deleteNewsSource(newssourceId);
+	public ResponseEntity<NewsSource> deleteNewsSource(@PathVariable("newssourceId") Integer newssourceId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		boolean newsSourceDeleted;
+		try {
+			Long expectedVersion = ETags.expectedVersion(ifMatch, newssourceId);
+			newsSourceDeleted = expectedVersion == null ? newsSourceService.deleteNewsSource(newssourceId)
+					: newsSourceService.deleteNewsSource(newssourceId, expectedVersion);
+		} catch (IllegalArgumentException | NewsSourceVersionConflictException e) {
+			logger.info("In controller - {}", "News Source changed for Id - " +newssourceId);
+			return new ResponseEntity<NewsSource>(HttpStatus.PRECONDITION_FAILED);
+		}
 		if(newsSourceDeleted == true) {
 			logger.info("In controller - {}", "News Source deleted for Id - " +newssourceId);
 			return new ResponseEntity<NewsSource>(HttpStatus.OK);
@@ -92,13 +111,43 @@ public class NewsSourceController {
 		return new ResponseEntity<NewsSource>(HttpStatus.NOT_FOUND);
 	}
 
+	/*
+	 * Handler method which deletes many newssource of a user at once; newssource
+	 * created by another user are not deleted. This handler method returns any one of
+	 * the status messages basis on different situations:
+	 * 1. 200(OK) - If at least one newssource was deleted; the body is the number
+	 *    of newssource deleted.
+	 * 2. 404(NOT FOUND) - If none of the newssourceIds was found for the user.
+	 * 3. 400(BAD REQUEST) - If no userId is given, or more than newz.news-source.ids.max
+	 *    ids are sent.
+	 *
+	 * This handler method maps to the URL "/api/v1/newssource?ids=1,2,3&userId=..."
+	 * using HTTP Delete method.
+	 */
+	@DeleteMapping(params = "ids")
+	public ResponseEntity<Long> deleteAllNewsSource(@RequestParam("ids") List<Integer> newssourceIds,
+			@RequestParam("userId") String userId){
+		if(newssourceIds.size() > maxIds) {
+			logger.info("In controller - {}", newssourceIds.size() + " news Source Ids sent for delete, at most " + maxIds + " allowed.");
+			return new ResponseEntity<Long>(HttpStatus.BAD_REQUEST);
+		}
+		long newsSourceDeleted = newsSourceService.deleteAllNewsSource(userId, newssourceIds);
+		if(newsSourceDeleted > 0) {
+			logger.info("In controller - {}", newsSourceDeleted+ " News Source deleted for Ids - " +newssourceIds);
+			return new ResponseEntity<Long>(newsSourceDeleted, HttpStatus.OK);
+		}
+		logger.info("In controller - {}", "News Source not found for Ids - " +newssourceIds);
+		return new ResponseEntity<Long>(HttpStatus.NOT_FOUND);
+	}
+
 	/*
 	 * Define a handler method which will update a specific newssource by reading the
 	 * Serialized object from request body and save the updated newssource details in a
 	 * database. This handler method should return any one of the status messages
 	 * basis on different situations: 
-	 * 1. 200(OK) - If the newssource updated successfully.
+	 * 1. 200(OK) - If the newssource updated successfully, with the ETag of the new version.
 	 * 2. 404(NOT FOUND) - If the newssource with specified newssourceId is not found.
+	 * 3. 412(PRECONDITION FAILED) - If the newssource no longer matches the If-Match ETag.
 	 * 
 	 * This handler method should map to the URL "/api/v1/newssource/{newssourceId}" using 
 	 * HTTP PUT method where "newssourceId" should be replaced by a valid newssourceId
@@ -106,17 +155,23 @@ public class NewsSourceController {
 	 * 
 	 */
 	@PutMapping("/{newssourceId}")
-	public ResponseEntity<NewsSource> updateNewsSource(@PathVariable("newssourceId") Integer newssourceId, @RequestBody NewsSource newsSource){
+	public ResponseEntity<NewsSource> updateNewsSource(@PathVariable("newssourceId") Integer newssourceId, @RequestBody NewsSource newsSource,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 		NewsSource updateNewsSource;
 		try {
-			updateNewsSource = newsSourceService.updateNewsSource(newsSource, newssourceId);
+			Long expectedVersion = ETags.expectedVersion(ifMatch, newssourceId);
+			updateNewsSource = expectedVersion == null ? newsSourceService.updateNewsSource(newsSource, newssourceId)
+					: newsSourceService.updateNewsSource(newsSource, newssourceId, expectedVersion);
 			if(updateNewsSource != null) {
 				logger.info("In controller - {}", "News updated for news Id - " +newssourceId + " is: " +updateNewsSource);
-				return new ResponseEntity<NewsSource>(updateNewsSource, HttpStatus.OK);
+				return ResponseEntity.ok().eTag(ETags.of(updateNewsSource)).body(updateNewsSource);
 			}
 		} catch (NewsSourceNotFoundException e) {
 			logger.info("In controller - {}", "News Source not found for Id - " +newssourceId);
 			return new ResponseEntity<NewsSource>(HttpStatus.NOT_FOUND);
+		} catch (IllegalArgumentException | NewsSourceVersionConflictException e) {
+			logger.info("In controller - {}", "News Source changed for Id - " +newssourceId);
+			return new ResponseEntity<NewsSource>(HttpStatus.PRECONDITION_FAILED);
 		}
 		logger.info("In controller - {}", "News Source not found for Id - " +newssourceId);
 		return new ResponseEntity<NewsSource>(HttpStatus.NOT_FOUND);
@@ -127,7 +182,8 @@ public class NewsSourceController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 
 	 * 1. 200(OK) - If the newssource found successfully. 
-	 * 2. 404(NOT FOUND) - If the newssource with specified newsId is not found.
+	 * 2. 304(NOT MODIFIED) - If the ETag or Last-Modified sent by the client still match.
+	 * 3. 404(NOT FOUND) - If the newssource with specified newsId is not found.
 	 * 
 	 * This handler method should map to the URL "/api/v1/newssource/{userId}/{newssourceId}" 
 	 * using HTTP GET method where "userId" should be replaced by a valid userId 
@@ -141,7 +197,7 @@ public class NewsSourceController {
 			newsSourceById = newsSourceService.getNewsSourceById(userId, newssourceId);
 			if(newsSourceById != null) {
 				logger.info("In controller - {}", "The news Source for Id - " +newssourceId+ " is: "+newsSourceById);
-				return new ResponseEntity<NewsSource>(newsSourceById, HttpStatus.OK);
+				return ETags.okWithValidators(ETags.of(newsSourceById), newsSourceById.getLastModifiedAt()).body(newsSourceById);
 			}
 		} catch (NewsSourceNotFoundException e) {
 			logger.info("In controller - {}", "News Source ID "+newssourceId+ " not Found.");
@@ -156,7 +212,7 @@ public class NewsSourceController {
 	 * user. This handler method should return any one of the status messages basis on
 	 * different situations: 
 	 * 1. 200(OK) - If the newssource found successfully. 
-	 * 2. 404(NOT FOUND) - If the newssource with specified newsId is not found.
+	 * 2. 304(NOT MODIFIED) - If the ETag sent by the client still matches.
 	 * This handler method should map to the URL "/api/v1/newssource/{userId}" using HTTP GET method
 	 * where "userId" should be replaced by a valid userId without {}.
 	 * 
@@ -164,7 +220,32 @@ public class NewsSourceController {
 	@GetMapping("/{userId}")
 	public ResponseEntity<List<NewsSource>> getAllNewsSource(@PathVariable("userId") String userId){
 		List<NewsSource> allNewsSource = newsSourceService.getAllNewsSourceByUserId(userId);
-		logger.info("In controller - {}", "List of all news Source By User Id: "+userId+ "is: "+allNewsSource);
-		return new ResponseEntity<List<NewsSource>>(allNewsSource, HttpStatus.OK);
+		logger.info("In controller - {}", "Found " +allNewsSource.size()+ " news Source for User Id: "+userId);
+		return ETags.okWithValidators(ETags.ofAll(allNewsSource), null).body(allNewsSource);
+	}
+
+	/*
+	 * Handler method which retrieves many newssource of a user at once, for services
+	 * resolving the newssource of news, which ask with the author of the news as userId.
+	 * This handler method should return any one of the status messages basis on
+	 * different situations:
+	 * 1. 200(OK) - With the newssource found, leaving out the newssourceIds that do
+	 *    not exist or were created by another user.
+	 * 2. 400(BAD REQUEST) - If no userId is given, or more than newz.news-source.ids.max
+	 *    ids are asked for.
+	 *
+	 * This handler method maps to the URL "/api/v1/newssource?ids=1,2,3&userId=..."
+	 * using HTTP GET method.
+	 */
+	@GetMapping(params = "ids")
+	public ResponseEntity<List<NewsSource>> getNewsSourcesByIds(@RequestParam("ids") List<Integer> newssourceIds,
+			@RequestParam("userId") String userId){
+		if(newssourceIds.size() > maxIds) {
+			logger.info("In controller - {}", newssourceIds.size() + " news Source Ids asked for, at most " + maxIds + " allowed.");
+			return new ResponseEntity<List<NewsSource>>(HttpStatus.BAD_REQUEST);
+		}
+		List<NewsSource> newsSources = newsSourceService.getNewsSourcesByIds(userId, newssourceIds);
+		logger.info("In controller - {}", "Found " +newsSources.size()+ " news Source for Ids - " +newssourceIds);
+		return new ResponseEntity<List<NewsSource>>(newsSources, HttpStatus.OK);
 	}
 }
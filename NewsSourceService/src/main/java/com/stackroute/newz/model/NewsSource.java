@@ -3,6 +3,7 @@ package com.stackroute.newz.model;
 import java.time.LocalDateTime;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -24,14 +25,26 @@ public class NewsSource {
 	 * setters for the fields, along with the no-arg , parameterized constructor and toString
 	 * method.The value of newssourceCreationDate should not be accepted from the user but
 	 * should be always initialized with the system date.
+	 *
+	 * newsSourceCreatedBy is indexed, as every read of this service is scoped to the
+	 * user who created the news source.
 	 */
 	@Id
 	private Integer newsSourceId;
 	private String newsSourceName;
 	private String newsSourceDesc;
+	@Indexed
 	private String newsSourceCreatedBy;
 	@JsonSerialize(using = ToStringSerializer.class)
 	private LocalDateTime newsSourceCreationDate;
+	/*
+	 * version and lastModifiedAt are not accepted from the user either. The service
+	 * sets version 1 when the news source is saved and increments it on every update;
+	 * they are the ETag and Last-Modified of the news source.
+	 */
+	private Long version;
+	@JsonSerialize(using = ToStringSerializer.class)
+	private LocalDateTime lastModifiedAt;
 	
 	public NewsSource() {
 		super();
@@ -88,10 +101,40 @@ public class NewsSource {
 		this.newsSourceCreationDate = LocalDateTime.now();
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public LocalDateTime getLastModifiedAt() {
+		return lastModifiedAt;
+	}
+
+	public void setLastModifiedAt(LocalDateTime lastModifiedAt) {
+		this.lastModifiedAt = lastModifiedAt;
+	}
+
+	/* Marks the news source as saved for the first time, at version 1. */
+
+	public void initVersion() {
+		this.version = 1L;
+		this.lastModifiedAt = LocalDateTime.now();
+	}
+
+	/* Marks the news source as updated; news sources saved before versioning start from version 0. */
+
+	public void nextVersion() {
+		this.version = version == null ? 1L : version + 1;
+		this.lastModifiedAt = LocalDateTime.now();
+	}
+
 	@Override
 	public String toString() {
 		return "NewsSource [newsSourceId=" + newsSourceId + ", newsSourceName=" + newsSourceName + ", newsSourceDesc="
 				+ newsSourceDesc + ", newsSourceCreatedBy=" + newsSourceCreatedBy + ", newsSourceCreationDate="
-				+ newsSourceCreationDate + "]";
+				+ newsSourceCreationDate + ", version=" + version + ", lastModifiedAt=" + lastModifiedAt + "]";
 	}
 }
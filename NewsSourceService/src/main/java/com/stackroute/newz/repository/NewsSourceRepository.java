@@ -1,6 +1,8 @@
 package com.stackroute.newz.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -15,4 +17,7 @@ import com.stackroute.newz.model.NewsSource;
 @Repository
 public interface NewsSourceRepository extends MongoRepository<NewsSource, Integer> {
 	List<NewsSource> findAllNewsSourceByNewsSourceCreatedBy(String newsSourceCreatedBy);
+	Optional<NewsSource> findByNewsSourceIdAndNewsSourceCreatedBy(Integer newsSourceId, String newsSourceCreatedBy);
+	long deleteByNewsSourceId(Integer newsSourceId);
+	long deleteByNewsSourceIdInAndNewsSourceCreatedBy(Collection<Integer> newsSourceIds, String newsSourceCreatedBy);
 }
@@ -14,12 +14,35 @@ public interface NewsSourceService {
 
 	boolean addNewsSource(NewsSource newsSource);
 
-	boolean deleteNewsSource(int newsSourceId);
+	default boolean deleteNewsSource(int newsSourceId) {
+		return deleteNewsSource(newsSourceId, null);
+	}
 
-	NewsSource updateNewsSource(NewsSource newsSource, int newsSourceId) throws NewsSourceNotFoundException;
+	/*
+	 * Deletes the news source only while it is still at the expected version, or in any
+	 * case when expectedVersion is null. Throws NewsSourceVersionConflictException when
+	 * the news source exists at another version.
+	 */
+	boolean deleteNewsSource(int newsSourceId, Long expectedVersion);
+
+	/* Deletes the news sources with the ids that were created by userId, and returns how many. */
+	long deleteAllNewsSource(String userId, List<Integer> newsSourceIds);
+
+	default NewsSource updateNewsSource(NewsSource newsSource, int newsSourceId) throws NewsSourceNotFoundException {
+		return updateNewsSource(newsSource, newsSourceId, null);
+	}
+
+	/*
+	 * Updates the news source only while it is still at the expected version, or at
+	 * the version it is read at when expectedVersion is null. Throws
+	 * NewsSourceVersionConflictException when the news source is at another version.
+	 */
+	NewsSource updateNewsSource(NewsSource newsSource, int newsSourceId, Long expectedVersion) throws NewsSourceNotFoundException;
 
 	NewsSource getNewsSourceById(String userId,int newsSourceId) throws NewsSourceNotFoundException;
 
 	List<NewsSource> getAllNewsSourceByUserId(String userId);
+
+	List<NewsSource> getNewsSourcesByIds(String userId, List<Integer> newsSourceIds);
 	
 }
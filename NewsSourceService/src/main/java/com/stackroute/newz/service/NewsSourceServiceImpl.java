@@ -1,15 +1,20 @@
 package com.stackroute.newz.service;
 
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.repository.NewsSourceRepository;
+import com.stackroute.newz.util.SingleFlight;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
+import com.stackroute.newz.util.exception.NewsSourceVersionConflictException;
 
 /*
 * Service classes are used here to implement additional business logic/validation 
@@ -29,84 +34,146 @@ public class NewsSourceServiceImpl implements NewsSourceService {
 	 * (Use Constructor-based autowiring) Please note that we should not create any
 	 * object using the new keyword.
 	 */
+	@Value("${newz.write.max-attempts:3}")
+	private int maxWriteAttempts = 3;
+
 	private NewsSourceRepository newsSourceRepo;
+	private MongoOperations mongoOperations;
+
+	/* Longest wait of a read for the same read of another request, see SingleFlight. */
+	@Value("${newz.singleflight.max-wait-ms:2000}")
+	private long readMaxWaitMillis = 2000;
+
+	private final SingleFlight<String, List<NewsSource>> userNewsSourceReads = new SingleFlight<String, List<NewsSource>>("userNewsSource");
+
 	@Autowired
-	public NewsSourceServiceImpl(NewsSourceRepository repo) {
+	public NewsSourceServiceImpl(NewsSourceRepository repo, MongoOperations mongoOperations) {
 		this.newsSourceRepo = repo;
+		this.mongoOperations = mongoOperations;
 	}
 	
 	/*
-	 * This method should be used to save a newsSource.
+	 * This method should be used to save a newsSource. The insert itself is rejected
+	 * with a duplicate key error when the newsSourceId already exists, so no
+	 * existence check is needed up front and concurrent creates cannot both succeed.
 	 */
 	@Override
 	public boolean addNewsSource(NewsSource newsSource) {
-		NewsSource newsSourceAdded;
-		if(newsSourceRepo.existsById(newsSource.getNewsSourceId()) == false) {
-			newsSourceAdded = newsSourceRepo.insert(newsSource);
-			if(newsSourceAdded != null) {
-				return true;
-			}
+		newsSource.initVersion();
+		try {
+			NewsSource newsSourceAdded = newsSourceRepo.insert(newsSource);
+			return newsSourceAdded != null;
+		}
+		catch(DuplicateKeyException ex) {
+			return false;
 		}
-		return false;
 	}
 
-	/* This method should be used to delete an existing newsSource. */
+	/*
+	 * This method should be used to delete an existing newsSource. The delete
+	 * reports how many documents it removed, so no lookup is needed before it. With an
+	 * expected version the delete only matches the newsSource at that version, and a
+	 * newsSource left behind was changed in between.
+	 */
 
 	@Override
-	public boolean deleteNewsSource(int newsSourceId) {
-		try {
-		Optional<NewsSource> newsSource = newsSourceRepo.findById(newsSourceId);
-		NewsSource newsSourceAdded = newsSourceRepo.save(newsSource.get());
-		if(newsSourceAdded != null) {
-			newsSourceRepo.deleteById(newsSourceId);
+	public boolean deleteNewsSource(int newsSourceId, Long expectedVersion) {
+		if(expectedVersion == null) {
+			return newsSourceRepo.deleteByNewsSourceId(newsSourceId) > 0;
+		}
+		if(mongoOperations.remove(atVersion(newsSourceId, expectedVersion), NewsSource.class).getDeletedCount() > 0) {
 			return true;
-			}
 		}
-		catch(Exception e) {
-			return false;
+		if(newsSourceRepo.existsById(newsSourceId)) {
+			throw conflict(newsSourceId, expectedVersion);
 		}
 		return false;
 	}
 
-	/* This method should be used to update an existing newsSource. */
+	/*
+	 * This method should be used to delete many newsSource of a user at once, with a
+	 * single delete on the _id index. Ids of newsSource created by another user are
+	 * left alone. It returns the number of newsSource removed.
+	 */
+
+	@Override
+	public long deleteAllNewsSource(String userId, List<Integer> newsSourceIds) {
+		if(newsSourceIds == null || newsSourceIds.isEmpty()) {
+			return 0;
+		}
+		return newsSourceRepo.deleteByNewsSourceIdInAndNewsSourceCreatedBy(newsSourceIds, userId);
+	}
+
+	/*
+	 * This method should be used to update an existing newsSource. The newsSource is
+	 * read, changed and replaced only while it is still at the version read, so
+	 * concurrent updates cannot overwrite each other. Without an expected version a
+	 * lost race is retried on a fresh read, up to newz.write.max-attempts times; with
+	 * one it is a conflict.
+	 */
 	
 	@Override
-	public NewsSource updateNewsSource(NewsSource newsSource, int newsSourceId) throws NewsSourceNotFoundException {
-		NewsSource newsSourceToUpdate = newsSourceRepo.findById(newsSourceId).get();
-		if(newsSourceToUpdate != null) {
+	public NewsSource updateNewsSource(NewsSource newsSource, int newsSourceId, Long expectedVersion) throws NewsSourceNotFoundException {
+		for(int attempt = 1; ; attempt++) {
+			NewsSource newsSourceToUpdate = newsSourceRepo.findById(newsSourceId)
+					.orElseThrow(() -> new NewsSourceNotFoundException("Can not Update the News Source. The news source with ID: "+newsSourceId+" does not exists in the database."));
+			long readVersion = newsSourceToUpdate.getVersion() == null ? 0 : newsSourceToUpdate.getVersion();
+			if(expectedVersion != null && expectedVersion != readVersion) {
+				throw conflict(newsSourceId, expectedVersion);
+			}
 			newsSourceToUpdate.setNewsSourceCreatedBy(newsSource.getNewsSourceCreatedBy());
 			newsSourceToUpdate.setNewsSourceDesc(newsSource.getNewsSourceDesc());
 			newsSourceToUpdate.setNewsSourceName(newsSource.getNewsSourceName());
-			newsSourceRepo.save(newsSourceToUpdate);
-			return newsSourceToUpdate;
+			newsSourceToUpdate.nextVersion();
+			if(mongoOperations.findAndReplace(atVersion(newsSourceId, readVersion), newsSourceToUpdate) != null) {
+				return newsSourceToUpdate;
+			}
+			if(expectedVersion != null || attempt >= maxWriteAttempts) {
+				throw conflict(newsSourceId, readVersion);
+			}
 		}
-		throw new NewsSourceNotFoundException("Can not Update the News Source. The news source with ID: "+newsSourceId+" already exists in the database.");
 	}
 
-	/* This method should be used to get a specific newsSource for an user. */
+	/*
+	 * This method should be used to get a specific newsSource for an user. It is a
+	 * single lookup on the _id index, restricted to the given user.
+	 */
 
 	@Override
 	public NewsSource getNewsSourceById(String userId, int newsSourceId) throws NewsSourceNotFoundException {
-		try {
-		List<NewsSource> newsSourceList = newsSourceRepo.findAllNewsSourceByNewsSourceCreatedBy(userId);
-		if(!newsSourceList.isEmpty()) {
-			for(NewsSource newsSource : newsSourceList) {
-				if(newsSource.getNewsSourceId() == newsSourceId) {
-					return newsSource;
-				}
-			}
-		}}
-		catch(NoSuchElementException e) {
-			return null;
-		}
-		return null;
+		return newsSourceRepo.findByNewsSourceIdAndNewsSourceCreatedBy(newsSourceId, userId).orElse(null);
 	}
 	
-	 /* This method should be used to get all newsSource for a specific userId.*/
+	/*
+	 * This method should be used to get all newsSource for a specific userId.
+	 * Concurrent calls for the same user share one query and its result.
+	 */
 
 	@Override
 	public List<NewsSource> getAllNewsSourceByUserId(String createdBy) {
-		return newsSourceRepo.findAllNewsSourceByNewsSourceCreatedBy(createdBy);
+		return userNewsSourceReads.load(createdBy, readMaxWaitMillis, () -> newsSourceRepo.findAllNewsSourceByNewsSourceCreatedBy(createdBy));
+	}
+
+	/*
+	 * This method should be used to get many newsSource of a user at once, with one
+	 * $in query on the _id index. Ids that do not exist or belong to other users are
+	 * left out.
+	 */
+
+	@Override
+	public List<NewsSource> getNewsSourcesByIds(String userId, List<Integer> newsSourceIds) {
+		return mongoOperations.find(new Query(Criteria.where("_id").in(newsSourceIds).and("newsSourceCreatedBy").is(userId)),
+				NewsSource.class);
+	}
+
+	/* The newsSource at a version, where version 0 is a newsSource stored without one. */
+
+	private static Query atVersion(int newsSourceId, long version) {
+		return new Query(Criteria.where("_id").is(newsSourceId).and("version").is(version == 0 ? null : version));
+	}
+
+	private static NewsSourceVersionConflictException conflict(int newsSourceId, long version) {
+		return new NewsSourceVersionConflictException("The news source with ID: "+newsSourceId+" is no longer at version "+version+".");
 	}
 
 }
@@ -0,0 +1,138 @@
+package com.stackroute.newz.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/*
+ * Limit on the requests processed at once that adapts to their latency, in the way of
+ * TCP congestion control (AIMD). Latency is tracked per route, as a list and a single
+ * news differ by far more than load makes them differ: the lowest latency of the last
+ * window of requests of a route stands for its latency on an unloaded server, and an
+ * exponentially weighted moving average for its current latency, so that one slow
+ * request or the jitter of a light load does not move the limit.
+ *
+ * The limit only adapts while it is actually used, i.e. at least half of it in flight.
+ * While the average of a route stays within tolerance times its lowest latency the
+ * limit grows by one per limit requests. Past that it shrinks by backoffRatio, at most
+ * once per such average latency, so that when MongoDB slows down the excess requests
+ * are refused at once instead of queueing for threads and connections.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double tolerance;
+	private final double backoffRatio;
+	private final int windowSize;
+	private final LongSupplier nanoClock;
+
+	/* Weight of a new sample in the average latency of its route. */
+	static final double SMOOTHING = 0.1;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final Map<String, RouteLatency> routes = new ConcurrentHashMap<String, RouteLatency>();
+	private volatile double limit;
+
+	/* Guarded by this. */
+	private long lastDecreaseAt;
+	private boolean decreased;
+
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+			double backoffRatio, int windowSize) {
+		this(initialLimit, minLimit, maxLimit, tolerance, backoffRatio, windowSize, System::nanoTime);
+	}
+
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+			double backoffRatio, int windowSize, LongSupplier nanoClock) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.backoffRatio = backoffRatio;
+		this.windowSize = windowSize;
+		this.nanoClock = nanoClock;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+	}
+
+	/* Admits a request if fewer than the limit are in flight. */
+
+	public boolean tryAcquire() {
+		for(;;) {
+			int current = inFlight.get();
+			if(current >= (int) limit) {
+				return false;
+			}
+			if(inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/*
+	 * Releases a request admitted by tryAcquire and adapts the limit to the latency of
+	 * its route, e.g. "GET /api/v1/news/{userId}". A negative latency releases the
+	 * request without sampling it.
+	 */
+
+	public void release(String route, long latencyNanos) {
+		int wasInFlight = inFlight.getAndDecrement();
+		if(latencyNanos >= 0) {
+			RouteLatency latency = routes.computeIfAbsent(route, newRoute -> new RouteLatency());
+			sample(latency, latencyNanos, wasInFlight);
+		}
+	}
+
+	public void release(long latencyNanos) {
+		release("", latencyNanos);
+	}
+
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private synchronized void sample(RouteLatency latency, long latencyNanos, int wasInFlight) {
+		latency.add(latencyNanos);
+		if(wasInFlight * 2 < limit) {
+			return;
+		}
+		if(latency.average > latency.baseline() * tolerance) {
+			long now = nanoClock.getAsLong();
+			if(!decreased || now - lastDecreaseAt >= latency.average) {
+				limit = Math.max(minLimit, limit * backoffRatio);
+				lastDecreaseAt = now;
+				decreased = true;
+			}
+		} else {
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+	}
+
+	/* Latency of one route. Guarded by the enclosing limit. */
+
+	private final class RouteLatency {
+
+		private long minLatency = Long.MAX_VALUE;
+		private long windowMinLatency = Long.MAX_VALUE;
+		private int windowSamples;
+		private double average = -1;
+
+		void add(long latencyNanos) {
+			average = average < 0 ? latencyNanos : average + SMOOTHING * (latencyNanos - average);
+			windowMinLatency = Math.min(windowMinLatency, latencyNanos);
+			if(++windowSamples >= windowSize) {
+				minLatency = windowMinLatency;
+				windowMinLatency = Long.MAX_VALUE;
+				windowSamples = 0;
+			}
+		}
+
+		long baseline() {
+			return Math.min(minLatency, windowMinLatency);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.stackroute.newz.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+
+import com.stackroute.newz.model.NewsSource;
+
+/*
+ * Strong entity tags of the news source read handlers, derived from the version of
+ * each news source so that the response body is neither serialized nor hashed to
+ * compute them.
+ */
+public final class ETags {
+
+	private ETags() {
+	}
+
+	/* "newsSourceId-version" of one news source. */
+
+	public static String of(NewsSource newsSource) {
+		return "\"" + newsSource.getNewsSourceId() + "-" + versionOf(newsSource) + "\"";
+	}
+
+	/*
+	 * "size-hash" of a list of news sources, hashing the "newsSourceId:version" of
+	 * each news source in order, so that adding, removing, reordering or updating a
+	 * news source changes it.
+	 */
+
+	public static String ofAll(List<NewsSource> newsSources) {
+		StringBuilder tuples = new StringBuilder();
+		for(NewsSource newsSource : newsSources) {
+			tuples.append(newsSource.getNewsSourceId()).append(':').append(versionOf(newsSource)).append(',');
+		}
+		return "\"" + newsSources.size() + "-" + hashOf(tuples) + "\"";
+	}
+
+	/*
+	 * The version that a conditional write on the news source expects, taken from the
+	 * If-Match header. Returns null when there is no header or it is "*". Throws
+	 * IllegalArgumentException for anything other than one strong tag of this
+	 * news source, since such a header can never match.
+	 */
+
+	public static Long expectedVersion(String ifMatch, int newsSourceId) {
+		if(ifMatch == null || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		String tag = ifMatch.trim();
+		String prefix = "\"" + newsSourceId + "-";
+		if(!tag.startsWith(prefix) || !tag.endsWith("\"") || tag.length() <= prefix.length() + 1) {
+			throw new IllegalArgumentException("If-Match does not match news source " + newsSourceId + ": " + ifMatch);
+		}
+		return Long.valueOf(tag.substring(prefix.length(), tag.length() - 1));
+	}
+
+	/*
+	 * 200(OK) with the validators of a response. Spring MVC turns it into
+	 * 304(NOT MODIFIED), without writing the body, for a GET whose If-None-Match or
+	 * If-Modified-Since header still matches. "no-cache" makes clients revalidate
+	 * every time instead of guessing a freshness lifetime from Last-Modified.
+	 */
+	public static ResponseEntity.BodyBuilder okWithValidators(String eTag, LocalDateTime lastModifiedAt) {
+		ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache());
+		if(lastModifiedAt != null) {
+			ok.lastModified(lastModifiedAt.atZone(ZoneId.systemDefault()));
+		}
+		return ok;
+	}
+
+	private static long versionOf(NewsSource newsSource) {
+		return newsSource.getVersion() == null ? 0 : newsSource.getVersion();
+	}
+
+	/*
+	 * First 128 bits of the SHA-256 of delimited tuples, in hex. Unlike a polynomial
+	 * hash of the bare numbers, no two different lists of tuples can be made to share
+	 * a tag by shifting one number into another.
+	 */
+
+	private static String hashOf(CharSequence tuples) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(tuples.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(32);
+			for(int i = 0; i < 16; i++) {
+				hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
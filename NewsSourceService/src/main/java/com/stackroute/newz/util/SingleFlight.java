@@ -0,0 +1,105 @@
+package com.stackroute.newz.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+/*
+ * Concurrent identical reads sharing one database fetch. A read of a key joins the
+ * fetch in flight for that key instead of starting its own, and gets the very result
+ * of that fetch, or its exception. The key is forgotten as soon as its fetch is done,
+ * so nothing is kept for later reads, that is left to the caches. A read waits for the
+ * fetch it joined at most maxWaitMillis and then runs its own, so one stuck fetch does
+ * not hold every later read of its key for as long as the driver lets it hang.
+ *
+ * Every read is counted in newz.singleflight.calls, tagged with the name of the
+ * SingleFlight and whether it "fetched" or was "coalesced" into another read. The
+ * coalesced reads that gave up waiting and fetched on their own are counted again as
+ * "timed-out".
+ */
+public final class SingleFlight<K, V> {
+
+	public static final String CALLS_METER = "newz.singleflight.calls";
+
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<K, CompletableFuture<V>>();
+	private final Counter fetched;
+	private final Counter coalesced;
+	private final Counter timedOut;
+
+	/* Registers the counters in the global registry, which Spring Boot adds its registry to. */
+
+	public SingleFlight(String name) {
+		this(name, Metrics.globalRegistry);
+	}
+
+	public SingleFlight(String name, MeterRegistry meterRegistry) {
+		this.fetched = counter(name, "fetched", meterRegistry);
+		this.coalesced = counter(name, "coalesced", meterRegistry);
+		this.timedOut = counter(name, "timed-out", meterRegistry);
+	}
+
+	/*
+	 * Returns the result of the fetch in flight for the key, or runs the fetch itself
+	 * when there is none. The shared result is not copied, callers must not modify it.
+	 * A fetch in flight for longer than maxWaitMillis is left to its caller, and the
+	 * read fetches on its own without sharing.
+	 */
+
+	public V load(K key, long maxWaitMillis, Supplier<V> fetch) {
+		CompletableFuture<V> call = new CompletableFuture<V>();
+		CompletableFuture<V> joined = inFlight.putIfAbsent(key, call);
+		if(joined != null) {
+			coalesced.increment();
+			try {
+				return await(joined, maxWaitMillis);
+			} catch (TimeoutException e) {
+				timedOut.increment();
+				return fetch.get();
+			}
+		}
+		fetched.increment();
+		try {
+			V value = fetch.get();
+			call.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			call.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, call);
+		}
+	}
+
+	private static <V> V await(CompletableFuture<V> call, long maxWaitMillis) throws TimeoutException {
+		try {
+			return call.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a fetch in flight", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if(e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static Counter counter(String name, String result, MeterRegistry meterRegistry) {
+		return Counter.builder(CALLS_METER)
+				.description("Reads that fetched from the database, or were coalesced into a fetch in flight")
+				.tag("name", name)
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,89 @@
+package com.stackroute.newz.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/*
+ * A token bucket per key, e.g. per userId. Each bucket holds up to burst tokens and
+ * gains ratePerSecond tokens a second. A request takes one token of its key, or is
+ * refused with the time until the next token.
+ *
+ * A full bucket behaves like a new one, so once more than maxKeys keys are tracked
+ * the full buckets are dropped, at most once per time a bucket takes to refill.
+ */
+public final class TokenBuckets {
+
+	private final double tokensPerNano;
+	private final double burst;
+	private final int maxKeys;
+	private final long refillNanos;
+	private final LongSupplier nanoClock;
+
+	private final Map<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+	private volatile long nextSweepAt;
+
+	public TokenBuckets(double ratePerSecond, int burst, int maxKeys) {
+		this(ratePerSecond, burst, maxKeys, System::nanoTime);
+	}
+
+	public TokenBuckets(double ratePerSecond, int burst, int maxKeys, LongSupplier nanoClock) {
+		this.tokensPerNano = ratePerSecond / 1e9;
+		this.burst = burst;
+		this.maxKeys = maxKeys;
+		this.refillNanos = (long) Math.ceil(burst / tokensPerNano);
+		this.nanoClock = nanoClock;
+		this.nextSweepAt = nanoClock.getAsLong();
+	}
+
+	/* Takes a token of the key. Returns 0 when taken, else the nanoseconds until one is. */
+
+	public long tryAcquire(String key) {
+		long now = nanoClock.getAsLong();
+		Bucket bucket = buckets.get(key);
+		if(bucket == null) {
+			if(buckets.size() >= maxKeys && now - nextSweepAt >= 0) {
+				nextSweepAt = now + refillNanos;
+				buckets.values().removeIf(tracked -> tracked.isFull(now));
+			}
+			bucket = buckets.computeIfAbsent(key, newKey -> new Bucket(now));
+		}
+		return bucket.tryAcquire(now);
+	}
+
+	/* Number of keys tracked. */
+
+	public int size() {
+		return buckets.size();
+	}
+
+	private final class Bucket {
+
+		private double tokens;
+		private long refilledAt;
+
+		Bucket(long now) {
+			this.tokens = burst;
+			this.refilledAt = now;
+		}
+
+		synchronized long tryAcquire(long now) {
+			refill(now);
+			if(tokens >= 1) {
+				tokens -= 1;
+				return 0;
+			}
+			return (long) Math.ceil((1 - tokens) / tokensPerNano);
+		}
+
+		synchronized boolean isFull(long now) {
+			refill(now);
+			return tokens >= burst;
+		}
+
+		private void refill(long now) {
+			tokens = Math.min(burst, tokens + Math.max(0, now - refilledAt) * tokensPerNano);
+			refilledAt = now;
+		}
+	}
+}
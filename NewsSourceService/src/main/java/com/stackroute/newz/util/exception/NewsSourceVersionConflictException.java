@@ -0,0 +1,17 @@
+package com.stackroute.newz.util.exception;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/*
+ * A conditional write found the news source at another version than the one it
+ * expected, i.e. the news source was changed since the client read it. The
+ * controller answers it with 412(PRECONDITION FAILED).
+ */
+public class NewsSourceVersionConflictException extends OptimisticLockingFailureException {
+
+	private static final long serialVersionUID = 1L;
+
+	public NewsSourceVersionConflictException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,21 @@
+package com.stackroute.newz.util.exception;
+
+/*
+ * The user of a request is out of tokens, see AdmissionInterceptor. Answered with
+ * 429(TOO MANY REQUESTS) and a Retry-After header of retryAfterSeconds.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterSeconds;
+
+	public TooManyRequestsException(long retryAfterSeconds) {
+		super("Too many requests, retry after " + retryAfterSeconds + "s");
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
@@ -0,0 +1,38 @@
+package com.stackroute.newz.test.controller;
+
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.util.ETags;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ETagsTest {
+
+    @Test
+    public void listTagsOfDifferentNewsSourcesDiffer() {
+        assertNotEquals(ETags.ofAll(Collections.singletonList(newsSource(1, 32))),
+                ETags.ofAll(Collections.singletonList(newsSource(2, 1))));
+        assertNotEquals(ETags.ofAll(Arrays.asList(newsSource(1, 1), newsSource(40, 1))),
+                ETags.ofAll(Arrays.asList(newsSource(1, 2), newsSource(9, 1))));
+        assertNotEquals(ETags.ofAll(Arrays.asList(newsSource(1, 1), newsSource(2, 1))),
+                ETags.ofAll(Arrays.asList(newsSource(2, 1), newsSource(1, 1))));
+    }
+
+    @Test
+    public void listTagOfTheSameNewsSourcesIsStable() {
+        assertEquals(ETags.ofAll(Arrays.asList(newsSource(1, 3), newsSource(2, 1))),
+                ETags.ofAll(Arrays.asList(newsSource(1, 3), newsSource(2, 1))));
+    }
+
+    private static NewsSource newsSource(int newsSourceId, long version) {
+        NewsSource newsSource = new NewsSource();
+        newsSource.setNewsSourceId(newsSourceId);
+        newsSource.setVersion(version);
+        return newsSource;
+    }
+}
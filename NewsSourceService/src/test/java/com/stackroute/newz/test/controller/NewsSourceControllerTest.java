@@ -7,10 +7,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.stackroute.newz.config.BinaryEncodingConfig;
 import com.stackroute.newz.controller.NewsSourceController;
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.service.NewsSourceService;
+import com.stackroute.newz.util.ETags;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
+import com.stackroute.newz.util.exception.NewsSourceVersionConflictException;
 
 import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
@@ -21,6 +24,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
@@ -28,10 +32,13 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
@@ -113,6 +120,42 @@ public class NewsSourceControllerTest {
     }
 
 
+    @Test
+    public void deleteAllNewssourceSuccess() throws Exception {
+
+        when(newssourceService.deleteAllNewsSource("Becky123", Arrays.asList(1, 2))).thenReturn(2L);
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/newssource").param("ids", "1,2").param("userId", "Becky123")
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("2"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+
+    @Test
+    public void deleteAllNewssourceFailure() throws Exception {
+
+        when(newssourceService.deleteAllNewsSource("Becky123", Arrays.asList(1, 2))).thenReturn(0L);
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/newssource").param("ids", "1,2").param("userId", "Becky123")
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void deleteAllNewssourceWithoutUserBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/newssource").param("ids", "1,2"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(newssourceService, never()).deleteAllNewsSource(any(), any());
+    }
+
+    @Test
+    public void deleteAllNewssourceOfTooManyIdsBadRequest() throws Exception {
+        ReflectionTestUtils.setField(newsSourceController, "maxIds", 1);
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/newssource").param("ids", "1,2").param("userId", "Becky123"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(newssourceService, never()).deleteAllNewsSource(any(), any());
+    }
+
+
     @Test
     public void updateNewssourceSuccess() throws Exception {
 
@@ -131,6 +174,23 @@ public class NewsSourceControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isNotFound()).andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void updateNewssourceIfMatchConflict() throws Exception {
+
+        when(newssourceService.updateNewsSource(any(), eq(newsSource.getNewsSourceId()), eq(1L)))
+                .thenThrow(new NewsSourceVersionConflictException("changed"));
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/newssource/1").header("If-Match", "\"1-1\"")
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(newsSource)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed()).andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void deleteNewssourceIfMatchOfOtherNewssource() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/newssource/1").header("If-Match", "\"2-1\""))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed()).andDo(MockMvcResultHandlers.print());
+    }
+
 
     @Test
     public void getNewssourceByIdSuccess() throws Exception {
@@ -141,6 +201,55 @@ public class NewsSourceControllerTest {
     }
 
 
+    @Test
+    public void getNewssourceByIdNotModified() throws Exception {
+        newsSource.initVersion();
+        when(newssourceService.getNewsSourceById("Becky123", 1)).thenReturn(newsSource);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource/Becky123/1")
+                .header("If-None-Match", ETags.of(newsSource)))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+        newsSource.nextVersion();
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource/Becky123/1")
+                .header("If-None-Match", "\"1-1\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-2\""));
+    }
+
+
+    @Test
+    public void getNewssourceByIdAsSmile() throws Exception {
+        when(newssourceService.getNewsSourceById("Becky123", 1)).thenReturn(newsSource);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource/Becky123/1")
+                .accept(BinaryEncodingConfig.APPLICATION_SMILE_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(BinaryEncodingConfig.APPLICATION_SMILE_VALUE));
+    }
+
+
+    @Test
+    public void getNewssourceByIdsSuccess() throws Exception {
+        when(newssourceService.getNewsSourcesByIds("Becky123", Arrays.asList(1, 2))).thenReturn(allNewssource);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource?ids=1,2&userId=Becky123"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void getNewssourceByIdsWithoutUserBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource?ids=1,2"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(newssourceService, never()).getNewsSourcesByIds(any(), any());
+    }
+
+    @Test
+    public void getNewssourceByTooManyIdsBadRequest() throws Exception {
+        ReflectionTestUtils.setField(newsSourceController, "maxIds", 1);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/newssource?ids=1,2&userId=Becky123"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+
     @Test
     public void getNewssourceByIdFailure() throws Exception {
     	int newssourceId = newsSource.getNewsSourceId();
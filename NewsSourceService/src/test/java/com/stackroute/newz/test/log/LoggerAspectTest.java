@@ -0,0 +1,100 @@
+package com.stackroute.newz.test.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.stackroute.newz.aspect.LoggerAspect;
+import com.stackroute.newz.controller.NewsSourceController;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.service.NewsSourceService;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+public class LoggerAspectTest {
+
+    @Mock
+    private NewsSourceService newsSourceService;
+    private LoggerAspect loggerAspect;
+    private NewsSourceController newsSourceController;
+    private Logger aspectLogger;
+    private ListAppender<ILoggingEvent> appender;
+    private List<NewsSource> newsSourceList;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        loggerAspect = new LoggerAspect();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new NewsSourceController(newsSourceService));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(loggerAspect);
+        newsSourceController = proxyFactory.getProxy();
+
+        aspectLogger = (Logger) LoggerFactory.getLogger(LoggerAspect.class);
+        appender = new ListAppender<>();
+        appender.start();
+        aspectLogger.addAppender(appender);
+
+        NewsSource newsSource = new NewsSource();
+        newsSource.setNewsSourceId(1);
+        newsSource.setNewsSourceName("CNN");
+        newsSource.setNewsSourceDesc("CNN - US");
+        newsSource.setNewsSourceCreatedBy("Becky123");
+        newsSourceList = new ArrayList<>();
+        newsSourceList.add(newsSource);
+        newsSourceList.add(newsSource);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        aspectLogger.detachAppender(appender);
+    }
+
+    @Test
+    public void logsSummaryWithoutPayload() {
+        when(newsSourceService.getAllNewsSourceByUserId("Becky123")).thenReturn(newsSourceList);
+        newsSourceController.getAllNewsSource("Becky123");
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("method=getAllNewsSource args=[Becky123] status=200 items=2 durationMicros="));
+        assertFalse(message.contains("CNN"));
+    }
+
+    @Test
+    public void skipsCallsOutsideTheSample() {
+        ReflectionTestUtils.setField(loggerAspect, "sampleRate", 0.0);
+        when(newsSourceService.getAllNewsSourceByUserId("Becky123")).thenReturn(newsSourceList);
+        newsSourceController.getAllNewsSource("Becky123");
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    public void logsFailuresRegardlessOfSampling() {
+        ReflectionTestUtils.setField(loggerAspect, "sampleRate", 0.0);
+        when(newsSourceService.getAllNewsSourceByUserId("Becky123")).thenThrow(IllegalStateException.class);
+        assertThrows(IllegalStateException.class, () -> newsSourceController.getAllNewsSource("Becky123"));
+
+        assertEquals(1, appender.list.size());
+        assertEquals(Level.WARN, appender.list.get(0).getLevel());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("failed=IllegalStateException"));
+    }
+}
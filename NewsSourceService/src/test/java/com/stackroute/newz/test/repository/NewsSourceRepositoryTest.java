@@ -12,6 +12,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.repository.NewsSourceRepository;
 
+import java.util.Arrays;
 import java.util.List;
 
 @ExtendWith(SpringExtension.class)
@@ -57,6 +58,17 @@ public class NewsSourceRepositoryTest {
 
     }
 
+    @Test
+    public void deleteNewssourceByIdsTest() {
+
+    	newsSourceRepository.insert(newsSource);
+    	assertThat(newsSourceRepository.deleteByNewsSourceIdInAndNewsSourceCreatedBy(Arrays.asList(1, 2), "Becky123"), is(0L));
+    	long deleted = newsSourceRepository.deleteByNewsSourceIdInAndNewsSourceCreatedBy(Arrays.asList(1, 2),
+    			newsSource.getNewsSourceCreatedBy());
+        assertThat(deleted, is(1L));
+        assertThat(false, is(newsSourceRepository.existsById(1)));
+    }
+
     @Test
     public void updateNewssourceTest() {
 
@@ -79,6 +91,15 @@ public class NewsSourceRepositoryTest {
         assertThat(1, is(fetchedNewssource.getNewsSourceId()));
     }
 
+    @Test
+    public void getNewssourceByIdAndUserIdTest() {
+
+    	newsSourceRepository.insert(newsSource);
+    	NewsSource fetchedNewssource = newsSourceRepository.findByNewsSourceIdAndNewsSourceCreatedBy(1, "Jhon123").get();
+        assertThat(1, is(fetchedNewssource.getNewsSourceId()));
+        assertThat(false, is(newsSourceRepository.findByNewsSourceIdAndNewsSourceCreatedBy(1, "Becky123").isPresent()));
+    }
+
     @Test
     public void getAllNewssourceByUserId() {
 
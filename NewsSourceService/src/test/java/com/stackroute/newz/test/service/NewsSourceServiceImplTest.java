@@ -4,23 +4,37 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.result.DeleteResult;
 
 import com.stackroute.newz.model.NewsSource;
 import com.stackroute.newz.repository.NewsSourceRepository;
 import com.stackroute.newz.service.NewsSourceServiceImpl;
 import com.stackroute.newz.util.exception.NewsSourceNotFoundException;
+import com.stackroute.newz.util.exception.NewsSourceVersionConflictException;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Optional;
 
 public class NewsSourceServiceImplTest {
@@ -29,6 +43,8 @@ public class NewsSourceServiceImplTest {
     private NewsSource newsSource;
     @Mock
     private NewsSourceRepository newsSourceRepository;
+    @Mock
+    private MongoOperations mongoOperations;
     @InjectMocks
     private NewsSourceServiceImpl newsSourceServiceImpl;
     private List<NewsSource> allNewssource = null;
@@ -57,6 +73,7 @@ public class NewsSourceServiceImplTest {
         when(newsSourceRepository.insert(newsSource)).thenReturn(newsSource);
         boolean savedNewssource = newsSourceServiceImpl.addNewsSource(newsSource);
         assertThat(savedNewssource,is(true));
+        assertThat(newsSource.getVersion(), is(1L));
     }
     
     @Test
@@ -67,57 +84,117 @@ public class NewsSourceServiceImplTest {
         assertThat(savedNewssource, is(false));
     }
 
+    @Test
+    public void createNewssourceTestDuplicateKey() throws Exception {
+
+        when(newsSourceRepository.insert(newsSource)).thenThrow(DuplicateKeyException.class);
+        boolean savedNewssource = newsSourceServiceImpl.addNewsSource(newsSource);
+        assertThat(savedNewssource, is(false));
+        verify(newsSourceRepository, never()).existsById(any());
+    }
+
     @Test
     public void deleteNewssourceSuccess() throws Exception {
-        when(newsSourceRepository.findById(newsSource.getNewsSourceId())).thenReturn(options);
-        when(newsSourceRepository.save(newsSource)).thenReturn(newsSource);
+        when(newsSourceRepository.deleteByNewsSourceId(1)).thenReturn(1L);
         boolean flag = newsSourceServiceImpl.deleteNewsSource(1);
         assertThat(true, is(flag));
+        verify(newsSourceRepository, never()).save(any());
     }
 
 
     @Test
     public void deleteNewssourceFailure() throws Exception {
-        when(newsSourceRepository.findById(newsSource.getNewsSourceId())).thenReturn(null);
-        when(newsSourceRepository.save(newsSource)).thenReturn(newsSource);
+        when(newsSourceRepository.deleteByNewsSourceId(1)).thenReturn(0L);
         boolean flag = newsSourceServiceImpl.deleteNewsSource(newsSource.getNewsSourceId());
         assertThat(false, is(flag));
     }
 
+    @Test
+    public void deleteAllNewssourceSuccess() throws Exception {
+        List<Integer> ids = Arrays.asList(1, 2, 3);
+        when(newsSourceRepository.deleteByNewsSourceIdInAndNewsSourceCreatedBy(ids, "Becky123")).thenReturn(2L);
+        assertThat(newsSourceServiceImpl.deleteAllNewsSource("Becky123", ids), is(2L));
+    }
+
+    @Test
+    public void deleteAllNewssourceOfNoIdsDeletesNothing() throws Exception {
+        assertThat(newsSourceServiceImpl.deleteAllNewsSource("Becky123", new ArrayList<>()), is(0L));
+        verify(newsSourceRepository, never()).deleteByNewsSourceIdInAndNewsSourceCreatedBy(any(), any());
+    }
+
+    @Test
+    public void getNewssourceByIdsOfUserQueriesOwner() {
+        List<Integer> ids = Arrays.asList(1, 2);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.find(query.capture(), eq(NewsSource.class))).thenReturn(Collections.singletonList(newsSource));
+
+        assertThat(newsSourceServiceImpl.getNewsSourcesByIds("Becky123", ids), is(Collections.singletonList(newsSource)));
+        assertThat(query.getValue().getQueryObject().get("newsSourceCreatedBy"), is("Becky123"));
+        verify(newsSourceRepository, never()).findAllById(any());
+    }
+
 
     @Test
     public void updateNewssourceTestSuccess() throws NewsSourceNotFoundException {
         when(newsSourceRepository.findById(newsSource.getNewsSourceId())).thenReturn(options);
+        when(mongoOperations.findAndReplace(any(Query.class), eq(newsSource))).thenReturn(newsSource);
         newsSource.setNewsSourceDesc("All about cricket and other sports");
         NewsSource fetchedNewssource = newsSourceServiceImpl.updateNewsSource(newsSource, newsSource.getNewsSourceId());
         assertThat(fetchedNewssource, is(newsSource));
+        assertThat(fetchedNewssource.getVersion(), is(1L));
 
     }
 
     @Test
     public void updateNewssourceTestFailure() throws NewsSourceNotFoundException {
         when(newsSourceRepository.findById(newsSource.getNewsSourceId())).thenReturn(options);
+        when(mongoOperations.findAndReplace(any(Query.class), eq(newsSource))).thenReturn(newsSource);
         newsSource.setNewsSourceDesc("All about cricket and other sports");
         NewsSource fetchedNewssource = newsSourceServiceImpl.updateNewsSource(newsSource, newsSource.getNewsSourceId());
         assertThat(fetchedNewssource, is(newsSource));
 
     }
 
+    @Test
+    public void updateNewssourceRetriesLostRace() throws NewsSourceNotFoundException {
+        when(newsSourceRepository.findById(newsSource.getNewsSourceId())).thenReturn(options);
+        when(mongoOperations.findAndReplace(any(Query.class), eq(newsSource))).thenReturn(null, newsSource);
+        NewsSource fetchedNewssource = newsSourceServiceImpl.updateNewsSource(newsSource, newsSource.getNewsSourceId());
+        assertThat(fetchedNewssource, is(newsSource));
+        verify(newsSourceRepository, times(2)).findById(newsSource.getNewsSourceId());
+    }
+
+    @Test
+    public void updateNewssourceAtOtherVersionConflicts() {
+        newsSource.setVersion(2L);
+        when(newsSourceRepository.findById(newsSource.getNewsSourceId())).thenReturn(options);
+        assertThrows(NewsSourceVersionConflictException.class,
+                () -> newsSourceServiceImpl.updateNewsSource(newsSource, newsSource.getNewsSourceId(), 1L));
+        verify(mongoOperations, never()).findAndReplace(any(Query.class), any(NewsSource.class));
+    }
+
+    @Test
+    public void deleteNewssourceAtOtherVersionConflicts() {
+        when(mongoOperations.remove(any(Query.class), eq(NewsSource.class))).thenReturn(DeleteResult.acknowledged(0));
+        when(newsSourceRepository.existsById(1)).thenReturn(true);
+        assertThrows(NewsSourceVersionConflictException.class, () -> newsSourceServiceImpl.deleteNewsSource(1, 1L));
+    }
+
 
     @Test
     public void getNewssourceByIdTestSuccess() throws NewsSourceNotFoundException {
 
-        when(newsSourceRepository.findAllNewsSourceByNewsSourceCreatedBy("Becky123")).thenReturn(allNewssource);
+        when(newsSourceRepository.findByNewsSourceIdAndNewsSourceCreatedBy(1, "Becky123")).thenReturn(options);
         NewsSource fetchedNewssource = newsSourceServiceImpl.getNewsSourceById("Becky123",1);
-        System.out.println("Orange "+allNewssource);
         assertNotNull(fetchedNewssource);
+        verify(newsSourceRepository, never()).findAllNewsSourceByNewsSourceCreatedBy(any());
 
         
     }
 
     @Test
     public void getNewssourceByIdTestFailure() throws NewsSourceNotFoundException {
-    	when(newsSourceRepository.findAllNewsSourceByNewsSourceCreatedBy("Becky123")).thenThrow(NoSuchElementException.class);
+    	when(newsSourceRepository.findByNewsSourceIdAndNewsSourceCreatedBy(1, "Becky123")).thenReturn(Optional.empty());
     	NewsSource fetchedNewssource = newsSourceServiceImpl.getNewsSourceById(newsSource.getNewsSourceCreatedBy(),newsSource.getNewsSourceId());
         assertNull(fetchedNewssource);
     }
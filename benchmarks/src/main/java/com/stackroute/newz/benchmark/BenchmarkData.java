@@ -0,0 +1,59 @@
+package com.stackroute.newz.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserNews;
+
+/*
+ * Fixtures shared by the benchmarks, shaped like the data of the service tests.
+ */
+final class BenchmarkData {
+
+	static final String USER_ID = "Becky123";
+
+	private BenchmarkData() {
+	}
+
+	static NewsSource newsSource(int newsSourceId) {
+		NewsSource newsSource = new NewsSource();
+		newsSource.setNewsSourceId(newsSourceId);
+		newsSource.setNewsSourceName("Cricket-Category");
+		newsSource.setNewsSourceDesc("All about IPL");
+		newsSource.setNewsSourceCreatedBy(USER_ID);
+		newsSource.setNewsSourceCreationDate();
+		return newsSource;
+	}
+
+	static News news(int newsId) {
+		Reminder reminder = new Reminder();
+		reminder.setReminderId("5b0509731764e3096984eae6");
+		reminder.setSchedule();
+
+		News news = new News();
+		news.setNewsId(newsId);
+		news.setTitle("IPLT20 Match - " + newsId);
+		news.setAuthor(USER_ID);
+		news.setDescription("Ipl match " + newsId + " - CSK Vs RCB");
+		news.setPublishedAt();
+		news.setContent("CSK vs RCB match scheduled for 4 PM");
+		news.setUrl("//CSKVsRCB.html");
+		news.setUrlToImage("//CSKVsRCB.png");
+		news.setReminder(reminder);
+		news.setNewssource(newsSource(newsId));
+		return news;
+	}
+
+	/* A UserNews of USER_ID holding news with the ids 1 to articles. */
+
+	static UserNews userNews(int articles) {
+		List<News> newsList = new ArrayList<News>(articles);
+		for(int newsId = 1; newsId <= articles; newsId++) {
+			newsList.add(news(newsId));
+		}
+		return new UserNews(USER_ID, newsList);
+	}
+}
@@ -0,0 +1,155 @@
+package com.stackroute.newz.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Closed-loop HTTP load test against a running service: a fixed number of clients each
+ * send a GET, wait for the response and send the next one. Prints throughput, latency
+ * percentiles and the count of failed responses after a warmup phase.
+ *
+ * Used to compare the Tomcat thread pool with newz.threads.virtual=true, see readme.md.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar com.stackroute.newz.benchmark.HttpLoadTest \
+ *       --url http://localhost:8081/api/v1/news/Becky123?limit=20 --concurrency 400 --duration 60
+ */
+public class HttpLoadTest {
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parse(args);
+		URI uri = URI.create(options.getOrDefault("url", "http://localhost:8081/api/v1/news/Becky123?limit=20"));
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "400"));
+		Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "15")));
+		Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+
+		System.out.printf("%s, %d clients, %ds warmup, %ds measured%n", uri, concurrency, warmup.getSeconds(), duration.getSeconds());
+		run(client, request, concurrency, warmup);
+		Result result = run(client, request, concurrency, duration);
+		result.print(duration);
+	}
+
+	private static Result run(HttpClient client, HttpRequest request, int concurrency, Duration duration) throws Exception {
+		long end = System.nanoTime() + duration.toNanos();
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>(concurrency);
+			for(int i = 0; i < concurrency; i++) {
+				futures.add(clients.submit(new Client(client, request, end)));
+			}
+			Result total = new Result();
+			for(Future<Result> future : futures) {
+				total.add(future.get());
+			}
+			return total;
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	private static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new HashMap<String, String>();
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			if(!args[i].startsWith("--")) {
+				throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+			}
+			options.put(args[i].substring(2), args[i + 1]);
+		}
+		return options;
+	}
+
+	private static class Client implements Callable<Result> {
+
+		private final HttpClient client;
+		private final HttpRequest request;
+		private final long end;
+
+		Client(HttpClient client, HttpRequest request, long end) {
+			this.client = client;
+			this.request = request;
+			this.end = end;
+		}
+
+		@Override
+		public Result call() {
+			Result result = new Result();
+			while(System.nanoTime() < end) {
+				long start = System.nanoTime();
+				try {
+					HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+					result.record(System.nanoTime() - start, response.statusCode() < 400);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} catch (Exception e) {
+					result.record(System.nanoTime() - start, false);
+				}
+			}
+			return result;
+		}
+	}
+
+	/* Latencies of the successful responses in nanoseconds, and the count of failures. */
+	private static class Result {
+
+		private long[] latencies = new long[1024];
+		private int count;
+		private long failures;
+
+		void record(long latency, boolean success) {
+			if(!success) {
+				failures++;
+				return;
+			}
+			if(count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = latency;
+		}
+
+		void add(Result other) {
+			if(count + other.count > latencies.length) {
+				latencies = Arrays.copyOf(latencies, count + other.count);
+			}
+			System.arraycopy(other.latencies, 0, latencies, count, other.count);
+			count += other.count;
+			failures += other.failures;
+		}
+
+		void print(Duration duration) {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			System.out.printf("throughput  %.1f req/s%n", count / (double) duration.getSeconds());
+			System.out.printf("p50         %.2f ms%n", percentile(sorted, 0.50));
+			System.out.printf("p99         %.2f ms%n", percentile(sorted, 0.99));
+			System.out.printf("p99.9       %.2f ms%n", percentile(sorted, 0.999));
+			System.out.printf("max         %.2f ms%n", count == 0 ? 0.0 : sorted[count - 1] / 1e6);
+			System.out.printf("ok / failed %d / %d%n", count, failures);
+		}
+
+		private static double percentile(long[] sorted, double quantile) {
+			if(sorted.length == 0) {
+				return 0.0;
+			}
+			int index = (int) Math.ceil(quantile * sorted.length) - 1;
+			return sorted[Math.max(0, index)] / 1e6;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.stackroute.newz.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.stackroute.newz.model.UserNews;
+import com.stackroute.newz.repository.NewsRepository;
+
+/*
+ * NewsRepository stand-in that keeps every UserNews as the BSON document MongoDB
+ * would return and maps it back with the application's MappingMongoConverter on
+ * each read. Lookups therefore pay the same decoding cost as against a database,
+ * without the network round trip.
+ *
+ * Only findById and existsById are supported, which is all the read paths use.
+ */
+final class InMemoryNewsRepository {
+
+	private InMemoryNewsRepository() {
+	}
+
+	static NewsRepository of(UserNews... allUserNews) {
+		MappingMongoConverter converter = converter();
+		Map<Object, Document> documents = new HashMap<Object, Document>();
+		for(UserNews userNews : allUserNews) {
+			Document document = new Document();
+			converter.write(userNews, document);
+			documents.put(userNews.getUserId(), document);
+		}
+		return (NewsRepository) Proxy.newProxyInstance(NewsRepository.class.getClassLoader(),
+				new Class<?>[] { NewsRepository.class }, (proxy, method, args) -> {
+					switch(method.getName()) {
+					case "findById":
+						return Optional.ofNullable(documents.get(args[0]))
+								.map(document -> converter.read(UserNews.class, document));
+					case "existsById":
+						return documents.containsKey(args[0]);
+					case "toString":
+						return "InMemoryNewsRepository" + documents.keySet();
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static MappingMongoConverter converter() {
+		MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		mappingContext.afterPropertiesSet();
+		MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+		return converter;
+	}
+}
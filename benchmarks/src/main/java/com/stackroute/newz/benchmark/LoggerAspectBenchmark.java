@@ -0,0 +1,69 @@
+package com.stackroute.newz.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.stackroute.newz.aspect.LoggerAspect;
+import com.stackroute.newz.controller.NewsController;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsService;
+
+/*
+ * Overhead of LoggerAspect on a NewsController call. The same controller is called
+ * once directly and once through a class based proxy advised by LoggerAspect, as the
+ * application context builds it. The NewsService behind it returns a fixed news, so
+ * the difference between both benchmarks is the aspect.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggerAspectBenchmark {
+
+	private NewsController controller;
+	private NewsController advisedController;
+
+	@Setup
+	public void setUp() {
+		News news = BenchmarkData.news(1);
+		NewsService newsService = (NewsService) Proxy.newProxyInstance(NewsService.class.getClassLoader(),
+				new Class<?>[] { NewsService.class }, (proxy, method, args) -> {
+					if("getNewsByNewsId".equals(method.getName())) {
+						return news;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		controller = new NewsController(newsService, Jackson2ObjectMapperBuilder.json().build());
+
+		AspectJProxyFactory proxyFactory = new AspectJProxyFactory(controller);
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAspect(new LoggerAspect());
+		advisedController = proxyFactory.getProxy();
+	}
+
+	@Benchmark
+	public ResponseEntity<News> getNewsById() {
+		return controller.getNewsById(BenchmarkData.USER_ID, 1);
+	}
+
+	@Benchmark
+	public ResponseEntity<News> getNewsByIdWithLoggerAspect() {
+		return advisedController.getNewsById(BenchmarkData.USER_ID, 1);
+	}
+}
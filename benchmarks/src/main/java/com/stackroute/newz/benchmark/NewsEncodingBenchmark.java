@@ -0,0 +1,114 @@
+package com.stackroute.newz.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stackroute.newz.model.News;
+
+/*
+ * The body of GET /api/v1/news/{userId} in each encoding the service can negotiate:
+ * JSON, Smile and CBOR, each with and without gzip as applied by server.compression.
+ * Run main to print the bytes on the wire of each encoding instead:
+ *
+ *   java -cp benchmarks/target/benchmarks.jar com.stackroute.newz.benchmark.NewsEncodingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NewsEncodingBenchmark {
+
+	private static final TypeReference<List<News>> NEWS_LIST = new TypeReference<List<News>>() {
+	};
+
+	@Param({ "json", "smile", "cbor" })
+	public String format;
+
+	@Param({ "10", "1000" })
+	public int articles;
+
+	private ObjectWriter writer;
+	private ObjectReader reader;
+
+	private List<News> newsList;
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() throws IOException {
+		ObjectMapper mapper = mapper(format);
+		writer = mapper.writerFor(NEWS_LIST);
+		reader = mapper.readerFor(NEWS_LIST);
+
+		newsList = BenchmarkData.userNews(articles).getNewslist();
+		encoded = writer.writeValueAsBytes(newsList);
+	}
+
+	@Benchmark
+	public byte[] write() throws IOException {
+		return writer.writeValueAsBytes(newsList);
+	}
+
+	@Benchmark
+	public byte[] writeGzip() throws IOException {
+		return gzip(writer.writeValueAsBytes(newsList));
+	}
+
+	@Benchmark
+	public List<News> read() throws IOException {
+		return reader.readValue(encoded);
+	}
+
+	public static void main(String[] args) throws IOException {
+		System.out.printf("%-8s %8s %12s %12s%n", "format", "articles", "bytes", "gzip bytes");
+		for(int articles : new int[] { 10, 1000 }) {
+			List<News> newsList = BenchmarkData.userNews(articles).getNewslist();
+			for(String format : new String[] { "json", "smile", "cbor" }) {
+				byte[] encoded = mapper(format).writerFor(NEWS_LIST).writeValueAsBytes(newsList);
+				System.out.printf("%-8s %8d %12d %12d%n", format, articles, encoded.length, gzip(encoded).length);
+			}
+		}
+	}
+
+	/* Configured the way Spring MVC builds the ObjectMapper of each encoding. */
+
+	private static ObjectMapper mapper(String format) {
+		switch(format) {
+		case "smile":
+			return Jackson2ObjectMapperBuilder.smile().build();
+		case "cbor":
+			return Jackson2ObjectMapperBuilder.cbor().build();
+		default:
+			return Jackson2ObjectMapperBuilder.json().build();
+		}
+	}
+
+	private static byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+		try(GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			gzip.write(bytes);
+		}
+		return compressed.toByteArray();
+	}
+}
@@ -0,0 +1,83 @@
+package com.stackroute.newz.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSource;
+import com.stackroute.newz.model.UserNews;
+
+/*
+ * Jackson serialization of the response bodies, with an ObjectMapper configured the
+ * way Spring MVC builds its own. UserNews is measured with 10 and 1k news.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NewsSerializationBenchmark {
+
+	@Param({ "10", "1000" })
+	public int articles;
+
+	private ObjectWriter newsWriter;
+	private ObjectReader newsReader;
+	private ObjectWriter userNewsWriter;
+	private ObjectWriter newsSourceWriter;
+
+	private News news;
+	private byte[] newsJson;
+	private UserNews userNews;
+	private NewsSource newsSource;
+
+	@Setup
+	public void setUp() throws IOException {
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		newsWriter = builder.build().writerFor(News.class);
+		newsReader = builder.build().readerFor(News.class);
+		userNewsWriter = builder.build().writerFor(UserNews.class);
+		newsSourceWriter = builder.build().writerFor(NewsSource.class);
+
+		news = BenchmarkData.news(1);
+		newsJson = newsWriter.writeValueAsBytes(news);
+		userNews = BenchmarkData.userNews(articles);
+		newsSource = BenchmarkData.newsSource(1);
+	}
+
+	@Benchmark
+	public byte[] writeNews() throws IOException {
+		return newsWriter.writeValueAsBytes(news);
+	}
+
+	@Benchmark
+	public News readNews() throws IOException {
+		return newsReader.readValue(newsJson);
+	}
+
+	@Benchmark
+	public byte[] writeUserNews() throws IOException {
+		return userNewsWriter.writeValueAsBytes(userNews);
+	}
+
+	@Benchmark
+	public byte[] writeNewsSource() throws IOException {
+		return newsSourceWriter.writeValueAsBytes(newsSource);
+	}
+}
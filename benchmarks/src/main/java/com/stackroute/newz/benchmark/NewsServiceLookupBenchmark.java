@@ -0,0 +1,63 @@
+package com.stackroute.newz.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsCacheInvalidator;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsServiceImpl;
+import com.stackroute.newz.service.NewsSourceResolver;
+import com.stackroute.newz.util.exception.NewsNotFoundException;
+
+/*
+ * Read paths of NewsServiceImpl for a user with 10, 1k and 100k news. The service is
+ * called directly, without the cache proxy, so every call is what a cache miss costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NewsServiceLookupBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	public int articles;
+
+	private NewsService newsService;
+
+	@Setup
+	public void setUp() {
+		newsService = new NewsServiceImpl(InMemoryNewsRepository.of(BenchmarkData.userNews(articles)), null,
+				new NewsCacheInvalidator(new NoOpCacheManager()), null, null, new NewsSourceResolver(null, null, new NoOpCacheManager()), null);
+	}
+
+	@Benchmark
+	public News getFirstNewsByNewsId() throws NewsNotFoundException {
+		return newsService.getNewsByNewsId(BenchmarkData.USER_ID, 1);
+	}
+
+	@Benchmark
+	public News getLastNewsByNewsId() throws NewsNotFoundException {
+		return newsService.getNewsByNewsId(BenchmarkData.USER_ID, articles);
+	}
+
+	@Benchmark
+	public List<News> getAllNewsByUserId() {
+		return newsService.getAllNewsByUserId(BenchmarkData.USER_ID);
+	}
+}